@@ -0,0 +1,48 @@
+// Writes a .br and a .gz copy next to each text asset in build/ so the
+// backend can send them as they are (spring.web.resources.chain.compressed)
+// instead of compressing on every request. Run after react-scripts build.
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const BUILD_DIR = path.join(__dirname, "..", "build");
+const MIN_BYTES = 1024;
+const COMPRESSIBLE = /\.(html|js|css|json|svg|txt)$/;
+
+function* files(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(file);
+    } else if (COMPRESSIBLE.test(entry.name)) {
+      yield file;
+    }
+  }
+}
+
+let original = 0;
+let brotli = 0;
+for (const file of files(BUILD_DIR)) {
+  const data = fs.readFileSync(file);
+  if (data.length < MIN_BYTES) {
+    continue;
+  }
+  const br = zlib.brotliCompressSync(data, {
+    params: {
+      [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+      [zlib.constants.BROTLI_PARAM_SIZE_HINT]: data.length,
+    },
+  });
+  const gz = zlib.gzipSync(data, { level: zlib.constants.Z_BEST_COMPRESSION });
+  // a variant that isn't smaller is never worth sending
+  if (br.length < data.length) {
+    fs.writeFileSync(file + ".br", br);
+  }
+  if (gz.length < data.length) {
+    fs.writeFileSync(file + ".gz", gz);
+  }
+  original += data.length;
+  brotli += Math.min(br.length, data.length);
+}
+console.log(`precompress: ${original} bytes of assets, ${brotli} with brotli`);
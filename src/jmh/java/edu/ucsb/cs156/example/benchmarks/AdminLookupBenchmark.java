@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminEmailIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Admin check done for every login by SecurityConfig's authorities mapper:
+ * the original list scan plus findByEmail, against AdminEmailIndex.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AdminLookupBenchmark {
+
+  private static final List<String> ADMIN_EMAILS = IntStream.range(0, 50)
+      .mapToObj(i -> "admin" + i + "@ucsb.edu").toList();
+
+  ConfigurableApplicationContext context;
+  UserRepository userRepository;
+  AdminEmailIndex adminEmailIndex;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(10,
+        "--app.admin.emails=" + ADMIN_EMAILS.stream().collect(Collectors.joining(",")));
+    userRepository = context.getBean(UserRepository.class);
+    adminEmailIndex = context.getBean(AdminEmailIndex.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public boolean listScanAndFindByEmail() {
+    String email = BenchmarkApplication.USER_EMAIL;
+    return ADMIN_EMAILS.contains(email)
+        || userRepository.findByEmail(email).map(User::getAdmin).orElse(false);
+  }
+
+  @Benchmark
+  public boolean adminEmailIndex() {
+    return adminEmailIndex.isAdmin(BenchmarkApplication.USER_EMAIL);
+  }
+}
@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Twenty articles matching a query: what clients did before (load every
+ * article and keep those whose title or explanation contains one of the
+ * words, unranked) against ArticleSearchIndex. "42" is a rare word; every
+ * seeded article contains "explanation", so the second query walks the
+ * longest posting list there is.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArticleSearchBenchmark {
+
+  @Param({ "1000", "10000" })
+  int rows;
+
+  @Param({ "42", "explanation of article 42" })
+  String query;
+
+  ConfigurableApplicationContext context;
+  ArticlesRepository articlesRepository;
+  ArticleSearchIndex articleSearchIndex;
+  List<String> words;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    articlesRepository = context.getBean(ArticlesRepository.class);
+    articleSearchIndex = context.getBean(ArticleSearchIndex.class);
+    // seeded after startup, so load them again
+    articleSearchIndex.refresh();
+    words = Arrays.asList(query.toLowerCase(Locale.ROOT).split(" "));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private boolean contains(Articles article) {
+    String text = (article.getTitle() + " " + article.getExplanation()).toLowerCase(Locale.ROOT);
+    return words.stream().anyMatch(text::contains);
+  }
+
+  @Benchmark
+  public List<Articles> findAllAndFilter() {
+    return StreamSupport.stream(articlesRepository.findAll().spliterator(), false)
+        .filter(this::contains)
+        .limit(20)
+        .toList();
+  }
+
+  @Benchmark
+  public List<ArticleSearchHit> articleSearchIndex() {
+    return articleSearchIndex.search(query, 20);
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+/**
+ * Boots the application against a private in-memory H2 database and seeds
+ * every table, for use by the JMH benchmarks in this package.
+ *
+ * Test configuration (edu.ucsb.cs156.example.testconfig, nested test
+ * configurations) shares the classpath with the benchmarks, so it is
+ * excluded from the component scan explicitly.
+ */
+
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan("edu.ucsb.cs156.example.entities")
+@EnableJpaRepositories("edu.ucsb.cs156.example.repositories")
+@ComponentScan(basePackages = "edu.ucsb.cs156.example", excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = {
+    "edu\\.ucsb\\.cs156\\.example\\.ExampleApplication",
+    "edu\\.ucsb\\.cs156\\.example\\.(benchmarks|testconfig)\\..*",
+    ".*Tests(\\$.*)?" }))
+public class BenchmarkApplication {
+
+  public static final String USER_EMAIL = "benchmark@ucsb.edu";
+
+  public static ConfigurableApplicationContext start(int rows, String... extraArgs) {
+    // command line arguments take precedence over application-development.properties
+    List<String> args = new ArrayList<>(List.of(
+        "--server.port=0",
+        "--spring.main.banner-mode=off",
+        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--logging.level.root=WARN",
+        "--logging.level.sql=WARN",
+        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+    args.addAll(Arrays.asList(extraArgs));
+
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApplication.class)
+        .run(args.toArray(new String[0]));
+    seed(context, rows);
+    return context;
+  }
+
+  public static MockMvc mockMvc(ConfigurableApplicationContext context) {
+    return MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+        .apply(springSecurity())
+        .build();
+  }
+
+  private static <T> List<T> rows(int rows, java.util.function.IntFunction<T> row) {
+    return Stream.iterate(0, i -> i + 1).limit(rows).map(row::apply).toList();
+  }
+
+  public static void seed(ConfigurableApplicationContext context, int rows) {
+    LocalDateTime start = LocalDateTime.parse("2023-10-02T08:00:00");
+
+    context.getBean(UserRepository.class).save(User.builder()
+        .email(USER_EMAIL).googleSub("benchmark").fullName("Benchmark User")
+        .givenName("Benchmark").familyName("User").emailVerified(true).hostedDomain("ucsb.edu")
+        .build());
+
+    context.getBean(ArticlesRepository.class).saveAll(rows(rows, i -> Articles.builder()
+        .title("Article " + i).url("https://example.org/articles/" + i)
+        .explanation("Explanation of article " + i).email("author" + i + "@ucsb.edu")
+        .dateAdded(start.plusMinutes(i)).build()));
+
+    context.getBean(HelpRequestRepository.class).saveAll(rows(rows, i -> HelpRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu").teamId("f23-5pm-" + (i % 8))
+        .tableOrBreakoutRoom("table " + (i % 12)).requestTime(start.plusMinutes(i))
+        .explanation("Help request " + i).solved(i % 3 == 0).build()));
+
+    context.getBean(MenuItemReviewRepository.class).saveAll(rows(rows, i -> MenuItemReview.builder()
+        .itemId(i % 50).reviewerEmail("reviewer" + i + "@ucsb.edu").stars(1 + i % 5)
+        .dateReviewed(start.plusMinutes(i)).comments("Review " + i).build()));
+
+    context.getBean(RecommendationRequestRepository.class).saveAll(rows(rows, i -> RecommendationRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu").professorEmail("prof" + (i % 20) + "@ucsb.edu")
+        .explanation("Recommendation " + i).dateRequested(start.plusDays(i % 30))
+        .dateNeeded(start.plusDays(30 + i % 60)).done(i % 4 == 0).build()));
+
+    context.getBean(UCSBDateRepository.class).saveAll(rows(rows, i -> UCSBDate.builder()
+        .quarterYYYYQ("202" + (i % 4) + (1 + i % 4)).name("Date " + i)
+        .localDateTime(start.plusDays(i)).build()));
+
+    context.getBean(UCSBDiningCommonsRepository.class).saveAll(rows(rows, i -> UCSBDiningCommons.builder()
+        .code("dc" + i).name("Dining Commons " + i).hasSackMeal(i % 2 == 0)
+        .hasTakeOutMeal(i % 3 == 0).hasDiningCam(i % 5 == 0)
+        .latitude(34.41 + i * 0.0001).longitude(-119.84 - i * 0.0001).build()));
+
+    context.getBean(UCSBDiningCommonsMenuItemRepository.class).saveAll(rows(rows, i -> UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("dc" + (i % 4)).name("Menu item " + i).station("Station " + (i % 6)).build()));
+
+    context.getBean(UCSBOrganizationRepository.class).saveAll(rows(rows, i -> UCSBOrganization.builder()
+        .orgCode("ORG" + i).orgTranslationShort("Org " + i)
+        .orgTranslation("Student Organization " + i).inactive(i % 7 == 0).build()));
+  }
+}
@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /api/HelpRequests?id= while the connection pool is exhausted: as
+ * many "slow report" threads as the pool has connections each hold one
+ * for holdMillis, and the request threads compete with them for the next
+ * free connection.
+ *
+ * "defaults" is Hikari out of the box (what production ran with before);
+ * "production" applies the spring.datasource.hikari.* settings from
+ * application-production.properties (the pgjdbc data-source-properties
+ * are left out, this runs on H2). The requests' latency percentiles show
+ * how long a request can be stuck waiting, and the ok/unavailable counters
+ * how many got their answer and how many a 503.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 30)
+public class ConnectionPoolBenchmark {
+
+  private static final int POOL_SIZE = 10;
+
+  @Param({ "defaults", "production" })
+  String pool;
+
+  @Param({ "100", "10000" })
+  long holdMillis;
+
+  ConfigurableApplicationContext context;
+  MockMvc mockMvc;
+  DataSource dataSource;
+  long id;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Outcomes {
+    public long ok;
+    public long unavailable;
+  }
+
+  static String[] productionPoolArgs() throws IOException {
+    Properties production = new Properties();
+    try (InputStream in = ConnectionPoolBenchmark.class.getResourceAsStream("/application-production.properties")) {
+      production.load(in);
+    }
+    return production.stringPropertyNames().stream()
+        .filter(name -> name.startsWith("spring.datasource.hikari.") && !name.contains(".data-source-properties."))
+        .map(name -> "--" + name + "=" + production.getProperty(name))
+        .toArray(String[]::new);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    String[] args = pool.equals("production") ? productionPoolArgs() : new String[0];
+    context = BenchmarkApplication.start(100, args);
+    mockMvc = BenchmarkApplication.mockMvc(context);
+    dataSource = context.getBean(DataSource.class);
+    id = context.getBean(HelpRequestRepository.class).findAll().iterator().next().getId();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @Group("exhausted")
+  @GroupThreads(POOL_SIZE)
+  public void slowReport() throws InterruptedException {
+    try (Connection connection = dataSource.getConnection()) {
+      Thread.sleep(holdMillis);
+    } catch (SQLException e) {
+      // timed out waiting for a connection, like the requests can
+    }
+  }
+
+  @Benchmark
+  @Group("exhausted")
+  @GroupThreads(8)
+  public int request(Outcomes outcomes) throws Exception {
+    int status = mockMvc.perform(get("/api/HelpRequests").param("id", String.valueOf(id))
+        .with(user("benchmark").roles("USER")))
+        .andReturn().getResponse().getStatus();
+    if (status == 200) {
+      outcomes.ok++;
+    } else {
+      outcomes.unavailable++;
+    }
+    return status;
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CurrentUserService.getCurrentUser() for a logged in OAuth2 user, with the
+ * per-user cache in use (cached=true) and bypassed on every call (cached=false,
+ * i.e. one findByEmail per request).
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CurrentUserBenchmark {
+
+  @Param({ "true", "false" })
+  boolean cached;
+
+  ConfigurableApplicationContext context;
+  CurrentUserService currentUserService;
+  CurrentUserCache currentUserCache;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(10);
+    currentUserService = context.getBean(CurrentUserService.class);
+    currentUserCache = context.getBean(CurrentUserCache.class);
+
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("email", BenchmarkApplication.USER_EMAIL, "sub", "benchmark", "name", "Benchmark User",
+            "email_verified", true),
+        "email");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  @Benchmark
+  public CurrentUser getCurrentUser() {
+    if (!cached) {
+      currentUserCache.invalidateAll();
+    }
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+
+/**
+ * Deleting one help request: the way DELETE /api/HelpRequests used to
+ * (findById, then delete(), which looks the row up again before deleting
+ * it) against the single DELETE it issues now, both straight against the
+ * repository and through the full MVC stack. Each call deletes a row
+ * inserted just before it.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeleteBenchmark {
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  MockMvc mockMvc;
+  HelpRequestRepository helpRequestRepository;
+  long id;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    mockMvc = BenchmarkApplication.mockMvc(context);
+    helpRequestRepository = context.getBean(HelpRequestRepository.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Setup(Level.Invocation)
+  public void insert() {
+    id = helpRequestRepository.save(HelpRequest.builder()
+        .requesterEmail(BenchmarkApplication.USER_EMAIL).teamId("f23-5pm-1").tableOrBreakoutRoom("table 1")
+        .requestTime(LocalDateTime.now()).explanation("to be deleted").solved(false)
+        .build()).getId();
+  }
+
+  @Benchmark
+  public long loadThenDelete() {
+    helpRequestRepository.delete(helpRequestRepository.findById(id).orElseThrow());
+    return id;
+  }
+
+  @Benchmark
+  public int singleDelete() {
+    return helpRequestRepository.deleteRowById(id);
+  }
+
+  @Benchmark
+  public int singleDeleteThroughMvc() throws Exception {
+    int status = mockMvc.perform(delete("/api/HelpRequests?id=" + id)
+        .with(user("benchmark").roles("ADMIN")).with(csrf()))
+        .andReturn().getResponse().getStatus();
+    if (status != 200) {
+      throw new IllegalStateException("expected 200, got " + status);
+    }
+    return status;
+  }
+}
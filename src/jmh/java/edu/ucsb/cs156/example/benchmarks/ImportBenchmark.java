@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.BulkImportResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsMenuItemImportService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Inserting a batch of new rows: one save per transaction (what a client
+ * calling POST /post per row costs, minus HTTP), saveAll in a single
+ * transaction (JDBC batched now that ids come from pooled sequences), and
+ * the menu item bulk import endpoint's service.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImportBenchmark {
+
+  @Param({ "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  HelpRequestRepository helpRequestRepository;
+  UCSBDiningCommonsMenuItemImportService importService;
+  TransactionTemplate transactionTemplate;
+  JdbcTemplate jdbcTemplate;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(0);
+    helpRequestRepository = context.getBean(HelpRequestRepository.class);
+    importService = context.getBean(UCSBDiningCommonsMenuItemImportService.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+    transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteRows() {
+    jdbcTemplate.update("delete from helprequest");
+    jdbcTemplate.update("delete from ucsbdiningcommonsmenuitems");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private List<HelpRequest> helpRequests() {
+    LocalDateTime start = LocalDateTime.parse("2023-10-02T08:00:00");
+    return IntStream.range(0, rows).mapToObj(i -> HelpRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu").teamId("f23-5pm-4").tableOrBreakoutRoom("table 4")
+        .requestTime(start.plusSeconds(i)).explanation("Help request " + i).solved(false).build())
+        .toList();
+  }
+
+  private List<UCSBDiningCommonsMenuItem> menuItems() {
+    return IntStream.range(0, rows).mapToObj(i -> UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega").name("Menu item " + i).station("Entrees").build())
+        .toList();
+  }
+
+  @Benchmark
+  public int saveEachInOwnTransaction() {
+    List<HelpRequest> requests = helpRequests();
+    requests.forEach(request -> transactionTemplate.executeWithoutResult(status -> helpRequestRepository.save(request)));
+    return requests.size();
+  }
+
+  @Benchmark
+  public int saveAllInOneTransaction() {
+    List<HelpRequest> requests = helpRequests();
+    transactionTemplate.executeWithoutResult(status -> helpRequestRepository.saveAll(requests));
+    return requests.size();
+  }
+
+  @Benchmark
+  public BulkImportResult bulkImportMenuItems() {
+    return importService.importItems(menuItems());
+  }
+}
@@ -0,0 +1,73 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /api/{endpoint}/all through the full MVC stack (security, logging
+ * aspect, repository, Jackson), for every CRUD controller.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListEndpointsBenchmark {
+
+  @Param({ "articles", "HelpRequests", "menuitemreview", "recommendationrequest",
+      "ucsbdates", "ucsbdiningcommons", "ucsbdiningcommonsmenuitems", "ucsborganization" })
+  String endpoint;
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  MockMvc mockMvc;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    mockMvc = BenchmarkApplication.mockMvc(context);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public String allAsJson() throws Exception {
+    return mockMvc.perform(get("/api/" + endpoint + "/all").with(user("benchmark").roles("USER")))
+        .andReturn().getResponse().getContentAsString();
+  }
+
+  @Benchmark
+  public String allAsNdjson() throws Exception {
+    MvcResult started = mockMvc.perform(get("/api/" + endpoint + "/all")
+        .accept("application/x-ndjson").with(user("benchmark").roles("USER")))
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsString();
+  }
+}
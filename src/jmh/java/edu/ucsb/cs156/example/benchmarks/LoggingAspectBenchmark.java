@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost LoggingAspect.logControllers adds to a trivial handler, with the
+ * aspect's logger at INFO (a line is formatted and written to a discarding
+ * appender) and at WARN (nothing is logged). Run with -prof gc to see
+ * allocation per call.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingAspectBenchmark {
+
+  public static class Handler {
+    @GetMapping("/api/benchmark")
+    public int handle() {
+      return 42;
+    }
+  }
+
+  @Param({ "INFO", "WARN" })
+  String level;
+
+  Handler direct;
+  Handler proxied;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern("%d %-5level [%thread] %logger : %msg%n");
+    encoder.start();
+    OutputStreamAppender<ILoggingEvent> discard = new OutputStreamAppender<>();
+    discard.setContext(loggerContext);
+    discard.setEncoder(encoder);
+    discard.setOutputStream(OutputStream.nullOutputStream());
+    discard.start();
+
+    Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    root.detachAndStopAllAppenders();
+    root.addAppender(discard);
+    root.setLevel(ch.qos.logback.classic.Level.WARN);
+    loggerContext.getLogger(LoggingAspect.class).setLevel(ch.qos.logback.classic.Level.toLevel(level));
+
+    direct = new Handler();
+    AspectJProxyFactory factory = new AspectJProxyFactory(direct);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new LoggingAspect());
+    proxied = factory.getProxy();
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/benchmark")));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public int withLoggingAspect() {
+    return proxied.handle();
+  }
+
+  @Benchmark
+  public int withoutLoggingAspect() {
+    return direct.handle();
+  }
+}
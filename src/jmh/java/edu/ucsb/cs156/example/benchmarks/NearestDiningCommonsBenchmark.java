@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * The five dining commons nearest a point: what clients did before (load
+ * every commons and sort by distance) against DiningCommonsLocator.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NearestDiningCommonsBenchmark {
+
+  private static final double LAT = 34.4125;
+  private static final double LON = -119.8475;
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+  DiningCommonsLocator diningCommonsLocator;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    ucsbDiningCommonsRepository = context.getBean(UCSBDiningCommonsRepository.class);
+    diningCommonsLocator = context.getBean(DiningCommonsLocator.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private static double squaredDegrees(UCSBDiningCommons commons) {
+    double dLat = commons.getLatitude() - LAT;
+    double dLon = commons.getLongitude() - LON;
+    return dLat * dLat + dLon * dLon;
+  }
+
+  @Benchmark
+  public List<UCSBDiningCommons> findAllAndSort() {
+    return StreamSupport.stream(ucsbDiningCommonsRepository.findAll().spliterator(), false)
+        .sorted(Comparator.comparingDouble(NearestDiningCommonsBenchmark::squaredDegrees))
+        .limit(5)
+        .toList();
+  }
+
+  @Benchmark
+  public List<NearbyDiningCommons> diningCommonsLocator() {
+    return diningCommonsLocator.nearest(LAT, LON, 5, null);
+  }
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Changing one field of a help request through the full MVC stack: PUT
+ * of the whole row (read it, copy every field, merge, write every column)
+ * against a JSON merge patch of just that field (one versioned UPDATE,
+ * then one read for the response). Each call edits the next row in turn.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PatchBenchmark {
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  MockMvc mockMvc;
+  ObjectMapper mapper;
+  List<HelpRequest> helpRequests;
+  int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    mockMvc = BenchmarkApplication.mockMvc(context);
+    mapper = context.getBean(ObjectMapper.class);
+    helpRequests = new ArrayList<>();
+    context.getBean(HelpRequestRepository.class).findAll().forEach(helpRequests::add);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private HelpRequest nextRow() {
+    HelpRequest row = helpRequests.get(next);
+    next = (next + 1) % helpRequests.size();
+    return row;
+  }
+
+  // a 409 or 404 would be measuring the wrong thing
+  private static int ok(int status) {
+    if (status != 200) {
+      throw new IllegalStateException("expected 200, got " + status);
+    }
+    return status;
+  }
+
+  @Benchmark
+  public int putWholeRow() throws Exception {
+    HelpRequest row = nextRow();
+    row.setExplanation("put " + row.getVersion());
+    row.setVersion(row.getVersion() + 1);
+    return ok(mockMvc.perform(put("/api/HelpRequests?id=" + row.getId())
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(row))
+        .with(user("benchmark").roles("ADMIN")).with(csrf()))
+        .andReturn().getResponse().getStatus());
+  }
+
+  @Benchmark
+  public int patchOneField() throws Exception {
+    HelpRequest row = nextRow();
+    String patch = "{\"version\": %d, \"explanation\": \"patch %d\"}".formatted(row.getVersion(), row.getVersion());
+    row.setVersion(row.getVersion() + 1);
+    return ok(mockMvc.perform(patch("/api/HelpRequests?id=" + row.getId())
+        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+        .content(patch)
+        .with(user("benchmark").roles("ADMIN")).with(csrf()))
+        .andReturn().getResponse().getStatus());
+  }
+}
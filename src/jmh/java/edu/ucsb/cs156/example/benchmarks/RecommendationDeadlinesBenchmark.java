@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.RecommendationDeadlines;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * The overdue recommendation requests, most overdue first: what clients
+ * did before (load every request, keep the open ones whose dateNeeded has
+ * passed, sort) against RecommendationDeadlines. Every seeded dateNeeded
+ * is in the past, so both return the three quarters that are still open.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecommendationDeadlinesBenchmark {
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  RecommendationRequestRepository recommendationRequestRepository;
+  RecommendationDeadlines recommendationDeadlines;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    recommendationRequestRepository = context.getBean(RecommendationRequestRepository.class);
+    recommendationDeadlines = context.getBean(RecommendationDeadlines.class);
+    // seeded after startup, so load them again
+    recommendationDeadlines.refresh();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<RecommendationRequest> findAllAndFilter() {
+    LocalDateTime now = LocalDateTime.now();
+    return StreamSupport.stream(recommendationRequestRepository.findAll().spliterator(), false)
+        .filter(request -> !request.getDone() && request.getDateNeeded().isBefore(now))
+        .sorted(Comparator.comparing(RecommendationRequest::getDateNeeded).thenComparingLong(RecommendationRequest::getId))
+        .toList();
+  }
+
+  @Benchmark
+  public List<RecommendationRequest> recommendationDeadlines() {
+    return recommendationDeadlines.overdue();
+  }
+}
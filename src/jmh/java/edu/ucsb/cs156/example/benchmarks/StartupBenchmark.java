@@ -0,0 +1,198 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching a new JVM to the first response from
+ * /api/currentUser, for the packaged application started the way the
+ * Dockerfile used to (java -jar on the fat jar) and the ways it can now:
+ *
+ * - layered: the jar's layers extracted, our classes in app.jar and the
+ *   classpath in an argument file, as in the Dockerfile
+ * - layeredCds: the same, plus the AppCDS archive from a training run
+ * - layeredCdsLazy: the same, plus spring.main.lazy-initialization
+ *
+ * Uses target/team02-1.0.0.jar, which the package phase of the same mvn
+ * run builds. Each launch's output goes to target/startup/{launch}.log.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+  static final Path JAR = Path.of("target", "team02-1.0.0.jar").toAbsolutePath();
+  static final Path WORK = Path.of("target", "startup").toAbsolutePath();
+  static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+  static final String MAIN_CLASS = "edu.ucsb.cs156.example.ExampleApplication";
+
+  @Param({ "fatJar", "layered", "layeredCds", "layeredCdsLazy" })
+  String launch;
+
+  Path app;
+  int port;
+  Process process;
+  final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    if (!Files.exists(JAR)) {
+      throw new IllegalStateException(JAR + " not found; run the benchmarks through mvn ... integration-test so it is packaged first");
+    }
+    if (!launch.equals("fatJar")) {
+      app = extract(WORK.resolve(launch));
+    }
+    if (launch.startsWith("layeredCds")) {
+      pickPort();
+      process = start(List.of("-XX:ArchiveClassesAtExit=app.jsa"), List.of());
+      firstResponse();
+      stop();
+    }
+  }
+
+  // the Dockerfile's steps: extract the layers, jar our classes, write the classpath in the fat jar's order
+  static Path extract(Path dir) throws IOException, InterruptedException {
+    deleteTree(dir);
+    Path layers = dir.resolve("layers");
+    Files.createDirectories(layers);
+    run(layers, JAVA, "-Djarmode=layertools", "-jar", JAR.toString(), "extract");
+    Path classes = layers.resolve("application/BOOT-INF/classes");
+    run(layers, Path.of(System.getProperty("java.home"), "bin", "jar").toString(),
+        "--create", "--file", "application/app.jar", "-C", classes.toString(), ".");
+
+    Path app = dir.resolve("app");
+    for (String layer : List.of("dependencies", "snapshot-dependencies")) {
+      copyTree(layers.resolve(layer), app);
+    }
+    Files.copy(layers.resolve("application/app.jar"), app.resolve("app.jar"));
+    try (Stream<String> index = Files.lines(layers.resolve("application/BOOT-INF/classpath.idx"))) {
+      String classpath = index.map(line -> line.replaceAll("^- \"(.*)\"$", "$1")).collect(Collectors.joining(":"));
+      Files.writeString(app.resolve("classpath.args"), "-cp app.jar:" + classpath + "\n");
+    }
+    return app;
+  }
+
+  Process start(List<String> jvmArgs, List<String> appArgs) throws IOException {
+    List<String> command = new ArrayList<>(List.of(JAVA));
+    command.addAll(jvmArgs);
+    if (app == null) {
+      command.addAll(List.of("-jar", JAR.toString()));
+    } else {
+      command.addAll(List.of("@classpath.args", MAIN_CLASS));
+    }
+    command.addAll(List.of(
+        "--server.port=" + port,
+        "--spring.main.banner-mode=off",
+        "--spring.datasource.url=jdbc:h2:mem:startup",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--logging.level.root=WARN"));
+    command.addAll(appArgs);
+    Files.createDirectories(WORK);
+    return new ProcessBuilder(command)
+        .directory((app == null ? WORK : app).toFile())
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.appendTo(WORK.resolve(launch + ".log").toFile()))
+        .start();
+  }
+
+  @Setup(Level.Iteration)
+  public void pickPort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+  }
+
+  @Benchmark
+  public int firstCurrentUserResponse() throws Exception {
+    List<String> jvmArgs = launch.startsWith("layeredCds") ? List.of("-XX:SharedArchiveFile=app.jsa") : List.of();
+    List<String> appArgs = launch.equals("layeredCdsLazy") ? List.of("--spring.main.lazy-initialization=true") : List.of();
+    process = start(jvmArgs, appArgs);
+    return firstResponse();
+  }
+
+  // any response will do (anonymous requests get a 403); connection refused means not listening yet
+  int firstResponse() throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/currentUser")).build();
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        throw new IllegalStateException("the application exited; see " + WORK.resolve(launch + ".log"));
+      }
+      try {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+      } catch (IOException e) {
+        Thread.sleep(10);
+      }
+    }
+    throw new IllegalStateException("no response within 5 minutes");
+  }
+
+  @TearDown(Level.Iteration)
+  public void stop() throws InterruptedException {
+    // SIGTERM, so a training run writes its archive on the way out
+    process.destroy();
+    process.waitFor();
+  }
+
+  static void run(Path dir, String... command) throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(command).directory(dir.toFile()).inheritIO().start();
+    if (process.waitFor() != 0) {
+      throw new IllegalStateException(String.join(" ", command) + " failed");
+    }
+  }
+
+  static void copyTree(Path from, Path to) throws IOException {
+    try (Stream<Path> paths = Files.walk(from)) {
+      for (Path path : paths.toList()) {
+        Path target = to.resolve(from.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(target);
+        } else {
+          Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+  }
+
+  static void deleteTree(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The dates of one quarter: what calendar clients did before (load every
+ * date and keep that quarter's) against UCSBDateCalendar, for the current
+ * quarter (from memory) and for a past one (one indexed query). Each of
+ * the four seeded past quarters, and the current one, has rows / 4 dates.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UCSBDateCalendarBenchmark {
+
+  private static final String PAST_QUARTER = "20234";
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  UCSBDateRepository ucsbDateRepository;
+  UCSBDateCalendar ucsbDateCalendar;
+  String currentQuarter;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start(rows);
+    ucsbDateRepository = context.getBean(UCSBDateRepository.class);
+    ucsbDateCalendar = context.getBean(UCSBDateCalendar.class);
+
+    LocalDate today = LocalDate.now();
+    currentQuarter = "%04d%d".formatted(today.getYear(), (today.getMonthValue() - 1) / 3 + 1);
+    ucsbDateRepository.saveAll(IntStream.range(0, rows / 4).mapToObj(i -> UCSBDate.builder()
+        .quarterYYYYQ(currentQuarter).name("Current " + i).localDateTime(today.atStartOfDay().plusHours(i))
+        .build()).toList());
+    // seeded after startup, so load them again
+    ucsbDateCalendar.refresh();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<UCSBDate> findAllAndFilter() {
+    return StreamSupport.stream(ucsbDateRepository.findAll().spliterator(), false)
+        .filter(date -> currentQuarter.equals(date.getQuarterYYYYQ()))
+        .sorted(Comparator.comparing(UCSBDate::getLocalDateTime))
+        .toList();
+  }
+
+  @Benchmark
+  public List<UCSBDate> calendarCurrentQuarter() {
+    return ucsbDateCalendar.quarter(currentQuarter);
+  }
+
+  @Benchmark
+  public List<UCSBDate> calendarPastQuarter() {
+    return ucsbDateCalendar.quarter(PAST_QUARTER);
+  }
+}
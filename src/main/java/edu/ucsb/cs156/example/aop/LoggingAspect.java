@@ -4,15 +4,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs one line per request naming the controller method that handles it.
+ *
+ * This runs for every mapped handler, so the common path does no work
+ * that allocates: the level is checked first, and the "method in class"
+ * part of the message is computed once per handler Method and cached.
+ */
 
 @Slf4j
 @Aspect
@@ -28,25 +39,37 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  /** Cached descriptor for handlers on the stoplist; never logged. */
+  private static final String NOT_LOGGED = "";
+
+  private final Map<Method, String> handlers = new ConcurrentHashMap<>();
 
   @Before(pointcut)
   public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes servletRequestAttributes)) {
+      return;
+    }
+    MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+    String handler = handlers.computeIfAbsent(signature.getMethod(), method -> describe(signature));
+    if (handler == NOT_LOGGED) {
+      return;
+    }
+    HttpServletRequest request = servletRequestAttributes.getRequest();
+    log.info("===== {} {} handled by {}", request.getMethod(), request.getRequestURI(), handler);
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static String describe(MethodSignature signature) {
+    String declaringTypeName = signature.getDeclaringTypeName();
+    if (stoplist.contains(declaringTypeName)) {
+      return NOT_LOGGED;
+    }
+    return signature.getName() + " in " + declaringTypeName;
   }
 }
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Makes server.compression.min-response-size hold for /api JSON responses
+ * too; see JsonContentLengthFilter.
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionConfig {
+
+  @Bean
+  public FilterRegistrationBean<JsonContentLengthFilter> jsonContentLengthFilter(
+      @Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize) {
+    FilterRegistrationBean<JsonContentLengthFilter> registration =
+        new FilterRegistrationBean<>(new JsonContentLengthFilter((int) minResponseSize.toBytes()));
+    registration.addUrlPatterns("/api/*");
+    return registration;
+  }
+}
@@ -0,0 +1,205 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Holds back the first threshold bytes of each JSON response, so one that
+ * turns out smaller goes out with a Content-Length. Tomcat only applies
+ * server.compression.min-response-size when it knows the length, and
+ * Jackson flushes (committing the response without one) after every body,
+ * so without this every JSON response would be gzipped however small.
+ * Anything larger, and anything that isn't JSON (server-sent events,
+ * NDJSON exports), is streamed through as it is written.
+ *
+ * A request that goes async keeps writing after this filter has returned,
+ * so whatever is held then is passed through and the rest streams; so does
+ * everything once a WriteListener is set. reset() and resetBuffer() drop
+ * the held bytes along with the container's buffer.
+ */
+
+public class JsonContentLengthFilter extends OncePerRequestFilter {
+
+  private final int threshold;
+
+  public JsonContentLengthFilter(int threshold) {
+    this.threshold = threshold;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    LengthResponse wrapped = new LengthResponse(response);
+    try {
+      chain.doFilter(request, wrapped);
+    } finally {
+      if (request.isAsyncStarted()) {
+        wrapped.stream();
+      } else {
+        wrapped.finish();
+      }
+    }
+  }
+
+  private final class LengthResponse extends HttpServletResponseWrapper {
+    private HoldingOutputStream out;
+
+    LengthResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (!isJson()) {
+        return super.getOutputStream();
+      }
+      if (out == null) {
+        out = new HoldingOutputStream((HttpServletResponse) getResponse());
+      }
+      return out;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (out == null || out.passedThrough()) {
+        super.flushBuffer();
+      }
+    }
+
+    @Override
+    public void resetBuffer() {
+      super.resetBuffer();
+      if (out != null) {
+        out.discard();
+      }
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      if (out != null) {
+        out.discard();
+      }
+    }
+
+    private boolean isJson() {
+      String contentType = getContentType();
+      return contentType != null && MediaType.APPLICATION_JSON.includes(MediaType.parseMediaType(contentType));
+    }
+
+    void finish() throws IOException {
+      if (out != null) {
+        out.release();
+      }
+    }
+
+    void stream() throws IOException {
+      if (out != null) {
+        out.passThrough();
+      }
+    }
+  }
+
+  private final class HoldingOutputStream extends ServletOutputStream {
+    private final HttpServletResponse response;
+    private ByteArrayOutputStream held = new ByteArrayOutputStream();
+
+    HoldingOutputStream(HttpServletResponse response) {
+      this.response = response;
+    }
+
+    boolean passedThrough() {
+      return held == null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (held != null && held.size() + length <= threshold) {
+        held.write(bytes, offset, length);
+        return;
+      }
+      passThrough();
+      response.getOutputStream().write(bytes, offset, length);
+    }
+
+    // from here on the response is streamed; Tomcat decides on compression when it commits
+    void passThrough() throws IOException {
+      if (held != null) {
+        byte[] bytes = held.toByteArray();
+        held = null;
+        response.getOutputStream().write(bytes);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (held == null) {
+        response.getOutputStream().flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      release();
+    }
+
+    void release() throws IOException {
+      if (held != null) {
+        byte[] bytes = held.toByteArray();
+        held = null;
+        if (!response.isCommitted()) {
+          response.setContentLength(bytes.length);
+        }
+        response.getOutputStream().write(bytes);
+      }
+      response.getOutputStream().flush();
+    }
+
+    // once reset() or resetBuffer() has returned, nothing written before it is sent
+    void discard() {
+      if (held != null) {
+        held.reset();
+      }
+    }
+
+    // while bytes are being held they are written to memory, which never blocks
+    @Override
+    public boolean isReady() {
+      if (held != null) {
+        return true;
+      }
+      try {
+        return response.getOutputStream().isReady();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      try {
+        passThrough();
+        response.getOutputStream().setWriteListener(writeListener);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.metrics.ApiMetrics;
+import edu.ucsb.cs156.example.metrics.ApiMetricsInterceptor;
+import edu.ucsb.cs156.example.metrics.QueryCounter;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Wires the /api metrics in: Hibernate reports every statement to
+ * QueryCounter, ApiMetricsInterceptor records per-request counts, and the
+ * http.server.requests timer gets a controller tag to match.
+ */
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+  @Autowired
+  ApiMetrics apiMetrics;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ApiMetricsInterceptor(apiMetrics)).addPathPatterns("/api/**");
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+  }
+
+  @Bean
+  public WebMvcTagsContributor controllerTagContributor() {
+    return new WebMvcTagsContributor() {
+      @Override
+      public Iterable<Tag> getTags(HttpServletRequest request,
+          HttpServletResponse response, Object handler, Throwable exception) {
+        return Tags.of("controller", ApiMetrics.controller(handler));
+      }
+
+      @Override
+      public Iterable<Tag> getLongRequestTags(HttpServletRequest request,
+          Object handler) {
+        return Tags.of("controller", ApiMetrics.controller(handler));
+      }
+    };
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Read-through caches for the ucsborganization and ucsbdiningcommons
+ * reference tables (app.referenceCache.*), keyed on their TableVersions.
+ */
+
+@Configuration
+public class ReferenceCacheConfig {
+
+  @Value("${app.referenceCache.ttlSeconds:300}")
+  long ttlSeconds;
+
+  @Value("${app.referenceCache.maxEntries:1000}")
+  int maxEntries;
+
+  @Bean
+  public ReferenceTableCache<String, UCSBOrganization> ucsbOrganizationCache(TableVersions tableVersions,
+      MeterRegistry meterRegistry) {
+    return new ReferenceTableCache<>("ucsborganization", tableVersions,
+        org -> org.toBuilder().build(), ttlSeconds, maxEntries, meterRegistry);
+  }
+
+  @Bean
+  public ReferenceTableCache<String, UCSBDiningCommons> ucsbDiningCommonsCache(TableVersions tableVersions,
+      MeterRegistry meterRegistry) {
+    return new ReferenceTableCache<>("ucsbdiningcommons", tableVersions,
+        commons -> commons.toBuilder().build(), ttlSeconds, maxEntries, meterRegistry);
+  }
+}
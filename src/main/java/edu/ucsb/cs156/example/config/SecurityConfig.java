@@ -4,11 +4,8 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -33,8 +30,7 @@ import org.springframework.security.web.util.matcher.RequestMatcher;
 
 
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminEmailIndex;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -43,15 +39,19 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
-
   @Autowired
-  UserRepository userRepository;
+  AdminEmailIndex adminEmailIndex;
+
+  // set when the actuator is served on its own port, one that isn't routed publicly
+  @Value("${management.server.port:#{null}}")
+  Integer managementPort;
+
+  private final RequestMatcher actuator = new AntPathRequestMatcher("/actuator/**");
 
   @Override
   protected void configure(HttpSecurity http) throws Exception {
     http.authorizeRequests(authorize -> authorize
+        .requestMatchers(this::isPublicActuatorRequest).hasRole("ADMIN")
         .anyRequest().permitAll())
         .exceptionHandling(handlingConfigurer -> handlingConfigurer
             .authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
@@ -64,6 +64,11 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .logoutSuccessUrl("/"));
   }
 
+  // the actuator lists every endpoint and its traffic, so on the application's own port only admins may read it
+  boolean isPublicActuatorRequest(HttpServletRequest request) {
+    return actuator.matches(request) && (managementPort == null || request.getLocalPort() != managementPort);
+  }
+
   @Override
   public void configure(WebSecurity web) throws Exception {
     web.ignoring().antMatchers("/h2-console/**");
@@ -100,10 +105,6 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
   }
 
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminEmailIndex.isAdmin(email);
   }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.IdSequenceAligner;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Less work before the first request can be answered.
+ *
+ * springdoc (/v3/api-docs, swagger-ui) is only used when someone opens
+ * the API docs, so its beans are always created on the first such request
+ * instead of at startup. spring.main.lazy-initialization (LAZY_INITIALIZATION
+ * in production) defers every other bean to its first use as well, except
+ * those whose work has to happen at startup.
+ */
+
+@Configuration
+public class StartupConfig {
+
+  static final String API_DOCS_PACKAGE = "org.springdoc.";
+
+  @Bean
+  public static BeanFactoryPostProcessor lazyApiDocs() {
+    return beanFactory -> {
+      for (String name : beanFactory.getBeanDefinitionNames()) {
+        BeanDefinition definition = beanFactory.getBeanDefinition(name);
+        if (declaringClass(definition).startsWith(API_DOCS_PACKAGE)) {
+          definition.setLazyInit(true);
+        }
+      }
+    };
+  }
+
+  // the class of the bean, or for an @Bean method the configuration class that declares it
+  static String declaringClass(BeanDefinition definition) {
+    if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+      return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+    }
+    String className = definition.getBeanClassName();
+    return className == null ? "" : className;
+  }
+
+  @Bean
+  public static LazyInitializationExcludeFilter startupBeans() {
+    // must move the id sequences past existing rows before anything is inserted
+    return LazyInitializationExcludeFilter.forBeanTypes(IdSequenceAligner.class);
+  }
+}
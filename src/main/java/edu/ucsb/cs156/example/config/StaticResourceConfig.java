@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+/**
+ * Serves the React build's hashed assets (/static/js, /static/css,
+ * /static/media) with a one year immutable Cache-Control, preferring the
+ * .br or .gz file written next to each one by frontend/scripts/precompress.js
+ * when the browser accepts it. Everything else in the build, index.html in
+ * particular, keeps the default handler and the no-cache set in
+ * application.properties, so a deploy is picked up on the next page load.
+ */
+
+@Profile("!development")
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+  // CacheControl has no immutable() in this Spring version
+  static final CacheControl IMMUTABLE = new CacheControl() {
+    @Override
+    public String getHeaderValue() {
+      return "max-age=31536000, public, immutable";
+    }
+  };
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler("/static/**")
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(IMMUTABLE)
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver())
+        .addResolver(new PathResourceResolver());
+  }
+}
@@ -1,15 +1,29 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidCursorException;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.errors.InvalidQuarterException;
+import edu.ucsb.cs156.example.errors.InvalidStarsException;
+import edu.ucsb.cs156.example.errors.InvalidUploadException;
+import edu.ucsb.cs156.example.errors.TooManyIdsException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletResponse;
+
 import java.util.Map;
 
 @Slf4j
@@ -33,4 +47,40 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ InvalidCursorException.class, InvalidUploadException.class, InvalidStarsException.class,
+      InvalidQuarterException.class, InvalidPatchException.class, TooManyIdsException.class,
+      InvalidLocationException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  // a merge patch made from an old version, or a row that changed between an update's read and its write
+  @ExceptionHandler({ VersionConflictException.class, ObjectOptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflictException(Throwable e) {
+    String message = e instanceof VersionConflictException
+      ? e.getMessage()
+      : "the row was changed by someone else since it was read; reload it and try again";
+    return Map.of(
+      "type", VersionConflictException.class.getSimpleName(),
+      "message", message
+    );
+  }
+
+  // no pooled connection became free within spring.datasource.hikari.connection-timeout, or the database is down
+  @ExceptionHandler({ CannotCreateTransactionException.class, DataAccessResourceFailureException.class })
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public Object handleDatabaseUnavailableException(Throwable e, HttpServletResponse response) {
+    log.warn("database unavailable: {}", e.getMessage());
+    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    return Map.of(
+      "type", "DatabaseUnavailable",
+      "message", "The database is busy or unavailable; try again shortly"
+    );
+  }
 }
@@ -3,13 +3,18 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +24,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -29,9 +36,20 @@ import java.time.LocalDateTime;
 @Slf4j
 public class ArticlesController extends ApiController {
 
+    public static final int MAX_SEARCH_RESULTS = 100;
+
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    ArticleSearchIndex articleSearchIndex;
+
+    @Autowired
+    TableVersions tableVersions;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -40,6 +58,22 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    @Operation(summary= "Stream all articles as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allArticlesNdjson() {
+        return ndjsonExportService.export(articlesRepository::streamAll);
+    }
+
+    @Operation(summary= "Search articles by the words in their title and explanation, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public List<ArticleSearchHit> searchArticles(
+            @Parameter(name="q", description="words to look for; articles with more of them, or rarer ones, rank higher") @RequestParam String q,
+            @Parameter(name="limit", description="at most this many results, up to " + MAX_SEARCH_RESULTS) @RequestParam(defaultValue = "20") int limit) {
+        return articleSearchIndex.search(q, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
     @Operation(summary= "Create a new article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -64,6 +98,7 @@ public class ArticlesController extends ApiController {
         articles.setDateAdded(dateAdded);
 
         Articles savedArticles = articlesRepository.save(articles);
+        articleSearchIndex.put(savedArticles, tableVersions.bump(ArticleSearchIndex.TABLE, List.of(savedArticles.getId())));
 
         return savedArticles;
     }
@@ -96,6 +131,7 @@ public class ArticlesController extends ApiController {
         articles.setDateAdded(incoming.getDateAdded());
 
         articlesRepository.save(articles);
+        articleSearchIndex.put(articles, tableVersions.bump(ArticleSearchIndex.TABLE, List.of(id)));
 
         return articles;
     }
@@ -105,10 +141,10 @@ public class ArticlesController extends ApiController {
     @DeleteMapping("")
     public Object deleteArticles(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles articles = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        articlesRepository.delete(articles);
+        if (articlesRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
+        articleSearchIndex.remove(id, tableVersions.bump(ArticleSearchIndex.TABLE, List.of(id)));
         return genericMessage("Articles with id %s deleted".formatted(id));
     }
 
@@ -1,37 +1,145 @@
 package edu.ucsb.cs156.example.controllers;
 
-import org.springframework.cloud.gateway.mvc.ProxyExchange;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * In development, passes everything that isn't the backend's own through to
+ * the React dev server.
+ *
+ * The upstream request is made with the JDK HttpClient, which keeps
+ * connections to the dev server open between requests, and neither the
+ * wait for it nor the copying of the body holds a servlet thread: the
+ * response headers arrive through a CompletableFuture and the body is
+ * piped to the client as it is read (StreamingResponseBody), so large
+ * bundles and source maps are never held in memory.
+ */
 
 @Profile("development")
 @RestController
 public class FrontendProxyController {
+
+  // the browser's conditional and content negotiation headers; upstream 304s and gzip pass straight through
+  static final List<String> REQUEST_HEADERS = List.of(
+      HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE,
+      HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+
+  // hop-by-hop headers, and the ones the servlet container sets for itself
+  static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of(
+      "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade",
+      "proxy-authenticate", "proxy-authorization", ":status");
+
+  private final String upstream;
+  private final Duration timeout;
+  private final HttpClient client;
+
+  public FrontendProxyController(
+      @Value("${app.frontendProxy.url:http://localhost:3000}") String upstream,
+      @Value("${app.frontendProxy.timeoutSeconds:30}") long timeoutSeconds) {
+    this.upstream = upstream.replaceAll("/+$", "");
+    this.timeout = Duration.ofSeconds(timeoutSeconds);
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(timeout)
+        .build();
+  }
+
   @GetMapping({"/", "/{path:^(?!api|oauth2|swagger-ui|h2-console).*}/**"})
-  public ResponseEntity<?> proxy(ProxyExchange<byte []> proxy) {
-    String path = proxy.path("/");
-    try {
-      return proxy.uri("http://localhost:3000/" + path).get();
-    } catch (ResourceAccessException e) {
-      if (e.getCause() instanceof ConnectException) {
-        String instructions = """
-                <p>Failed to connect to the frontend server...</p>
-                <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
-                <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
-                <p>Or, you may click to access: </p>
-                <ul>
-                  <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
-                  <li><a href='/h2-console'>/h2-console</a></li>
-                </ul>""";
-
-        return ResponseEntity.ok(instructions);
+  public CompletableFuture<ResponseEntity<StreamingResponseBody>> proxy(HttpServletRequest request) {
+    String query = request.getQueryString();
+    HttpRequest.Builder upstreamRequest = HttpRequest.newBuilder(
+        URI.create(upstream + request.getRequestURI() + (query == null ? "" : "?" + query)))
+        .timeout(timeout)
+        .GET();
+    for (String name : REQUEST_HEADERS) {
+      String value = request.getHeader(name);
+      if (value != null) {
+        upstreamRequest.header(name, value);
+      }
+    }
+
+    return client.sendAsync(upstreamRequest.build(), HttpResponse.BodyHandlers.ofInputStream())
+        .thenApply(FrontendProxyController::relay)
+        .exceptionally(FrontendProxyController::unavailable);
+  }
+
+  private static ResponseEntity<StreamingResponseBody> relay(HttpResponse<InputStream> response) {
+    HttpHeaders headers = new HttpHeaders();
+    response.headers().map().forEach((name, values) -> {
+      if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase())) {
+        headers.addAll(name, values);
+      }
+    });
+    int status = response.statusCode();
+    if (status == HttpStatus.NOT_MODIFIED.value() || status == HttpStatus.NO_CONTENT.value()) {
+      // nothing to read, but closing hands the connection back to the pool
+      closeQuietly(response.body());
+      return ResponseEntity.status(status).headers(headers).build();
+    }
+    StreamingResponseBody body = out -> {
+      try (InputStream in = response.body()) {
+        in.transferTo(out);
       }
-      throw e;
+    };
+    return ResponseEntity.status(status).headers(headers).body(body);
+  }
+
+  private static void closeQuietly(InputStream in) {
+    try {
+      in.close();
+    } catch (IOException e) {
+      // the connection is discarded instead of reused
+    }
+  }
+
+  private static ResponseEntity<StreamingResponseBody> html(HttpStatus status, String html) {
+    return ResponseEntity.status(status)
+        .contentType(MediaType.TEXT_HTML)
+        .body(out -> out.write(html.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static ResponseEntity<StreamingResponseBody> unavailable(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+    if (cause instanceof ConnectException) {
+      String instructions = """
+              <p>Failed to connect to the frontend server...</p>
+              <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
+              <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
+              <p>Or, you may click to access: </p>
+              <ul>
+                <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
+                <li><a href='/h2-console'>/h2-console</a></li>
+              </ul>""";
+
+      return html(HttpStatus.OK, instructions);
+    }
+    if (cause instanceof HttpTimeoutException) {
+      return html(HttpStatus.GATEWAY_TIMEOUT, "<p>The frontend server did not answer in time.</p>");
     }
+    return html(HttpStatus.BAD_GATEWAY, "<p>The frontend server could not be reached: %s</p>".formatted(cause));
   }
 }
@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestEventFeed;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,22 +16,35 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "HelpRequests")
 @RequestMapping("/api/HelpRequests")
@@ -33,16 +52,104 @@ import java.time.LocalDateTime;
 @Slf4j
 
 public class HelpRequestController extends ApiController {
+    public static final int MAX_PAGE_SIZE = 500;
+    static final String TABLE = "helprequest";
+    static final Set<String> PATCHABLE = Set.of(
+        "requesterEmail", "teamId", "tableOrBreakoutRoom", "requestTime", "explanation", "solved");
+
     @Autowired
     HelpRequestRepository helpRequestRepository;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    HelpRequestEventFeed helpRequestEventFeed;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    // Legacy clients still call /all; it returns at most this many rows (lowest ids first)
+    @Value("${app.helpRequests.allLimit:1000}")
+    int allLimit;
    
-    @Operation(summary= "List all help requests")
+    @Operation(summary= "List help requests (legacy; capped at app.helpRequests.allLimit rows, use /page instead; honors If-None-Match)",
+        description= "When rows were left out, a Link header with rel=\"next\" points at the /page request for the rest.")
     @GetMapping("/all")
     @PreAuthorize("hasRole('ROLE_USER')")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
-        return helpRequests;
+    public ResponseEntity<List<HelpRequest>> allHelpRequests(WebRequest request) {
+        // one extra row tells us whether any were left out
+        ResponseEntity<List<HelpRequest>> response = tableVersions.conditionalGet(request, TABLE,
+            () -> helpRequestRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, allLimit + 1)));
+        List<HelpRequest> rows = response.getBody();
+        if (rows == null || rows.size() <= allLimit) {
+            return response;
+        }
+        List<HelpRequest> content = rows.subList(0, allLimit);
+        String next = "/api/HelpRequests/page?cursor=" + KeysetPage.encodeCursor(content.get(allLimit - 1).getId());
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(response.getHeaders())
+            .header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next))
+            .body(content);
+    }
+
+    @Operation(summary= "Stream all help requests as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allHelpRequestsNdjson() {
+        return ndjsonExportService.export(helpRequestRepository::streamAll);
+    }
+
+    @Operation(summary= "Server-sent events for help requests as they are created, updated, solved and deleted")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public SseEmitter helpRequestEvents(
+        @Parameter(hidden = true) @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+        @Parameter(name="lastEventId", description="resume after this event id; EventSource sends it as the Last-Event-ID header when it reconnects") @RequestParam(required = false) String lastEventId) {
+        return helpRequestEventFeed.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
     }
+
+    @Operation(summary= "List help requests one page at a time, ordered by id, optionally filtered")
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public KeysetPage<HelpRequest> pageOfHelpRequests(
+        @Parameter(name="cursor", description="nextCursor from the previous page; takes precedence over afterId") @RequestParam(required = false) String cursor,
+        @Parameter(name="afterId", description="only return help requests with an id greater than this") @RequestParam(defaultValue = "0") long afterId,
+        @Parameter(name="limit", description="page size, at most " + MAX_PAGE_SIZE) @RequestParam(defaultValue = "50") int limit,
+        @Parameter(name="requesterEmail", description="only help requests from this requester") @RequestParam(required = false) String requesterEmail,
+        @Parameter(name="teamId", description="only help requests from this team") @RequestParam(required = false) String teamId,
+        @Parameter(name="unsolvedOnly", description="only help requests that are not solved") @RequestParam(defaultValue = "false") boolean unsolvedOnly,
+        @Parameter(name="requestedFrom", description="only help requests made at or after this time, in iso format") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime requestedFrom,
+        @Parameter(name="requestedTo", description="only help requests made before this time, in iso format") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime requestedTo) {
+
+        long startAfter = (cursor != null) ? KeysetPage.decodeCursor(cursor) : afterId;
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        HelpRequestFilter filter = HelpRequestFilter.builder()
+            .requesterEmail(requesterEmail)
+            .teamId(teamId)
+            .unsolvedOnly(unsolvedOnly)
+            .requestedFrom(requestedFrom)
+            .requestedTo(requestedTo)
+            .build();
+
+        // fetch one extra row so we know whether there is a next page
+        List<HelpRequest> rows = filter.isEmpty()
+            ? helpRequestRepository.findByIdGreaterThanOrderByIdAsc(startAfter, PageRequest.of(0, pageSize + 1))
+            : helpRequestRepository.findByFilter(filter, startAfter, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return KeysetPage.<HelpRequest>builder().content(rows).build();
+        }
+
+        List<HelpRequest> content = rows.subList(0, pageSize);
+        return KeysetPage.<HelpRequest>builder()
+            .content(content)
+            .nextCursor(KeysetPage.encodeCursor(content.get(pageSize - 1).getId()))
+            .build();
+    }
+
     @Operation(summary= "Create a new help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -64,6 +171,8 @@ public class HelpRequestController extends ApiController {
         .solved(solved)
         .build();
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        tableVersions.bump(TABLE);
+        helpRequestEventFeed.created(savedHelpRequest);
         return savedHelpRequest;
 
 }
@@ -83,10 +192,11 @@ public HelpRequest getById(@Parameter(name="id") @RequestParam Long id){
     @DeleteMapping("")
     public Object deleteHelpRequest(
         @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-        .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+        if (helpRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        tableVersions.bump(TABLE);
+        helpRequestEventFeed.deleted(id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
         }
 
@@ -99,6 +209,7 @@ public HelpRequest getById(@Parameter(name="id") @RequestParam Long id){
             @RequestBody @Valid HelpRequest incoming) {
         HelpRequest helpRequest = helpRequestRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        boolean wasSolved = helpRequest.getSolved();
         
         helpRequest.setRequesterEmail(incoming.getRequesterEmail());
         helpRequest.setTeamId(incoming.getTeamId());
@@ -108,9 +219,27 @@ public HelpRequest getById(@Parameter(name="id") @RequestParam Long id){
         helpRequest.setSolved(incoming.getSolved());
         
         helpRequestRepository.save(helpRequest);
+        tableVersions.bump(TABLE);
+        helpRequestEventFeed.updated(helpRequest, wasSolved);
         
         return helpRequest;
     }
+
+    @Operation(summary= "Change some fields of a Help Request (JSON merge patch; must include the version it was made from)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public HelpRequest patchHelpRequest(
+        @Parameter(name="id") @RequestParam Long id,
+        @RequestBody JsonNode patch) {
+        boolean wasSolved = mergePatchService.applyAndGetPrevious(HelpRequest.class, id, patch, PATCHABLE, "solved", Boolean.class);
+        // it may have been deleted since
+        HelpRequest helpRequest = helpRequestRepository.findById(id)
+        .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+
+        tableVersions.bump(TABLE);
+        helpRequestEventFeed.updated(helpRequest, wasSolved);
+        return helpRequest;
+    }
  
 }
 
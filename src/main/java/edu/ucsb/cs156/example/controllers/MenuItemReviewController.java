@@ -1,9 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,6 +17,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
@@ -37,6 +42,12 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    MenuItemRatingService menuItemRatingService;
+
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -45,6 +56,13 @@ public class MenuItemReviewController extends ApiController {
         return reviews;
     }
 
+    @Operation(summary= "Stream all menu item reviews as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allMenuItemReviewsNdjson() {
+        return ndjsonExportService.export(menuItemReviewRepository::streamAll);
+    }
+
     @Operation(summary= "Create a new review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -68,11 +86,26 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setDateReviewed(dateReviewed);
         menuItemReview.setComments(comments);
 
-        MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        MenuItemReview savedMenuItemReview = menuItemRatingService.create(menuItemReview);
 
         return savedMenuItemReview;
     }
 
+    @Operation(summary= "Review statistics (count, total, min, max, star histogram) for every reviewed menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/stats")
+    public Iterable<MenuItemRating> allMenuItemRatings() {
+        return menuItemRatingService.getAll();
+    }
+
+    @Operation(summary= "Review statistics for a single menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stats", params = "itemId")
+    public MenuItemRating getMenuItemRating(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        return menuItemRatingService.get(itemId);
+    }
+
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
@@ -91,18 +124,7 @@ public class MenuItemReviewController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-        
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
-
-        menuItemReviewRepository.save(menuItemReview);
-
-        return menuItemReview;
+        return menuItemRatingService.update(id, incoming);
     }
 
     @Operation(summary= "Delete a MenuItemReview")
@@ -110,10 +132,7 @@ public class MenuItemReviewController extends ApiController {
     @DeleteMapping("")
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReviewRepository.delete(menuItemReview);
+        menuItemRatingService.delete(id);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
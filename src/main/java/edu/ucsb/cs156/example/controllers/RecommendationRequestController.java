@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.RecommendationDeadlines;
+import edu.ucsb.cs156.example.services.TableVersions;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +16,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,10 +26,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequest")
@@ -34,9 +41,20 @@ import java.time.LocalDateTime;
 
 public class RecommendationRequestController extends ApiController{
 
+    public static final int MAX_DUE_DAYS = 365;
+
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    RecommendationDeadlines recommendationDeadlines;
+
+    @Autowired
+    TableVersions tableVersions;
+
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -45,6 +63,28 @@ public class RecommendationRequestController extends ApiController{
         return requests;
     }
 
+    @Operation(summary= "Stream all recommendation requests as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allRecomendationRequestsNdjson() {
+        return ndjsonExportService.export(recommendationRequestRepository::streamAll);
+    }
+
+    @Operation(summary= "Open recommendation requests needed within the next few days, soonest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/due")
+    public List<RecommendationRequest> dueRecommendationRequests(
+            @Parameter(name="days", description="how many days ahead to look, at most " + MAX_DUE_DAYS) @RequestParam(defaultValue = "7") int days) {
+        return recommendationDeadlines.dueWithin(Duration.ofDays(Math.max(0, Math.min(days, MAX_DUE_DAYS))));
+    }
+
+    @Operation(summary= "Open recommendation requests whose dateNeeded has passed, most overdue first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/overdue")
+    public List<RecommendationRequest> overdueRecommendationRequests() {
+        return recommendationDeadlines.overdue();
+    }
+
     @Operation(summary= "Create a new recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -73,6 +113,8 @@ public class RecommendationRequestController extends ApiController{
 
 
         RecommendationRequest savedRecommendationRequest = recommendationRequestRepository.save(recommendationRequest);
+        long version = tableVersions.bump(RecommendationDeadlines.TABLE, List.of(savedRecommendationRequest.getId()));
+        recommendationDeadlines.put(savedRecommendationRequest, version);
 
         return savedRecommendationRequest;
     }
@@ -93,10 +135,10 @@ public class RecommendationRequestController extends ApiController{
       @DeleteMapping("")
       public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequestRepository.delete(recommendationRequest);
+        if (recommendationRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
+        recommendationDeadlines.remove(id, tableVersions.bump(RecommendationDeadlines.TABLE, List.of(id)));
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
       }
 
@@ -118,6 +160,8 @@ public class RecommendationRequestController extends ApiController{
         recommendationRequest.setDone(incoming.getDone());
 
         recommendationRequestRepository.save(recommendationRequest);
+        long version = tableVersions.bump(RecommendationDeadlines.TABLE, List.of(id));
+        recommendationDeadlines.put(recommendationRequest, version);
 
         return recommendationRequest;
     }
@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.TooManyIdsException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,38 +15,87 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
 @RestController
 @Slf4j
 public class UCSBDatesController extends ApiController {
+    public static final int MAX_BULK_DELETE = 1000;
+    static final String TABLE = UCSBDateCalendar.TABLE;
+    static final Set<String> PATCHABLE = Set.of("quarterYYYYQ", "name", "localDateTime");
 
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
-    @Operation(summary= "List all ucsb dates")
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    UCSBDateCalendar ucsbDateCalendar;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    @Operation(summary= "List all ucsb dates (honors If-None-Match)")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<Iterable<UCSBDate>> allUCSBDates(WebRequest request) {
+        return tableVersions.conditionalGet(request, TABLE, ucsbDateRepository::findAll);
+    }
+
+    @Operation(summary= "Stream all ucsb dates as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allUCSBDatesNdjson() {
+        return ndjsonExportService.export(ucsbDateRepository::streamAll);
+    }
+
+    @Operation(summary= "List the dates in one quarter, earliest first (honors If-None-Match)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public ResponseEntity<List<UCSBDate>> quarterUCSBDates(
+            @Parameter(name="quarterYYYYQ", description="e.g. 20234 for Fall 2023") @RequestParam String quarterYYYYQ,
+            WebRequest request) {
+        return tableVersions.conditionalGet(request, TABLE, version -> ucsbDateCalendar.quarter(quarterYYYYQ, version));
+    }
+
+    @Operation(summary= "List the dates in a range of quarters, by quarter and then date (honors If-None-Match)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarters")
+    public ResponseEntity<List<UCSBDate>> quartersUCSBDates(
+            @Parameter(name="first", description="first quarter, e.g. 20231 for Winter 2023") @RequestParam String first,
+            @Parameter(name="last", description="last quarter, inclusive, e.g. 20234 for Fall 2023") @RequestParam String last,
+            WebRequest request) {
+        return tableVersions.conditionalGet(request, TABLE, version -> ucsbDateCalendar.quarters(first, last, version));
     }
 
     @Operation(summary= "Create a new date")
@@ -64,6 +118,7 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        ucsbDateCalendar.put(savedUcsbDate, tableVersions.bump(TABLE, List.of(savedUcsbDate.getId())));
 
         return savedUcsbDate;
     }
@@ -84,13 +139,29 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        ucsbDateCalendar.remove(List.of(id), tableVersions.bump(TABLE, List.of(id)));
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many UCSBDates at once, e.g. those of old quarters; ids that don't exist are skipped")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteUCSBDates(
+            @Parameter(name="ids", description="comma separated, at most " + MAX_BULK_DELETE) @RequestParam List<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_BULK_DELETE) {
+            throw new TooManyIdsException(unique.size(), MAX_BULK_DELETE);
+        }
+        int deleted = unique.isEmpty() ? 0 : ucsbDateRepository.deleteRowsByIds(unique);
+        if (deleted > 0) {
+            ucsbDateCalendar.remove(unique, tableVersions.bump(TABLE, unique));
+        }
+        return genericMessage("%d of %d UCSBDates deleted".formatted(deleted, unique.size()));
+    }
+
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -106,6 +177,23 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
         ucsbDateRepository.save(ucsbDate);
+        ucsbDateCalendar.put(ucsbDate, tableVersions.bump(TABLE, List.of(id)));
+
+        return ucsbDate;
+    }
+
+    @Operation(summary= "Change some fields of a single date (JSON merge patch; must include the version it was made from)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public UCSBDate patchUCSBDate(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody JsonNode patch) {
+        mergePatchService.apply(UCSBDate.class, id, patch, PATCHABLE);
+        // it may have been deleted since
+        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+
+        ucsbDateCalendar.put(ucsbDate, tableVersions.bump(TABLE, List.of(id)));
 
         return ucsbDate;
     }
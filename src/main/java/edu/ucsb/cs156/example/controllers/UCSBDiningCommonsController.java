@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,6 +15,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,26 +25,67 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
+    public static final int MAX_NEAREST = 50;
 
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    DiningCommonsLocator diningCommonsLocator;
+
+    @Autowired
+    ReferenceTableCache<String, UCSBDiningCommons> ucsbDiningCommonsCache;
+
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
     public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
+        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsCache.getAll(ucsbDiningCommonsRepository::findAll);
         return commons;
     }
 
+    @Operation(summary= "Stream all ucsb dining commons as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allCommonssNdjson() {
+        return ndjsonExportService.export(ucsbDiningCommonsRepository::streamAll);
+    }
+
+    @Operation(summary= "List the dining commons nearest to a location, nearest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyDiningCommons> nearestCommons(
+        @Parameter(name="lat", description="latitude in degrees") @RequestParam double lat,
+        @Parameter(name="lon", description="longitude in degrees") @RequestParam double lon,
+        @Parameter(name="k", description="how many commons to return, at most " + MAX_NEAREST) @RequestParam(defaultValue = "1") int k,
+        @Parameter(name="radius", description="only commons within this many meters") @RequestParam(required = false) Double radius) {
+        // written so that NaN fails too
+        if (!(Math.abs(lat) <= 90)) {
+            throw new InvalidLocationException("lat", lat, "between -90 and 90");
+        }
+        if (!(Math.abs(lon) <= 180)) {
+            throw new InvalidLocationException("lon", lon, "between -180 and 180");
+        }
+        if (radius != null && !(radius >= 0)) {
+            throw new InvalidLocationException("radius", radius, "0 or more");
+        }
+        return diningCommonsLocator.nearest(lat, lon, Math.max(1, Math.min(k, MAX_NEAREST)), radius);
+    }
+
     @Operation(summary= "Create a new commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -72,7 +119,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @GetMapping("")
     public UCSBDiningCommons getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        UCSBDiningCommons commons = ucsbDiningCommonsCache.get(code, ucsbDiningCommonsRepository::findById)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         return commons;
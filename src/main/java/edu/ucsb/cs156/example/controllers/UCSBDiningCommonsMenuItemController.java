@@ -2,7 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkImportResult;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsMenuItemImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -12,7 +15,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +31,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 @Tag(name = "UCSBDiningCommonsMenuItems")
@@ -32,6 +43,12 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    UCSBDiningCommonsMenuItemImportService importService;
+
     @Operation(summary= "List all ucsb dining common menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -40,6 +57,13 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return items;
     }
 
+    @Operation(summary= "Stream all ucsb dining common menu items as newline delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allUCSBDiningCommonMenuItemsNdjson() {
+        return ndjsonExportService.export(ucsbDiningCommonsMenuItemRepository::streamAll);
+    }
+
     @Operation(summary= "Create a new ucsb dining common menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -59,6 +83,22 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return savedUcsbDiningCommonsMenuItem;
     }
 
+    @Operation(summary= "Create many ucsb dining common menu items from a JSON array; returns the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult bulkPostUCSBDiningCommonsMenuItems(
+            @RequestBody List<UCSBDiningCommonsMenuItem> items) {
+        return importService.importItems(items);
+    }
+
+    @Operation(summary= "Create many ucsb dining common menu items from an uploaded CSV file with columns diningCommonsCode,name,station; returns the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public BulkImportResult bulkUploadUCSBDiningCommonsMenuItems(
+            @Parameter(name="file") @RequestParam("file") MultipartFile file) throws IOException {
+        return importService.importCsv(new String(file.getBytes(), StandardCharsets.UTF_8));
+    }
+
     @Operation(summary= "Get a single dining common menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
@@ -75,10 +115,9 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(menuItem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -5,6 +5,9 @@ import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
+import edu.ucsb.cs156.example.services.TableVersions;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,6 +15,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,26 +25,48 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
 @RestController
 @Slf4j
 
 public class UCSBOrganizationController extends ApiController {
+
+  static final String TABLE = "ucsborganization";
+
   @Autowired
   UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  ReferenceTableCache<String, UCSBOrganization> ucsbOrganizationCache;
+
+  @Autowired
+  TableVersions tableVersions;
+
   @Operation(summary= "List all ucsb organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
   public Iterable<UCSBOrganization> allOrganizations() {
-      Iterable<UCSBOrganization> orgs = ucsbOrganizationRepository.findAll();
+      Iterable<UCSBOrganization> orgs = ucsbOrganizationCache.getAll(ucsbOrganizationRepository::findAll);
       return orgs;
   }
 
+  @Operation(summary= "Stream all ucsb organizations as newline delimited JSON (Accept: application/x-ndjson)")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> allOrganizationsNdjson() {
+      return ndjsonExportService.export(ucsbOrganizationRepository::streamAll);
+  }
+
 
   @Operation(summary= "Create a new organization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -60,6 +86,7 @@ public class UCSBOrganizationController extends ApiController {
       organizations.setInactive(inactive);
 
       UCSBOrganization savedOrganizations = ucsbOrganizationRepository.save(organizations);
+      tableVersions.bump(TABLE, List.of(orgCode));
 
       return savedOrganizations;
   }
@@ -70,7 +97,7 @@ public class UCSBOrganizationController extends ApiController {
         @GetMapping("")
         public UCSBOrganization getById(
                 @Parameter(name="orgCode") @RequestParam String orgCode) {
-            UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
+            UCSBOrganization org = ucsbOrganizationCache.get(orgCode, ucsbOrganizationRepository::findById)
                     .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
       
             return org;
@@ -93,6 +120,7 @@ public class UCSBOrganizationController extends ApiController {
         org.setInactive(incoming.getInactive());
     
         ucsbOrganizationRepository.save(org);
+        tableVersions.bump(TABLE, List.of(orgCode, org.getOrgCode()));
     
         return org;
         }
@@ -102,10 +130,10 @@ public class UCSBOrganizationController extends ApiController {
     @DeleteMapping("")
     public Object deleteOrg(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(org);
+        if (ucsbOrganizationRepository.deleteRowById(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+        }
+        tableVersions.bump(TABLE, List.of(orgCode));
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
@@ -2,10 +2,15 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,9 +22,16 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "helprequest")
+@Table(indexes = {
+    @Index(name = "helprequest_requester_email_idx", columnList = "requesterEmail"),
+    @Index(name = "helprequest_team_id_idx", columnList = "teamId"),
+    @Index(name = "helprequest_solved_request_time_idx", columnList = "solved, requestTime"),
+    @Index(name = "helprequest_request_time_idx", columnList = "requestTime")
+})
 public class HelpRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequest_seq")
+    @SequenceGenerator(name = "helprequest_seq", sequenceName = "helprequest_seq", allocationSize = 50)
     private long id;
 
     private String requesterEmail;
@@ -29,5 +41,8 @@ public class HelpRequest {
     private String explanation;
     private boolean solved;
 
-
+    // bumped by every update; a merge patch only applies to the version it was made from
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
 }
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Running totals of the MenuItemReviews for one menu item, kept up to date
+ * by MenuItemRatingService as reviews are created, edited and deleted.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemrating")
+public class MenuItemRating {
+  @Id
+  private long itemId;
+
+  private long reviewCount;
+  private long totalStars;
+  private int minStars;
+  private int maxStars;
+
+  private long oneStar;
+  private long twoStars;
+  private long threeStars;
+  private long fourStars;
+  private long fiveStars;
+
+  public Double getAverageStars() {
+    return reviewCount == 0 ? null : (double) totalStars / reviewCount;
+  }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -19,7 +20,8 @@ import lombok.Builder;
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+    @SequenceGenerator(name = "menuitemreview_seq", sequenceName = "menuitemreview_seq", allocationSize = 50)
     private long id;
 
     private long itemId;
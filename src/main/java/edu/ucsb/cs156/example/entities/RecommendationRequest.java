@@ -2,16 +2,20 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,7 +23,8 @@ import lombok.Builder;
 @Entity(name = "recommendationrequest")
 public class RecommendationRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequest_seq")
+    @SequenceGenerator(name = "recommendationrequest_seq", sequenceName = "recommendationrequest_seq", allocationSize = 50)
     private long id;
 
 
@@ -29,4 +34,9 @@ public class RecommendationRequest {
     private LocalDateTime dateRequested;
     private LocalDateTime dateNeeded;
     private boolean done;
+
+    // the dateNeeded a due soon announcement went out for; only RecommendationRequestRepository.claimAnnouncement writes it
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime announcedFor;
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * One row written in one version of a table: see TableVersions. rowKey
+ * is the row's primary key as a string.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "tablechanges")
+@Table(indexes = {
+    @Index(name = "tablechanges_table_name_version_idx", columnList = "tableName, version")
+})
+public class TableChange {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tablechanges_seq")
+  @SequenceGenerator(name = "tablechanges_seq", sequenceName = "tablechanges_seq", allocationSize = 50)
+  private long id;
+
+  private String tableName;
+  private long version;
+  private String rowKey;
+}
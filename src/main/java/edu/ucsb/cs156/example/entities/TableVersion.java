@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * The version of one table, shared by every instance of the app: see
+ * TableVersions. epoch is when the row was created, so versions counted
+ * in a database that has since been recreated never match.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "tableversions")
+public class TableVersion {
+  @Id
+  private String tableName;
+
+  private long epoch;
+  private long version;
+}
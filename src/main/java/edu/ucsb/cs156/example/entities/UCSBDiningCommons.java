@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.entities;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 
 import lombok.Data;
@@ -11,8 +12,9 @@ import lombok.Builder;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Entity(name = "ucsbdiningcommons")
+@EntityListeners(UCSBDiningCommonsEntityListener.class)
 public class UCSBDiningCommons {
   @Id
   private String code;
@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.TableVersions;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import java.util.List;
+
+/**
+ * Keeps DiningCommonsLocator current whenever a ucsbdiningcommons row is
+ * inserted, updated or deleted.
+ *
+ * These callbacks run before the transaction commits, so the change is
+ * passed on only once it has: a rolled back change never reaches the
+ * locator, and the table's version in TableVersions, which other
+ * instances and the ucsbdiningcommons reference cache catch up with, is
+ * bumped only for committed rows. The locator
+ * and TableVersions are injected lazily for the same reason as in
+ * UserEntityListener.
+ */
+
+@Component
+public class UCSBDiningCommonsEntityListener {
+
+  @Lazy
+  @Autowired
+  DiningCommonsLocator diningCommonsLocator;
+
+  @Lazy
+  @Autowired
+  TableVersions tableVersions;
+
+  @PostPersist
+  @PostUpdate
+  public void commonsChanged(UCSBDiningCommons commons) {
+    afterCommit(() -> diningCommonsLocator.commonsChanged(commons, bump(commons)));
+  }
+
+  @PostRemove
+  public void commonsRemoved(UCSBDiningCommons commons) {
+    afterCommit(() -> diningCommonsLocator.commonsRemoved(commons, bump(commons)));
+  }
+
+  // in a transaction of its own; the one that made the change has committed by now
+  private long bump(UCSBDiningCommons commons) {
+    return tableVersions.bump(DiningCommonsLocator.TABLE, List.of(commons.getCode()));
+  }
+
+  private static void afterCommit(Runnable change) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      change.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        change.run();
+      }
+    });
+  }
+}
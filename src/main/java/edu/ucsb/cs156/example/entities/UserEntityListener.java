@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.services.AdminEmailIndex;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps in-memory views of the users table current: drops cached copies
+ * of a User and updates the admin index whenever its row is inserted,
+ * updated or deleted (e.g. when the admin flag is turned on or off).
+ *
+ * These callbacks run before the transaction commits, so a request that
+ * misses the cache in between would cache the old row again; the cached
+ * copy is dropped a second time once the change has committed.
+ *
+ * Hibernate obtains this listener from the Spring context while the
+ * EntityManagerFactory is still being built. AdminEmailIndex needs
+ * UserRepository, which needs that factory, so the dependencies are
+ * injected as lazy proxies; otherwise the cycle makes Hibernate fall back
+ * to an uninjected instance.
+ */
+
+@Component
+public class UserEntityListener {
+
+  @Lazy
+  @Autowired
+  CurrentUserCache currentUserCache;
+
+  @Lazy
+  @Autowired
+  AdminEmailIndex adminEmailIndex;
+
+  @PostPersist
+  @PostUpdate
+  public void userChanged(User user) {
+    invalidateCachedUser(user.getEmail());
+    adminEmailIndex.userChanged(user);
+  }
+
+  @PostRemove
+  public void userRemoved(User user) {
+    invalidateCachedUser(user.getEmail());
+    adminEmailIndex.userRemoved(user);
+  }
+
+  private void invalidateCachedUser(String email) {
+    currentUserCache.invalidate(email);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          currentUserCache.invalidate(email);
+        }
+      });
+    }
+  }
+}
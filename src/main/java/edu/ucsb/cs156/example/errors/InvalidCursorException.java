@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidCursorException extends RuntimeException {
+  public InvalidCursorException(String cursor) {
+    super("cursor %s is not valid".formatted(cursor));
+  }
+}
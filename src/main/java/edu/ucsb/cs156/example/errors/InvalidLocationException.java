@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidLocationException extends RuntimeException {
+  public InvalidLocationException(String name, double value, String range) {
+    super("%s must be %s, not %s".formatted(name, range, value));
+  }
+}
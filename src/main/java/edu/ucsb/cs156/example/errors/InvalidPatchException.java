@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidPatchException extends RuntimeException {
+  public InvalidPatchException(String problem) {
+    super("invalid merge patch: %s".formatted(problem));
+  }
+}
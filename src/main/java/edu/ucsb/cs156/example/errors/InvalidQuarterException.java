@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidQuarterException extends RuntimeException {
+  public InvalidQuarterException(String quarterYYYYQ) {
+    super("quarter %s is not valid; expected YYYYQ, e.g. 20234 for Fall 2023".formatted(quarterYYYYQ));
+  }
+}
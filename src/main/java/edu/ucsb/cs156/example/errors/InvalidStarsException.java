@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidStarsException extends RuntimeException {
+  public InvalidStarsException(int stars) {
+    super("stars must be between 1 and 5, not %d".formatted(stars));
+  }
+}
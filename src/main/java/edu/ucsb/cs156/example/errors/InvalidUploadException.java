@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidUploadException extends RuntimeException {
+  public InvalidUploadException(String reason) {
+    super("upload is not valid: %s".formatted(reason));
+  }
+}
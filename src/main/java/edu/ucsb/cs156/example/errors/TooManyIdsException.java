@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class TooManyIdsException extends RuntimeException {
+  public TooManyIdsException(int count, int max) {
+    super("%d ids were sent; at most %d may be sent at once".formatted(count, max));
+  }
+}
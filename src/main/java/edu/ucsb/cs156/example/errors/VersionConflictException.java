@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class VersionConflictException extends RuntimeException {
+  public VersionConflictException(Class<?> entityType, Object id, long expectedVersion, long currentVersion) {
+    super("%s with id %s has changed since version %d (it is now version %d); reload it and try again"
+      .formatted(entityType.getSimpleName(), id.toString(), expectedVersion, currentVersion));
+  }
+}
@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.metrics;
+
+import edu.ucsb.cs156.example.models.KeysetPage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Per-request counters for /api endpoints, published next to Spring
+ * Boot's http.server.requests timer and tagged the same way
+ * (controller, method, outcome):
+ *
+ * <ul>
+ * <li>api.db.queries: SQL statements run while handling the request</li>
+ * <li>api.rows.serialized: entities written to the response body</li>
+ * </ul>
+ *
+ * Counts are accumulated in request attributes, so work done on another
+ * thread (e.g. a streamed NDJSON body) is included as long as it reports
+ * in before the request completes.
+ */
+
+@Component
+public class ApiMetrics {
+  static final String QUERIES_ATTRIBUTE = ApiMetrics.class.getName() + ".queries";
+  static final String ROWS_ATTRIBUTE = ApiMetrics.class.getName() + ".rows";
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @Autowired
+  QueryCounter queryCounter;
+
+  public static String controller(Object handler) {
+    return handler instanceof HandlerMethod handlerMethod ? handlerMethod.getBeanType().getSimpleName() : "none";
+  }
+
+  public static long rowsIn(Object body) {
+    if (body == null || body instanceof Map) {
+      return 0;
+    }
+    if (body instanceof KeysetPage<?> page) {
+      return page.getContent().size();
+    }
+    if (body instanceof Collection<?> collection) {
+      return collection.size();
+    }
+    return 1;
+  }
+
+  /** Starts counting queries on the current thread. */
+  public void startCounting() {
+    queryCounter.reset();
+  }
+
+  /** Adds the queries counted on the current thread since startCounting() to the request. */
+  public void stopCounting(HttpServletRequest request) {
+    add(request, QUERIES_ATTRIBUTE, queryCounter.get());
+  }
+
+  public void addRows(HttpServletRequest request, long rows) {
+    add(request, ROWS_ATTRIBUTE, rows);
+  }
+
+  public void record(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    Tags tags = Tags.of(
+        "controller", controller(handler),
+        "method", request.getMethod(),
+        "outcome", Outcome.forStatus(response.getStatus()).name());
+    DistributionSummary.builder("api.db.queries")
+        .baseUnit("queries")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(get(request, QUERIES_ATTRIBUTE));
+    DistributionSummary.builder("api.rows.serialized")
+        .baseUnit("rows")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(get(request, ROWS_ATTRIBUTE));
+  }
+
+  private static long get(HttpServletRequest request, String attribute) {
+    Object value = request.getAttribute(attribute);
+    return value == null ? 0 : (long) value;
+  }
+
+  private static void add(HttpServletRequest request, String attribute, long amount) {
+    if (request != null) {
+      request.setAttribute(attribute, get(request, attribute) + amount);
+    }
+  }
+}
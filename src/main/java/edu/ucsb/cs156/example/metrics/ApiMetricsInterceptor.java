@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the queries run by each /api handler and records ApiMetrics when
+ * the request completes. For async requests the first dispatch only hands
+ * its count over; the metrics are recorded after the async dispatch.
+ */
+
+public class ApiMetricsInterceptor implements AsyncHandlerInterceptor {
+
+  private final ApiMetrics apiMetrics;
+
+  public ApiMetricsInterceptor(ApiMetrics apiMetrics) {
+    this.apiMetrics = apiMetrics;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    apiMetrics.startCounting();
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    apiMetrics.stopCounting(request);
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    apiMetrics.stopCounting(request);
+    apiMetrics.record(request, response, handler);
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ *
+ * Registered as Hibernate's StatementInspector (see MetricsConfig); callers
+ * reset() at the start of a unit of work and read get() at the end.
+ */
+
+@Component
+public class QueryCounter implements StatementInspector {
+
+  private static final ThreadLocal<long[]> count = ThreadLocal.withInitial(() -> new long[1]);
+
+  @Override
+  public String inspect(String sql) {
+    count.get()[0]++;
+    return sql;
+  }
+
+  public void reset() {
+    count.get()[0] = 0;
+  }
+
+  public long get() {
+    return count.get()[0];
+  }
+}
@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Reports how many rows each @ResponseBody return value contains to
+ * ApiMetrics, just before it is serialized.
+ */
+
+@ControllerAdvice
+public class RowCountAdvice implements ResponseBodyAdvice<Object> {
+
+  @Autowired
+  ApiMetrics apiMetrics;
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+      Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+      ServerHttpResponse response) {
+    if (request instanceof ServletServerHttpRequest servletRequest) {
+      apiMetrics.addRows(servletRequest.getServletRequest(), ApiMetrics.rowsIn(body));
+    }
+    return body;
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Outcome of one row of a bulk create: the id it was saved with, or why
+ * it was rejected. Rows are numbered from 1 in the order they were sent
+ * (for CSV, not counting the header line).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkRowResult {
+  private int row;
+  private String status;
+  private Long id;
+  private String message;
+
+  public static BulkRowResult created(int row, long id) {
+    return BulkRowResult.builder().row(row).status("created").id(id).build();
+  }
+
+  public static BulkRowResult rejected(int row, String message) {
+    return BulkRowResult.builder().row(row).status("rejected").message(message).build();
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class HelpRequestEvent {
+  public static final String CREATE = "create";
+  public static final String UPDATE = "update";
+  public static final String SOLVE = "solve";
+  public static final String DELETE = "delete";
+  // the client missed events that can no longer be replayed and should reload
+  public static final String RESET = "reset";
+
+  private String type;
+  private Long helpRequestId;
+  // null for delete and reset
+  private HelpRequest helpRequest;
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional conditions on a page of help requests; null fields (and
+ * unsolvedOnly=false) do not restrict the result. requestedFrom is
+ * inclusive and requestedTo is exclusive.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class HelpRequestFilter {
+  private String requesterEmail;
+  private String teamId;
+  private boolean unsolvedOnly;
+  private LocalDateTime requestedFrom;
+  private LocalDateTime requestedTo;
+
+  public boolean isEmpty() {
+    return requesterEmail == null && teamId == null && !unsolvedOnly
+        && requestedFrom == null && requestedTo == null;
+  }
+}
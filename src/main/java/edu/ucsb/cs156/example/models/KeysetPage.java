@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.errors.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of rows ordered by id, plus an opaque cursor for the next page
+ * (null when there are no more rows).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  private List<T> content;
+  private String nextCursor;
+
+  public static String encodeCursor(long lastId) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static long decodeCursor(String cursor) {
+    try {
+      byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+      return Long.parseLong(new String(decoded, StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException is a subclass of IllegalArgumentException
+      throw new InvalidCursorException(cursor);
+    }
+  }
+}
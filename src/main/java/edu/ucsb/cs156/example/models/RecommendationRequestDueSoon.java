@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Published as an application event when an open recommendation request
+ * comes within app.recommendationRequests.dueSoonHours of its dateNeeded;
+ * see RecommendationDeadlines.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RecommendationRequestDueSoon {
+  private RecommendationRequest recommendationRequest;
+}
@@ -2,12 +2,37 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long>, HelpRequestRepositoryCustom {
 
     Iterable<HelpRequest> findAllByRequesterEmail(String requesterEmail);
-    
+
+    List<HelpRequest> findByIdGreaterThanOrderByIdAsc(long afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select h from helprequest h")
+    Stream<HelpRequest> streamAll();
+
+    // one DELETE; delete(findById(id)) reads the row, then reads it again before deleting it.
+    // Returns the number of rows deleted, 0 or 1.
+    @Modifying
+    @Transactional
+    @Query("delete from helprequest h where h.id = :id")
+    int deleteRowById(@Param("id") long id);
 }
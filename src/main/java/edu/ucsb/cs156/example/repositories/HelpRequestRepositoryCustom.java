@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+
+import java.util.List;
+
+public interface HelpRequestRepositoryCustom {
+    /**
+     * Help requests matching every condition in the filter with an id
+     * greater than afterId, ordered by id, at most limit rows.
+     */
+    List<HelpRequest> findByFilter(HelpRequestFilter filter, long afterId, int limit);
+}
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only the conditions that are set go into the where clause, so each
+// combination gets a plain predicate the database can match to an index
+public class HelpRequestRepositoryImpl implements HelpRequestRepositoryCustom {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public List<HelpRequest> findByFilter(HelpRequestFilter filter, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<HelpRequest> query = cb.createQuery(HelpRequest.class);
+        Root<HelpRequest> h = query.from(HelpRequest.class);
+        // bound rather than inlined, so every page shares one statement
+        ParameterExpression<Long> after = cb.parameter(Long.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (afterId > 0) {
+            where.add(cb.greaterThan(h.get("id"), after));
+        }
+        if (filter.getRequesterEmail() != null) {
+            where.add(cb.equal(h.get("requesterEmail"), filter.getRequesterEmail()));
+        }
+        if (filter.getTeamId() != null) {
+            where.add(cb.equal(h.get("teamId"), filter.getTeamId()));
+        }
+        if (filter.getUnsolvedOnly()) {
+            where.add(cb.isFalse(h.get("solved")));
+        }
+        if (filter.getRequestedFrom() != null) {
+            where.add(cb.greaterThanOrEqualTo(h.<LocalDateTime>get("requestTime"), filter.getRequestedFrom()));
+        }
+        if (filter.getRequestedTo() != null) {
+            where.add(cb.lessThan(h.<LocalDateTime>get("requestTime"), filter.getRequestedTo()));
+        }
+
+        query.select(h).where(where.toArray(new Predicate[0])).orderBy(cb.asc(h.get("id")));
+        TypedQuery<HelpRequest> typedQuery = entityManager.createQuery(query).setMaxResults(limit);
+        if (afterId > 0) {
+            typedQuery.setParameter(after, afterId);
+        }
+        return typedQuery.getResultList();
+    }
+}
@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+
+import java.util.Optional;
+
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from menuitemrating r where r.itemId = :itemId")
+    Optional<MenuItemRating> findForUpdate(long itemId);
+
+    // leaves out the empty rows of first reviews that were rolled back
+    Iterable<MenuItemRating> findAllByReviewCountGreaterThan(long reviewCount);
+
+    // an empty rating, so the first review of an item has a row to lock; a plain insert, unlike save(),
+    // so it fails if another review created the row first, in a transaction of its own so that failure
+    // leaves the caller's transaction usable
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "insert into menuitemrating (item_id, review_count, total_stars, min_stars, max_stars,"
+        + " one_star, two_stars, three_stars, four_stars, five_stars) values (:itemId, 0, 0, 0, 0, 0, 0, 0, 0, 0)",
+        nativeQuery = true)
+    int create(@Param("itemId") long itemId);
+}
@@ -1,10 +1,50 @@
 package edu.ucsb.cs156.example.repositories;
 
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select m from menuitemreview m")
+    Stream<MenuItemReview> streamAll();
+
+    // held until the transaction ends, so concurrent edits and deletes of one review take turns
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from menuitemreview m where m.id = :id")
+    Optional<MenuItemReview> findForUpdate(@Param("id") long id);
+
+    // returns the number of rows deleted, 0 or 1
+    @Modifying
+    @Query("delete from menuitemreview m where m.id = :id")
+    int deleteRowById(@Param("id") long id);
+
+    @Query("""
+        select new edu.ucsb.cs156.example.entities.MenuItemRating(
+          m.itemId, count(m), sum(m.stars), min(m.stars), max(m.stars),
+          sum(case when m.stars = 1 then 1 else 0 end),
+          sum(case when m.stars = 2 then 1 else 0 end),
+          sum(case when m.stars = 3 then 1 else 0 end),
+          sum(case when m.stars = 4 then 1 else 0 end),
+          sum(case when m.stars = 5 then 1 else 0 end))
+        from menuitemreview m where m.stars between 1 and 5 group by m.itemId
+        """)
+    List<MenuItemRating> computeRatings();
+}
@@ -2,10 +2,36 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
  @Repository
  public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select r from recommendationrequest r")
+    Stream<RecommendationRequest> streamAll();
+
+    @Modifying
+    @Transactional
+    @Query("delete from recommendationrequest r where r.id = :id")
+    int deleteRowById(@Param("id") long id);
 
+    // 1 if the caller is the one to announce this deadline; 0 if another instance already has, or it has changed since
+    @Modifying
+    @Transactional
+    @Query("update recommendationrequest r set r.announcedFor = r.dateNeeded where r.id = :id and r.dateNeeded = :dateNeeded"
+        + " and r.done = false and (r.announcedFor is null or r.announcedFor <> r.dateNeeded)")
+    int claimAnnouncement(@Param("id") long id, @Param("dateNeeded") LocalDateTime dateNeeded);
  }
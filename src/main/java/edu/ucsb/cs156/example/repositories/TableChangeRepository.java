@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.TableChange;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface TableChangeRepository extends CrudRepository<TableChange, Long> {
+  @Query("select distinct c.rowKey from tablechanges c where c.tableName = :tableName"
+      + " and c.version > :after and c.version <= :upTo")
+  List<String> findRowKeys(@Param("tableName") String tableName, @Param("after") long after, @Param("upTo") long upTo);
+
+  @Modifying
+  @Transactional
+  @Query("delete from tablechanges c where c.tableName = :tableName and c.version <= :upTo")
+  int deleteUpTo(@Param("tableName") String tableName, @Param("upTo") long upTo);
+}
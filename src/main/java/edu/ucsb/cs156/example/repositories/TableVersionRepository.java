@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+
+import java.util.Optional;
+
+@Repository
+public interface TableVersionRepository extends CrudRepository<TableVersion, String> {
+  // returns 0 if the table has no row yet
+  @Modifying
+  @Transactional
+  @Query("update tableversions t set t.version = t.version + 1 where t.tableName = :tableName")
+  int increment(@Param("tableName") String tableName);
+
+  // a plain insert, unlike save(), so it fails if another instance created the row first;
+  // in a transaction of its own, so that failure leaves the caller's transaction usable
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query(value = "insert into tableversions (table_name, epoch, version) values (:tableName, :epoch, 0)", nativeQuery = true)
+  int create(@Param("tableName") String tableName, @Param("epoch") long epoch);
+
+  @Query("select t.version from tableversions t where t.tableName = :tableName")
+  Optional<Long> findVersion(@Param("tableName") String tableName);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select t from tableversions t where t.tableName = :tableName")
+  Optional<TableVersion> findForUpdate(@Param("tableName") String tableName);
+}
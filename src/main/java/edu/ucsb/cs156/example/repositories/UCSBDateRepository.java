@@ -2,11 +2,43 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 
 @Repository
 public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  // walks ucsbdates_quarter_local_date_time_idx in order
+  @Query("select u from ucsbdates u where u.quarterYYYYQ between :first and :last order by u.quarterYYYYQ, u.localDateTime, u.id")
+  List<UCSBDate> findQuarters(@Param("first") String first, @Param("last") String last);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("select u from ucsbdates u")
+  Stream<UCSBDate> streamAll();
+
+  @Modifying
+  @Transactional
+  @Query("delete from ucsbdates u where u.id = :id")
+  int deleteRowById(@Param("id") long id);
+
+  // ids that don't exist are skipped; returns the number of rows deleted
+  @Modifying
+  @Transactional
+  @Query("delete from ucsbdates u where u.id in :ids")
+  int deleteRowsByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory answer to "is this email an admin?", used when mapping
+ * authorities at login so that logging in does not touch the database.
+ *
+ * An email is an admin if it is listed in app.admin.emails, or if its
+ * users row has admin set. The second set is loaded at startup and kept
+ * current by UserEntityListener whenever this instance changes a users
+ * row. Changes made elsewhere (another instance, or SQL through the h2
+ * console) aren't seen by the listener, so a login that finds the set
+ * older than app.admin.maxAgeSeconds reloads it first: an admin flag
+ * granted or revoked anywhere takes effect at logins after at most that
+ * long.
+ */
+
+@Slf4j
+@Service("adminEmailIndex")
+public class AdminEmailIndex {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  List<String> adminEmails = new ArrayList<String>();
+
+  @Value("${app.admin.maxAgeSeconds:30}")
+  long maxAgeSeconds;
+
+  Clock clock = Clock.systemUTC();
+
+  private Set<String> configuredAdmins = Set.of();
+  private volatile Instant loadedAt = Instant.MIN;
+
+  private final Set<String> databaseAdmins = ConcurrentHashMap.newKeySet();
+
+  @PostConstruct
+  public synchronized void refresh() {
+    loadedAt = clock.instant();
+    configuredAdmins = Set.copyOf(adminEmails);
+    Set<String> loaded = ConcurrentHashMap.newKeySet();
+    userRepository.findAllByAdminTrue().forEach(u -> loaded.add(u.getEmail()));
+    databaseAdmins.retainAll(loaded);
+    databaseAdmins.addAll(loaded);
+    log.info("admin index loaded: {} configured, {} from users table", configuredAdmins.size(), databaseAdmins.size());
+  }
+
+  public boolean isAdmin(String email) {
+    if (configuredAdmins.contains(email)) {
+      return true;
+    }
+    if (isStale()) {
+      synchronized (this) {
+        // another login may have reloaded it while this one waited
+        if (isStale()) {
+          refresh();
+        }
+      }
+    }
+    return databaseAdmins.contains(email);
+  }
+
+  private boolean isStale() {
+    return !clock.instant().isBefore(loadedAt.plusSeconds(maxAgeSeconds));
+  }
+
+  public void userChanged(User user) {
+    if (user.getAdmin()) {
+      databaseAdmins.add(user.getEmail());
+    } else {
+      databaseAdmins.remove(user.getEmail());
+    }
+  }
+
+  public void userRemoved(User user) {
+    databaseAdmins.remove(user.getEmail());
+  }
+}
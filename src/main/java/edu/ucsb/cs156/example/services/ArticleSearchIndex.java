@@ -0,0 +1,217 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keyword search over the title and explanation of every article, answered
+ * from an InvertedIndex in memory instead of the database.
+ *
+ * The index is loaded at startup, with the table's version in
+ * TableVersions. ArticlesController reports every article it saves or
+ * deletes, along with the version its bump made, and only that article's
+ * entries change; when that is the version right after the one held,
+ * nothing else was written in between and the held version moves up to
+ * it. Before each search the table's version is read, and if another
+ * instance has written since, the articles it changed are read back by
+ * primary key (all of them only if those changes are no longer logged).
+ * A word in the title counts TITLE_WEIGHT times, so an article about a
+ * topic ranks above one that only mentions it.
+ */
+
+@Slf4j
+@Service
+public class ArticleSearchIndex {
+
+  public static final String TABLE = "articles";
+
+  static final int TITLE_WEIGHT = 2;
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private InvertedIndex index = new InvertedIndex();
+
+  private Map<Long, Articles> articles = new HashMap<>();
+
+  // the table version the index holds every change up to; guarded by lock
+  private long loadedVersion;
+
+  @PostConstruct
+  public void refresh() {
+    load(tableVersions.version(TABLE));
+  }
+
+  // version was read before the load starts, so a write that lands during it is caught up with again
+  private void load(long version) {
+    InvertedIndex loaded = new InvertedIndex();
+    Map<Long, Articles> copies = new HashMap<>();
+    for (Articles article : articlesRepository.findAll()) {
+      copies.put(article.getId(), copy(article));
+      loaded.put(article.getId(), termFrequencies(article));
+    }
+    lock.writeLock().lock();
+    try {
+      index = loaded;
+      articles = copies;
+      loadedVersion = version;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("article search index loaded: {} articles, {} terms", loaded.size(), loaded.terms());
+  }
+
+  /**
+   * Up to limit articles containing any word of the query, best match first.
+   */
+  public List<ArticleSearchHit> search(String query, int limit) {
+    List<String> terms = tokens(query);
+    catchUp();
+    lock.readLock().lock();
+    try {
+      return index.search(terms, limit).stream()
+          .map(hit -> new ArticleSearchHit(copy(articles.get(hit.id())), hit.score()))
+          .toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // the rows are read without holding the lock, so searches go on meanwhile
+  private void catchUp() {
+    long version = tableVersions.version(TABLE);
+    long held;
+    lock.readLock().lock();
+    try {
+      held = loadedVersion;
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (version <= held) {
+      return;
+    }
+    Optional<List<String>> changed = tableVersions.changedKeys(TABLE, held, version);
+    if (changed.isEmpty()) {
+      load(version);
+      return;
+    }
+    List<Long> ids = changed.get().stream().map(Long::valueOf).toList();
+    List<Articles> rows = new ArrayList<>();
+    articlesRepository.findAllById(ids).forEach(article -> rows.add(copy(article)));
+    lock.writeLock().lock();
+    try {
+      if (version <= loadedVersion) {
+        // another search caught up meanwhile
+        return;
+      }
+      ids.forEach(this::drop);
+      rows.forEach(article -> apply(article, termFrequencies(article)));
+      loadedVersion = version;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** A save through this instance, whose bump made version. */
+  public void put(Articles article, long version) {
+    Articles copy = copy(article);
+    Map<String, Integer> termFrequencies = termFrequencies(copy);
+    lock.writeLock().lock();
+    try {
+      if (version > loadedVersion) {
+        apply(copy, termFrequencies);
+        advanceTo(version);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** A delete through this instance, whose bump made version. */
+  public void remove(long id, long version) {
+    lock.writeLock().lock();
+    try {
+      if (version > loadedVersion) {
+        drop(id);
+        advanceTo(version);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // caller holds the write lock; otherwise another instance wrote in between, and the next search reads back both changes
+  private void advanceTo(long version) {
+    if (version == loadedVersion + 1) {
+      loadedVersion = version;
+    }
+  }
+
+  // caller holds the write lock
+  private void apply(Articles copy, Map<String, Integer> termFrequencies) {
+    articles.put(copy.getId(), copy);
+    index.put(copy.getId(), termFrequencies);
+  }
+
+  // caller holds the write lock
+  private void drop(long id) {
+    articles.remove(id);
+    index.remove(id);
+  }
+
+  static Map<String, Integer> termFrequencies(Articles article) {
+    Map<String, Integer> termFrequencies = new HashMap<>();
+    tokens(article.getTitle()).forEach(term -> termFrequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+    tokens(article.getExplanation()).forEach(term -> termFrequencies.merge(term, 1, Integer::sum));
+    return termFrequencies;
+  }
+
+  // lower-cased runs of letters and digits
+  static List<String> tokens(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text != null) {
+      for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+        if (!token.isEmpty()) {
+          tokens.add(token);
+        }
+      }
+    }
+    return tokens;
+  }
+
+  // the entity passed in may still be modified by its caller, and hits go out to be serialized
+  private static Articles copy(Articles article) {
+    return Articles.builder()
+        .id(article.getId())
+        .title(article.getTitle())
+        .url(article.getUrl())
+        .explanation(article.getExplanation())
+        .email(article.getEmail())
+        .dateAdded(article.getDateAdded())
+        .build();
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated fields, optionally enclosed in
+ * double quotes (which may contain commas, line breaks and "" for a
+ * literal quote). Blank lines are skipped.
+ */
+
+final class Csv {
+
+  private Csv() {
+  }
+
+  static List<List<String>> parse(String text) {
+    List<List<String>> lines = new ArrayList<>();
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean blankLine = true;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+        blankLine = false;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+        blankLine = false;
+      } else if (c == '\n' || c == '\r') {
+        if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+          i++;
+        }
+        endLine(lines, fields, field, blankLine);
+        fields = new ArrayList<>();
+        blankLine = true;
+      } else {
+        field.append(c);
+        blankLine = false;
+      }
+    }
+    endLine(lines, fields, field, blankLine);
+    return lines;
+  }
+
+  private static void endLine(List<List<String>> lines, List<String> fields, StringBuilder field, boolean blankLine) {
+    if (!blankLine) {
+      fields.add(field.toString());
+      lines.add(fields);
+    }
+    field.setLength(0);
+  }
+}
@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers the User row for each logged in email for a short time
+ * (app.currentUser.cacheTtlSeconds) so that resolving the current user
+ * does not cost a database round trip on every request.
+ *
+ * Entries are dropped as soon as the users row changes, and again once
+ * that change commits; see UserEntityListener. A User loaded while an
+ * invalidation happened may be the old row, so it is returned to its
+ * caller but not kept: invalidations bump a generation counter, and a
+ * load is only stored if the counter has not moved since it began.
+ */
+
+@Slf4j
+@Service("currentUserCache")
+public class CurrentUserCache {
+
+  @Value("${app.currentUser.cacheTtlSeconds:60}")
+  long ttlSeconds;
+
+  @Value("${app.currentUser.cacheMaxEntries:10000}")
+  int maxEntries;
+
+  Clock clock = Clock.systemUTC();
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  private static final class Entry {
+    private final User user;
+    private final Instant expiresAt;
+
+    private Entry(User user, Instant expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  public User get(String email, Function<String, User> loader) {
+    Instant now = clock.instant();
+    Entry entry = entries.get(email);
+    if (entry != null && now.isBefore(entry.expiresAt)) {
+      return entry.user;
+    }
+
+    long loadedAt = generation.get();
+    User user = loader.apply(email);
+    if (entries.size() >= maxEntries) {
+      entries.values().removeIf(e -> !now.isBefore(e.expiresAt));
+    }
+    if (entries.size() >= maxEntries) {
+      log.warn("current user cache is full ({} entries); clearing it", entries.size());
+      entries.clear();
+    }
+    Entry loaded = new Entry(user, now.plusSeconds(ttlSeconds));
+    // invalidate bumps the generation before it removes, so checking it under the entry's lock can't miss one
+    entries.compute(email, (key, current) -> generation.get() == loadedAt ? loaded : current);
+    return user;
+  }
+
+  public void invalidate(String email) {
+    generation.incrementAndGet();
+    entries.remove(email);
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+}
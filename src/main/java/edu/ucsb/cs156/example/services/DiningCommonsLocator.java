@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory answer to "which dining commons are nearest to here?", so that
+ * location lookups do not touch the database.
+ *
+ * Commons with a latitude and longitude are loaded at startup into a
+ * GeoKdTree, with the table's version in TableVersions. Once an insert,
+ * update or delete through this instance has committed,
+ * UCSBDiningCommonsEntityListener bumps that version and reports the
+ * change along with it, and the tree is rebuilt from the in-memory copies;
+ * readers always see a complete tree. When the reported version is the one
+ * right after the version held, nothing else was written in between and
+ * the held version moves up to it. Each lookup reads the table's version,
+ * and if another instance has written since, the commons it changed are
+ * read back by code (all of them only if those changes are no longer
+ * logged).
+ */
+
+@Slf4j
+@Service
+public class DiningCommonsLocator {
+
+  public static final String TABLE = "ucsbdiningcommons";
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  private final Map<String, UCSBDiningCommons> located = new ConcurrentHashMap<>();
+
+  private volatile GeoKdTree<UCSBDiningCommons> tree = build();
+
+  // the table version the tree holds every change up to; guarded by this
+  private long loadedVersion;
+
+  @PostConstruct
+  public synchronized void refresh() {
+    load(tableVersions.version(TABLE));
+  }
+
+  // version was read before the load starts, so a write that lands during it is caught up with again
+  private void load(long version) {
+    loadedVersion = version;
+    located.clear();
+    ucsbDiningCommonsRepository.findAll().forEach(this::put);
+    tree = build();
+    log.info("dining commons locator loaded: {} commons with a location", tree.size());
+  }
+
+  // the version is read before taking the monitor, so lookups only wait on each other while one catches up
+  private void catchUp() {
+    catchUp(tableVersions.version(TABLE));
+  }
+
+  private synchronized void catchUp(long version) {
+    if (version <= loadedVersion) {
+      return;
+    }
+    Optional<List<String>> changed = tableVersions.changedKeys(TABLE, loadedVersion, version);
+    if (changed.isEmpty()) {
+      load(version);
+      return;
+    }
+    changed.get().forEach(located::remove);
+    ucsbDiningCommonsRepository.findAllById(changed.get()).forEach(this::put);
+    tree = build();
+    loadedVersion = version;
+  }
+
+  /**
+   * Up to k commons, nearest first, optionally no more than radiusMeters
+   * away (null for no limit).
+   */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k, Double radiusMeters) {
+    catchUp();
+    return tree.nearest(latitude, longitude, k, radiusMeters == null ? Double.POSITIVE_INFINITY : radiusMeters).stream()
+        .map(n -> new NearbyDiningCommons(n.item(), n.distanceMeters()))
+        .toList();
+  }
+
+  /** A committed insert or update through this instance, whose bump made version. */
+  public synchronized void commonsChanged(UCSBDiningCommons commons, long version) {
+    if (version <= loadedVersion) {
+      // already read back, along with anything written since
+      return;
+    }
+    located.remove(commons.getCode());
+    put(commons);
+    tree = build();
+    advanceTo(version);
+  }
+
+  /** A committed delete through this instance, whose bump made version. */
+  public synchronized void commonsRemoved(UCSBDiningCommons commons, long version) {
+    if (version <= loadedVersion) {
+      return;
+    }
+    located.remove(commons.getCode());
+    tree = build();
+    advanceTo(version);
+  }
+
+  // otherwise another instance wrote in between, and the next lookup reads back both changes
+  private void advanceTo(long version) {
+    if (version == loadedVersion + 1) {
+      loadedVersion = version;
+    }
+  }
+
+  // keeps a copy, since the entity passed in may still be modified by its caller
+  private void put(UCSBDiningCommons commons) {
+    if (commons.getLatitude() != null && commons.getLongitude() != null) {
+      located.put(commons.getCode(), UCSBDiningCommons.builder()
+          .code(commons.getCode())
+          .name(commons.getName())
+          .hasSackMeal(commons.getHasSackMeal())
+          .hasTakeOutMeal(commons.getHasTakeOutMeal())
+          .hasDiningCam(commons.getHasDiningCam())
+          .latitude(commons.getLatitude())
+          .longitude(commons.getLongitude())
+          .build());
+    }
+  }
+
+  private GeoKdTree<UCSBDiningCommons> build() {
+    return GeoKdTree.build(located.values(), UCSBDiningCommons::getLatitude, UCSBDiningCommons::getLongitude);
+  }
+}
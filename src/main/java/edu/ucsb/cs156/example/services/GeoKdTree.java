@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable k-d tree over points on the earth's surface. Each point is
+ * stored as a unit vector (x, y, z); straight-line (chord) distance between
+ * unit vectors grows with great-circle distance, so an ordinary 3-d k-d
+ * tree gives exact nearest neighbours with no special cases at the poles
+ * or the antimeridian. The tree is laid out implicitly in one array: the
+ * median of each range splits it on the next axis.
+ */
+final class GeoKdTree<T> {
+
+  static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  /** An item and its great-circle distance from the query point. */
+  record Neighbor<T>(T item, double distanceMeters) {}
+
+  private record Entry<T>(T item, double[] point) {}
+
+  private record Candidate<T>(Entry<T> entry, double chord2) {}
+
+  private final Entry<T>[] entries;
+
+  private GeoKdTree(Entry<T>[] entries) {
+    this.entries = entries;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> GeoKdTree<T> build(Collection<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude) {
+    Entry<T>[] entries = items.stream()
+        .map(item -> new Entry<>(item, unitVector(latitude.applyAsDouble(item), longitude.applyAsDouble(item))))
+        .toArray(Entry[]::new);
+    split(entries, 0, entries.length, 0);
+    return new GeoKdTree<>(entries);
+  }
+
+  private static <T> void split(Entry<T>[] entries, int lo, int hi, int axis) {
+    if (hi - lo < 2) {
+      return;
+    }
+    Arrays.sort(entries, lo, hi, Comparator.comparingDouble(e -> e.point()[axis]));
+    int mid = (lo + hi) >>> 1;
+    split(entries, lo, mid, (axis + 1) % 3);
+    split(entries, mid + 1, hi, (axis + 1) % 3);
+  }
+
+  int size() {
+    return entries.length;
+  }
+
+  /**
+   * Up to k items no more than maxMeters from (latitude, longitude),
+   * nearest first.
+   */
+  List<Neighbor<T>> nearest(double latitude, double longitude, int k, double maxMeters) {
+    if (k < 1 || entries.length == 0) {
+      return List.of();
+    }
+    double maxChord = 2 * Math.sin(Math.min(maxMeters / EARTH_RADIUS_METERS, Math.PI) / 2);
+    Search search = new Search(unitVector(latitude, longitude), k, maxChord * maxChord);
+    search.visit(0, entries.length, 0);
+
+    List<Neighbor<T>> neighbors = new ArrayList<>(search.best.size());
+    while (!search.best.isEmpty()) {
+      Candidate<T> c = search.best.poll();
+      neighbors.add(new Neighbor<>(c.entry().item(), 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(c.chord2()) / 2))));
+    }
+    Collections.reverse(neighbors);
+    return neighbors;
+  }
+
+  private final class Search {
+    final double[] query;
+    final int k;
+    final double limit;
+    // farthest of the current best k on top
+    final PriorityQueue<Candidate<T>> best = new PriorityQueue<>(Comparator.comparingDouble((Candidate<T> c) -> c.chord2()).reversed());
+
+    Search(double[] query, int k, double limit) {
+      this.query = query;
+      this.k = k;
+      this.limit = limit;
+    }
+
+    double bound() {
+      return best.size() < k ? limit : Math.min(limit, best.peek().chord2());
+    }
+
+    void visit(int lo, int hi, int axis) {
+      if (lo >= hi) {
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      Entry<T> entry = entries[mid];
+      double chord2 = distance2(query, entry.point());
+      if (chord2 <= bound()) {
+        if (best.size() == k) {
+          best.poll();
+        }
+        best.add(new Candidate<>(entry, chord2));
+      }
+
+      double diff = query[axis] - entry.point()[axis];
+      int next = (axis + 1) % 3;
+      if (diff < 0) {
+        visit(lo, mid, next);
+        if (diff * diff <= bound()) {
+          visit(mid + 1, hi, next);
+        }
+      } else {
+        visit(mid + 1, hi, next);
+        if (diff * diff <= bound()) {
+          visit(lo, mid, next);
+        }
+      }
+    }
+  }
+
+  private static double[] unitVector(double latitude, double longitude) {
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+  }
+
+  private static double distance2(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+}
@@ -0,0 +1,290 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes create, update, solve and delete events for help requests to
+ * server-sent event subscribers.
+ *
+ * Each subscriber has its own buffer of at most app.helpRequests.feed.bufferSize
+ * events, drained by one of app.helpRequests.feed.threads pool threads;
+ * when a slow client lets it fill up the oldest event is dropped, so a
+ * writer never waits on a client and a burst of subscribers never means a
+ * burst of threads. A subscriber whose send fails is removed and its
+ * stream completed with the error. Idle subscribers are sent a comment
+ * every app.helpRequests.feed.heartbeatSeconds, which keeps proxies from
+ * closing quiet streams and finds clients that have gone away. Event ids
+ * look like "ks0z1c2a-42" (the time this instance started, then a sequence
+ * number), and the last app.helpRequests.feed.historySize events are kept
+ * so a client that reconnects with Last-Event-ID gets only what it missed.
+ * When that is not possible (a restart, or a gap older than the history)
+ * the client is sent a reset event and should reload.
+ *
+ * Events are only published by, and only sent to subscribers of, the
+ * instance the write went through: nothing fans them out to other
+ * instances, so the feed is complete only for a single instance (see the
+ * README). A client that reconnects to another instance gets a reset.
+ */
+
+@Slf4j
+@Service
+public class HelpRequestEventFeed {
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @Value("${app.helpRequests.feed.bufferSize:100}")
+  int bufferSize = 100;
+
+  @Value("${app.helpRequests.feed.historySize:1000}")
+  int historySize = 1000;
+
+  @Value("${app.helpRequests.feed.timeoutMinutes:30}")
+  long timeoutMinutes = 30;
+
+  @Value("${app.helpRequests.feed.threads:8}")
+  int threads = 8;
+
+  @Value("${app.helpRequests.feed.heartbeatSeconds:15}")
+  long heartbeatSeconds = 15;
+
+  Executor executor;
+
+  private ScheduledExecutorService heartbeats;
+
+  private final String epoch = Long.toString(Instant.now().toEpochMilli(), 36);
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  // guarded by itself; also serializes publish against subscribe so replay and live events never overlap
+  private final ArrayDeque<Entry> history = new ArrayDeque<>();
+
+  private long sequence;
+
+  private Counter dropped;
+
+  // event is null for a heartbeat
+  private record Entry(long sequence, HelpRequestEvent event) {
+  }
+
+  private static final Entry HEARTBEAT = new Entry(0, null);
+
+  @PostConstruct
+  void init() {
+    AtomicInteger started = new AtomicInteger();
+    ThreadFactory daemons = runnable -> {
+      Thread thread = new Thread(runnable, "helprequest-feed-" + started.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    // at most one drain per subscriber is ever queued
+    executor = Executors.newFixedThreadPool(threads, daemons);
+    heartbeats = Executors.newSingleThreadScheduledExecutor(daemons);
+    heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    Gauge.builder("helprequest.feed.subscribers", subscribers, Set::size)
+        .description("Open help request event streams")
+        .register(meterRegistry);
+    dropped = Counter.builder("helprequest.feed.dropped")
+        .description("Help request events dropped because a subscriber's buffer was full")
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    heartbeats.shutdownNow();
+    if (executor instanceof ExecutorService pool) {
+      pool.shutdownNow();
+    }
+  }
+
+  void heartbeat() {
+    subscribers.forEach(Subscriber::heartbeat);
+  }
+
+  SseEmitter newEmitter() {
+    return new SseEmitter(timeoutMinutes * 60_000);
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  public void created(HelpRequest helpRequest) {
+    publish(HelpRequestEvent.CREATE, helpRequest.getId(), helpRequest);
+  }
+
+  /** Sends solve rather than update when the request has just been marked solved. */
+  public void updated(HelpRequest helpRequest, boolean wasSolved) {
+    boolean solved = !wasSolved && helpRequest.getSolved();
+    publish(solved ? HelpRequestEvent.SOLVE : HelpRequestEvent.UPDATE, helpRequest.getId(), helpRequest);
+  }
+
+  public void deleted(long id) {
+    publish(HelpRequestEvent.DELETE, id, null);
+  }
+
+  private void publish(String type, Long id, HelpRequest helpRequest) {
+    HelpRequestEvent event = HelpRequestEvent.builder().type(type).helpRequestId(id).helpRequest(helpRequest).build();
+    synchronized (history) {
+      Entry entry = new Entry(++sequence, event);
+      history.addLast(entry);
+      if (history.size() > historySize) {
+        history.removeFirst();
+      }
+      subscribers.forEach(subscriber -> subscriber.offer(entry));
+    }
+  }
+
+  /**
+   * Opens a stream of events published after lastEventId, or from now on
+   * when lastEventId is null.
+   */
+  public SseEmitter subscribe(String lastEventId) {
+    Subscriber subscriber = new Subscriber(newEmitter());
+    subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+    synchronized (history) {
+      if (lastEventId != null) {
+        List<Entry> missed = missedSince(lastEventId);
+        if (missed == null) {
+          subscriber.offer(new Entry(0, HelpRequestEvent.builder().type(HelpRequestEvent.RESET).build()));
+        } else {
+          missed.forEach(subscriber::offer);
+        }
+      }
+      subscribers.add(subscriber);
+    }
+    return subscriber.emitter;
+  }
+
+  // the events after lastEventId, or null when they cannot all be replayed; caller holds the history lock
+  private List<Entry> missedSince(String lastEventId) {
+    long last = parseSequence(lastEventId);
+    long oldest = sequence - history.size() + 1;
+    if (last < 0 || last > sequence || last + 1 < oldest || sequence - last > bufferSize) {
+      return null;
+    }
+    List<Entry> missed = new ArrayList<>();
+    for (Entry entry : history) {
+      if (entry.sequence() > last) {
+        missed.add(entry);
+      }
+    }
+    return missed;
+  }
+
+  // -1 unless the id was issued by this instance
+  private long parseSequence(String eventId) {
+    String prefix = epoch + "-";
+    if (!eventId.startsWith(prefix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(eventId.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private SseEmitter.SseEventBuilder toSse(Entry entry) {
+    if (entry.event() == null) {
+      return SseEmitter.event().comment("heartbeat");
+    }
+    SseEmitter.SseEventBuilder sse = SseEmitter.event();
+    if (entry.sequence() > 0) {
+      sse.id(epoch + "-" + entry.sequence());
+    }
+    return sse.name(entry.event().getType()).data(entry.event(), MediaType.APPLICATION_JSON);
+  }
+
+  private final class Subscriber {
+    final SseEmitter emitter;
+    // guarded by this
+    private final ArrayDeque<Entry> buffer = new ArrayDeque<>();
+    private boolean draining;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void offer(Entry entry) {
+      boolean startDrain;
+      synchronized (this) {
+        if (buffer.size() == bufferSize) {
+          buffer.removeFirst();
+          dropped.increment();
+        }
+        buffer.addLast(entry);
+        startDrain = !draining;
+        draining = true;
+      }
+      if (startDrain) {
+        executor.execute(this::drain);
+      }
+    }
+
+    // only when nothing is queued or being sent; otherwise that traffic does the same job
+    void heartbeat() {
+      synchronized (this) {
+        if (draining) {
+          return;
+        }
+        buffer.addLast(HEARTBEAT);
+        draining = true;
+      }
+      executor.execute(this::drain);
+    }
+
+    private void drain() {
+      while (true) {
+        Entry entry;
+        synchronized (this) {
+          entry = buffer.pollFirst();
+          if (entry == null) {
+            draining = false;
+            return;
+          }
+        }
+        try {
+          emitter.send(toSse(entry));
+        } catch (IOException | IllegalStateException e) {
+          log.debug("help request event subscriber went away: {}", e.toString());
+          subscribers.remove(this);
+          emitter.completeWithError(e);
+          return;
+        }
+      }
+    }
+  }
+}
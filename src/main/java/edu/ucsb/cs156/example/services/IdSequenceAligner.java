@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.SequenceGenerator;
+
+import java.lang.reflect.Field;
+
+/**
+ * Moves id sequences past the ids already stored in their tables.
+ *
+ * Entities whose ids now come from a pooled @SequenceGenerator used to be
+ * IDENTITY columns. On an existing database Hibernate creates the new
+ * sequence starting at 1, so its first blocks would collide with existing
+ * rows. At startup each such sequence is restarted, if it is behind, so
+ * that the next block handed to Hibernate begins right after max(id).
+ * Only portable SQL is used (H2 and PostgreSQL), and it is a no-op once
+ * the sequence is ahead.
+ *
+ * Every instance runs this at startup, and several may start at once.
+ * Each sequence is aligned in a transaction holding TableVersions.lock on
+ * the sequence's name, so one instance aligns it at a time and the others
+ * then find it ahead. A sequence is only ever restarted at a value past
+ * the one just read from it, never moved back.
+ */
+
+@Slf4j
+@Component
+public class IdSequenceAligner {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @PostConstruct
+  public void alignAll() {
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+      SequenceGenerator generator = sequenceGenerator(persister.getMappedClass());
+      if (generator != null) {
+        AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+        transactionTemplate.executeWithoutResult(status -> {
+          tableVersions.lock(generator.sequenceName());
+          align(entityPersister.getTableName(), entityPersister.getIdentifierColumnNames()[0],
+              generator.sequenceName(), generator.allocationSize(), dialect);
+        });
+      }
+    }
+  }
+
+  // caller holds the sequence's lock, so no other instance aligns it between reading it and restarting it
+  void align(String table, String idColumn, String sequence, int allocationSize, Dialect dialect) {
+    Long maxId = jdbcTemplate.queryForObject("select max(%s) from %s".formatted(idColumn, table), Long.class);
+    if (maxId == null) {
+      return;
+    }
+    // the pooled optimizer hands out (next - allocationSize, next] for each value it reads
+    long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequence), Long.class);
+    long restart = maxId + allocationSize;
+    // the same as next - allocationSize < maxId: behind, and restarting moves it forward
+    if (restart > next) {
+      jdbcTemplate.execute("alter sequence %s restart with %d".formatted(sequence, restart));
+      log.info("restarted sequence {} at {} (max id in {} is {})", sequence, restart, table, maxId);
+    }
+  }
+
+  static SequenceGenerator sequenceGenerator(Class<?> type) {
+    for (Field field : type.getDeclaredFields()) {
+      SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+      if (generator != null) {
+        return generator;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,193 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keyword search over documents identified by a long id, ranked with
+ * Okapi BM25 (k1 = 1.2, b = 0.75).
+ *
+ * Each document gets an int slot, and each term a posting list of the
+ * slots that contain it with the term's frequency in each, kept in plain
+ * int arrays. A search only visits the posting lists of its own terms, so
+ * its cost depends on how many documents match, not on how many there are.
+ * Scores are summed in a per-thread array indexed by slot, reused from
+ * one search to the next; only the slots a search touched are cleared
+ * afterwards. Removing a document frees its slot for the next one and
+ * scans the posting lists of its terms, so writes cost more than reads.
+ *
+ * Searches may run at the same time as each other, but not with a put or
+ * remove; see ArticleSearchIndex.
+ */
+
+public class InvertedIndex {
+
+  static final double K1 = 1.2;
+  static final double B = 0.75;
+
+  public record Hit(long id, double score) {}
+
+  // the slots of the documents containing one term, and the term's frequency in each
+  static final class Postings {
+    int[] slots = new int[4];
+    int[] frequencies = new int[4];
+    int size;
+
+    void add(int slot, int frequency) {
+      if (size == slots.length) {
+        slots = Arrays.copyOf(slots, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      slots[size] = slot;
+      frequencies[size] = frequency;
+      size++;
+    }
+
+    // order doesn't matter, so the last entry fills the gap; a slot that isn't in the list is ignored
+    void remove(int slot) {
+      for (int i = 0; i < size; i++) {
+        if (slots[i] == slot) {
+          size--;
+          slots[i] = slots[size];
+          frequencies[i] = frequencies[size];
+          return;
+        }
+      }
+    }
+  }
+
+  // a search's running score per slot, all zero between searches, and the slots it has touched
+  private static final class Scratch {
+    double[] scores = new double[16];
+    int[] matched = new int[16];
+  }
+
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Map<Long, Integer> slotOf = new HashMap<>();
+
+  // per slot: the document's id, length and distinct terms
+  private long[] ids = new long[16];
+  private int[] lengths = new int[16];
+  private String[][] terms = new String[16][];
+  private int slots;
+
+  private int[] freeSlots = new int[16];
+  private int freeCount;
+
+  private long totalLength;
+
+  public int size() {
+    return slotOf.size();
+  }
+
+  public int terms() {
+    return postings.size();
+  }
+
+  /**
+   * Adds the document, or replaces it if id is already indexed. Its length
+   * is the sum of the frequencies.
+   */
+  public void put(long id, Map<String, Integer> termFrequencies) {
+    remove(id);
+    int slot = freeCount > 0 ? freeSlots[--freeCount] : slots++;
+    if (slot == ids.length) {
+      ids = Arrays.copyOf(ids, slot * 2);
+      lengths = Arrays.copyOf(lengths, slot * 2);
+      terms = Arrays.copyOf(terms, slot * 2);
+    }
+    int length = 0;
+    for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+      postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(slot, entry.getValue());
+      length += entry.getValue();
+    }
+    ids[slot] = id;
+    lengths[slot] = length;
+    terms[slot] = termFrequencies.keySet().toArray(new String[0]);
+    slotOf.put(id, slot);
+    totalLength += length;
+  }
+
+  public void remove(long id) {
+    Integer slot = slotOf.remove(id);
+    if (slot == null) {
+      return;
+    }
+    for (String term : terms[slot]) {
+      Postings list = postings.get(term);
+      list.remove(slot);
+      if (list.size == 0) {
+        postings.remove(term);
+      }
+    }
+    totalLength -= lengths[slot];
+    terms[slot] = null;
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+    }
+    freeSlots[freeCount++] = slot;
+  }
+
+  /**
+   * The limit best matching documents for any of the terms, best first;
+   * equal scores are ordered by id.
+   */
+  public List<Hit> search(Collection<String> queryTerms, int limit) {
+    int documents = slotOf.size();
+    if (documents == 0 || limit <= 0) {
+      return List.of();
+    }
+    double averageLength = (double) totalLength / documents;
+    Scratch work = scratch.get();
+    if (work.scores.length < slots) {
+      work.scores = new double[Math.max(slots, work.scores.length * 2)];
+    }
+    double[] scores = work.scores;
+    int[] matched = work.matched;
+    int matchedCount = 0;
+
+    for (String term : new LinkedHashSet<>(queryTerms)) {
+      Postings list = postings.get(term);
+      if (list == null) {
+        continue;
+      }
+      double idf = Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+      for (int i = 0; i < list.size; i++) {
+        int slot = list.slots[i];
+        int frequency = list.frequencies[i];
+        double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+        if (scores[slot] == 0) {
+          if (matchedCount == matched.length) {
+            matched = work.matched = Arrays.copyOf(matched, matchedCount * 2);
+          }
+          matched[matchedCount++] = slot;
+        }
+        scores[slot] += idf * frequency * (K1 + 1) / (frequency + norm);
+      }
+    }
+
+    // a min-heap of the best limit so far, worst on top
+    Comparator<Hit> best = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+    PriorityQueue<Hit> top = new PriorityQueue<>(best.reversed());
+    for (int i = 0; i < matchedCount; i++) {
+      int slot = matched[i];
+      top.add(new Hit(ids[slot], scores[slot]));
+      if (top.size() > limit) {
+        top.poll();
+      }
+      scores[slot] = 0;
+    }
+    List<Hit> hits = new ArrayList<>(top);
+    hits.sort(best);
+    return hits;
+  }
+}
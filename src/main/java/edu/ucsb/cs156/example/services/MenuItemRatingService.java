@@ -0,0 +1,205 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidStarsException;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes MenuItemReviews and keeps each item's MenuItemRating in step, in
+ * the same transaction, so an item's rating is a single primary key
+ * lookup instead of a scan of its reviews.
+ *
+ * An update or delete locks the review row before reading the stars it
+ * takes out of the rating, so two of them can't both take out the same
+ * stars; the rating row is locked while it is adjusted. An item's first
+ * review has no rating row to lock yet, so an empty one is inserted in a
+ * transaction of its own first; when two first reviews race, one insert
+ * fails harmlessly and both then lock the same row. Empty rows left by
+ * first reviews that were rolled back read as "no reviews". min/max are
+ * recomputed from the star histogram when a review is removed, which is
+ * why stars are restricted to 1..5. Reviews written before that rule with
+ * stars outside 1..5 are left out of ratings altogether. Ratings are
+ * rebuilt from the reviews table at startup if none exist yet (e.g. on the
+ * first deploy with this table), by one instance at a time.
+ */
+
+@Slf4j
+@Service
+public class MenuItemRatingService {
+
+  public static final String TABLE = "menuitemrating";
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Transactional
+  public MenuItemReview create(MenuItemReview review) {
+    checkStars(review.getStars());
+    MenuItemReview saved = menuItemReviewRepository.save(review);
+    add(saved.getItemId(), saved.getStars());
+    return saved;
+  }
+
+  @Transactional
+  public MenuItemReview update(long id, MenuItemReview incoming) {
+    checkStars(incoming.getStars());
+    MenuItemReview review = findForUpdate(id);
+    long previousItemId = review.getItemId();
+    int previousStars = review.getStars();
+
+    review.setItemId(incoming.getItemId());
+    review.setReviewerEmail(incoming.getReviewerEmail());
+    review.setStars(incoming.getStars());
+    review.setDateReviewed(incoming.getDateReviewed());
+    review.setComments(incoming.getComments());
+    menuItemReviewRepository.save(review);
+
+    remove(previousItemId, previousStars);
+    add(review.getItemId(), review.getStars());
+    return review;
+  }
+
+  @Transactional
+  public void delete(long id) {
+    MenuItemReview review = findForUpdate(id);
+    if (menuItemReviewRepository.deleteRowById(id) == 0) {
+      throw new EntityNotFoundException(MenuItemReview.class, id);
+    }
+    remove(review.getItemId(), review.getStars());
+  }
+
+  private MenuItemReview findForUpdate(long id) {
+    return menuItemReviewRepository.findForUpdate(id)
+        .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+  }
+
+  public MenuItemRating get(long itemId) {
+    return menuItemRatingRepository.findById(itemId)
+        .orElseGet(() -> MenuItemRating.builder().itemId(itemId).build());
+  }
+
+  public Iterable<MenuItemRating> getAll() {
+    return menuItemRatingRepository.findAllByReviewCountGreaterThan(0);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void rebuildIfMissing() {
+    // every instance starts at once on a first deploy; the first to get the lock rebuilds, the others then find its ratings
+    tableVersions.lock(TABLE);
+    if (menuItemRatingRepository.count() == 0 && menuItemReviewRepository.count() > 0) {
+      rebuild();
+    }
+  }
+
+  @Transactional
+  public void rebuild() {
+    menuItemRatingRepository.deleteAll();
+    List<MenuItemRating> ratings = menuItemReviewRepository.computeRatings();
+    menuItemRatingRepository.saveAll(ratings);
+    log.info("rebuilt ratings for {} menu items", ratings.size());
+  }
+
+  private static boolean isValidStars(int stars) {
+    return stars >= 1 && stars <= 5;
+  }
+
+  private static void checkStars(int stars) {
+    if (!isValidStars(stars)) {
+      throw new InvalidStarsException(stars);
+    }
+  }
+
+  private void add(long itemId, int stars) {
+    MenuItemRating rating = findRatingForUpdate(itemId);
+    if (rating.getReviewCount() == 0) {
+      rating.setMinStars(stars);
+      rating.setMaxStars(stars);
+    }
+    rating.setReviewCount(rating.getReviewCount() + 1);
+    rating.setTotalStars(rating.getTotalStars() + stars);
+    rating.setMinStars(Math.min(rating.getMinStars(), stars));
+    rating.setMaxStars(Math.max(rating.getMaxStars(), stars));
+    adjustHistogram(rating, stars, 1);
+    menuItemRatingRepository.save(rating);
+  }
+
+  // loops in case a delete takes the row out again between the insert and the lock
+  private MenuItemRating findRatingForUpdate(long itemId) {
+    Optional<MenuItemRating> rating = menuItemRatingRepository.findForUpdate(itemId);
+    while (rating.isEmpty()) {
+      try {
+        menuItemRatingRepository.create(itemId);
+      } catch (DataIntegrityViolationException e) {
+        // another review created it in the meantime
+      }
+      rating = menuItemRatingRepository.findForUpdate(itemId);
+    }
+    return rating.get();
+  }
+
+  private void remove(long itemId, int stars) {
+    if (!isValidStars(stars)) {
+      // an old review that was never counted
+      return;
+    }
+    menuItemRatingRepository.findForUpdate(itemId).ifPresent(rating -> {
+      if (rating.getReviewCount() <= 1) {
+        menuItemRatingRepository.delete(rating);
+        return;
+      }
+      rating.setReviewCount(rating.getReviewCount() - 1);
+      rating.setTotalStars(rating.getTotalStars() - stars);
+      adjustHistogram(rating, stars, -1);
+      long[] histogram = histogram(rating);
+      int min = 1;
+      while (histogram[min - 1] == 0) {
+        min++;
+      }
+      int max = 5;
+      while (histogram[max - 1] == 0) {
+        max--;
+      }
+      rating.setMinStars(min);
+      rating.setMaxStars(max);
+      menuItemRatingRepository.save(rating);
+    });
+  }
+
+  private static long[] histogram(MenuItemRating rating) {
+    return new long[] { rating.getOneStar(), rating.getTwoStars(), rating.getThreeStars(),
+        rating.getFourStars(), rating.getFiveStars() };
+  }
+
+  // stars is 1..5: checked before a review is counted, and uncounted reviews are never taken out
+  private static void adjustHistogram(MenuItemRating rating, int stars, long delta) {
+    long[] histogram = histogram(rating);
+    histogram[stars - 1] += delta;
+    rating.setOneStar(histogram[0]);
+    rating.setTwoStars(histogram[1]);
+    rating.setThreeStars(histogram[2]);
+    rating.setFourStars(histogram[3]);
+    rating.setFiveStars(histogram[4]);
+  }
+}
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.metamodel.EntityType;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a JSON merge patch (RFC 7396) to one row as a single UPDATE of
+ * just the columns the patch names, instead of reading the entity,
+ * copying every field onto it and writing every column back.
+ *
+ * The patch must carry the version of the row it was made from; the
+ * UPDATE only matches that version and bumps it, so of two edits made
+ * from the same version the second is refused with a
+ * VersionConflictException instead of silently overwriting the first.
+ * Only the fields the caller lists may be patched, and null clears a
+ * field (except a primitive one, which has no null).
+ */
+
+@Service
+public class MergePatchService {
+  public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+  static final String VERSION = "version";
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  /** Patches the row and returns its new version. */
+  @Transactional
+  public <T> long apply(Class<T> entityType, long id, JsonNode patch, Set<String> patchable) {
+    long version = version(patch);
+
+    // the statement depends only on which fields are patched, so Hibernate and the database can reuse its plan
+    EntityType<T> model = entityManager.getMetamodel().entity(entityType);
+    StringBuilder jpql = new StringBuilder("update %s e set".formatted(model.getName()));
+    Map<String, Object> values = new HashMap<>();
+    for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext();) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      String name = field.getKey();
+      if (name.equals(VERSION)) {
+        continue;
+      }
+      if (!patchable.contains(name)) {
+        throw new InvalidPatchException("%s cannot be patched".formatted(name));
+      }
+      Class<?> type = model.getAttribute(name).getJavaType();
+      if (field.getValue().isNull()) {
+        if (type.isPrimitive()) {
+          throw new InvalidPatchException("%s cannot be null".formatted(name));
+        }
+        jpql.append(" e.%s = null,".formatted(name));
+      } else {
+        jpql.append(" e.%s = :%s,".formatted(name, name));
+        values.put(name, value(name, field.getValue(), type));
+      }
+    }
+    jpql.append(" e.version = e.version + 1 where e.id = :id and e.version = :version");
+    Query update = entityManager.createQuery(jpql.toString())
+        .setParameter("id", id)
+        .setParameter(VERSION, version);
+    values.forEach(update::setParameter);
+
+    if (update.executeUpdate() == 1) {
+      return version + 1;
+    }
+    // nothing matched: either the row is gone or someone else got there first
+    List<Long> current = entityManager
+        .createQuery("select e.version from %s e where e.id = :id".formatted(model.getName()), Long.class)
+        .setParameter("id", id)
+        .getResultList();
+    if (current.isEmpty()) {
+      throw new EntityNotFoundException(entityType, id);
+    }
+    throw new VersionConflictException(entityType, id, version, current.get(0));
+  }
+
+  /**
+   * Patches the row and returns the value field had before the patch. It
+   * is read in the same transaction, and only from the version the patch
+   * was made from; the update matches only that version too, so once the
+   * patch has gone through this is the value it replaced, without a lock.
+   */
+  @Transactional
+  public <T, V> V applyAndGetPrevious(Class<T> entityType, long id, JsonNode patch, Set<String> patchable,
+      String field, Class<V> fieldType) {
+    long version = version(patch);
+    List<V> previous = entityManager
+        .createQuery("select e.%s from %s e where e.id = :id and e.version = :version"
+            .formatted(field, entityManager.getMetamodel().entity(entityType).getName()), fieldType)
+        .setParameter("id", id)
+        .setParameter(VERSION, version)
+        .getResultList();
+    // throws unless the row was still at that version, in which case previous has it
+    apply(entityType, id, patch, patchable);
+    return previous.get(0);
+  }
+
+  private static long version(JsonNode patch) {
+    if (patch == null || !patch.isObject()) {
+      throw new InvalidPatchException("expected a JSON object");
+    }
+    JsonNode versionNode = patch.get(VERSION);
+    if (versionNode == null || !versionNode.isIntegralNumber() || !versionNode.canConvertToLong()) {
+      throw new InvalidPatchException("version is required; send the version you last read");
+    }
+    return versionNode.asLong();
+  }
+
+  private Object value(String name, JsonNode node, Class<?> type) {
+    try {
+      return objectMapper.convertValue(node, type);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidPatchException("%s is not a valid %s".formatted(name, type.getSimpleName()));
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.metrics.ApiMetrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes the rows of a repository Stream query as newline delimited JSON
+ * (one object per line) without ever holding the whole table in memory.
+ *
+ * The stream is opened inside a read-only transaction on the thread that
+ * writes the response; each row is detached from the persistence context
+ * once it has been written, and the output is flushed every
+ * app.ndjson.flushEvery rows. Queries and rows are reported to
+ * ApiMetrics for the request that started the export.
+ */
+
+@Slf4j
+@Service("ndjsonExport")
+public class NdjsonExportService {
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+  public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ApiMetrics apiMetrics;
+
+  @Value("${app.ndjson.flushEvery:500}")
+  int flushEvery;
+
+  public <T> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> rows) {
+    HttpServletRequest request = currentRequest();
+    StreamingResponseBody body = out -> {
+      apiMetrics.startCounting();
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      transactionTemplate.setReadOnly(true);
+      AtomicLong written = new AtomicLong();
+      // also when the client goes away mid-export, or the counting would leak into this thread's next request
+      try {
+        transactionTemplate.executeWithoutResult(status -> writeRows(rows, out, written));
+      } finally {
+        apiMetrics.stopCounting(request);
+        apiMetrics.addRows(request, written.get());
+      }
+    };
+    return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+  }
+
+  private static HttpServletRequest currentRequest() {
+    return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+        ? attributes.getRequest()
+        : null;
+  }
+
+  private <T> void writeRows(Supplier<Stream<T>> rows, OutputStream out, AtomicLong written) {
+    ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    try (Stream<T> stream = rows.get();
+        JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        entityManager.detach(row);
+        if (written.incrementAndGet() % flushEvery == 0) {
+          generator.flush();
+        }
+      }
+      generator.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    log.info("ndjson export wrote {} rows", written.get());
+  }
+}
@@ -0,0 +1,279 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.RecommendationRequestDueSoon;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Open recommendation requests in the order they are needed, so "what is
+ * overdue?" and "what is due this week?" are answered from memory instead
+ * of a scan of the table.
+ *
+ * Loaded at startup, with the table's version in TableVersions.
+ * RecommendationRequestController reports every save and delete made
+ * through this instance along with the version its bump made; when that
+ * is the version right after the one held, nothing else has changed in
+ * between and the held version moves up to it. Writes through other
+ * instances are caught up with when asked for overdue or due requests:
+ * the table's version is read and, if it has moved past the held one, the
+ * rows changed in between are read back by primary key (the whole table
+ * only if those changes are no longer logged). Requests that are done, or
+ * have no dateNeeded, are not kept.
+ *
+ * Every app.recommendationRequests.sweepSeconds a sweep publishes a
+ * RecommendationRequestDueSoon event for each open request that has come
+ * within app.recommendationRequests.dueSoonHours of its dateNeeded. The
+ * requests not yet announced are kept in their own deadline order, so the
+ * sweep only looks at the front of that set and never scans the table.
+ * Each request is announced once per deadline; moving its dateNeeded makes
+ * it eligible again. Before publishing, the sweep claims the announcement
+ * by setting the row's announcedFor to its dateNeeded, an update that only
+ * one instance can win, so every instance sweeps but each deadline is
+ * announced once, restarts included. The sweep does not catch up with
+ * other instances first: the instance that last wrote a request holds it
+ * as written, and a claim for a deadline that has since moved, or for a
+ * request that is done or gone, changes nothing.
+ */
+
+@Slf4j
+@Service
+public class RecommendationDeadlines {
+
+  public static final String TABLE = "recommendationrequest";
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  ApplicationEventPublisher applicationEventPublisher;
+
+  @Value("${app.recommendationRequests.dueSoonHours:24}")
+  long dueSoonHours = 24;
+
+  @Value("${app.recommendationRequests.sweepSeconds:60}")
+  long sweepSeconds = 60;
+
+  Clock clock = Clock.systemDefaultZone();
+
+  private record Deadline(LocalDateTime dateNeeded, long id) {
+  }
+
+  private static final Comparator<Deadline> SOONEST_FIRST =
+      Comparator.comparing(Deadline::dateNeeded).thenComparingLong(Deadline::id);
+
+  // all guarded by this
+  private final Map<Long, RecommendationRequest> open = new HashMap<>();
+  private final NavigableSet<Deadline> deadlines = new TreeSet<>(SOONEST_FIRST);
+  private final NavigableSet<Deadline> unannounced = new TreeSet<>(SOONEST_FIRST);
+
+  // the table version the maps hold every change up to
+  private long loadedVersion;
+
+  private ScheduledExecutorService sweeper;
+
+  @PostConstruct
+  public synchronized void refresh() {
+    load(tableVersions.version(TABLE));
+  }
+
+  // version was read before the load starts, so a write that lands during it is caught up with again
+  private void load(long version) {
+    loadedVersion = version;
+    open.clear();
+    deadlines.clear();
+    unannounced.clear();
+    recommendationRequestRepository.findAll().forEach(this::apply);
+    log.info("recommendation deadlines loaded: {} open requests", open.size());
+  }
+
+  private synchronized void catchUp() {
+    long version = tableVersions.version(TABLE);
+    if (version <= loadedVersion) {
+      return;
+    }
+    Optional<List<String>> changed = tableVersions.changedKeys(TABLE, loadedVersion, version);
+    if (changed.isEmpty()) {
+      load(version);
+      return;
+    }
+    List<Long> ids = changed.get().stream().map(Long::valueOf).toList();
+    ids.forEach(this::drop);
+    recommendationRequestRepository.findAllById(ids).forEach(this::apply);
+    loadedVersion = version;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void startSweeping() {
+    if (sweeper == null) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-deadlines");
+        thread.setDaemon(true);
+        return thread;
+      });
+      sweeper.scheduleWithFixedDelay(this::sweep, 0, sweepSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stopSweeping() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+      sweeper = null;
+    }
+  }
+
+  /** Open requests whose dateNeeded has passed, most overdue first. */
+  public synchronized List<RecommendationRequest> overdue() {
+    catchUp();
+    return copies(deadlines.headSet(new Deadline(LocalDateTime.now(clock), Long.MIN_VALUE), false));
+  }
+
+  /** Open requests needed from now until within from now, soonest first. */
+  public synchronized List<RecommendationRequest> dueWithin(Duration within) {
+    catchUp();
+    LocalDateTime now = LocalDateTime.now(clock);
+    return copies(deadlines.subSet(
+        new Deadline(now, Long.MIN_VALUE), true,
+        new Deadline(now.plus(within), Long.MIN_VALUE), false));
+  }
+
+  /** A save through this instance, whose bump made version. */
+  public synchronized void put(RecommendationRequest request, long version) {
+    if (version <= loadedVersion) {
+      // already read back, along with anything written since
+      return;
+    }
+    apply(request);
+    advanceTo(version);
+  }
+
+  /** A delete through this instance, whose bump made version. */
+  public synchronized void remove(long id, long version) {
+    if (version <= loadedVersion) {
+      return;
+    }
+    drop(id);
+    advanceTo(version);
+  }
+
+  // otherwise another instance wrote in between, and the next catch up reads back both changes
+  private void advanceTo(long version) {
+    if (version == loadedVersion + 1) {
+      loadedVersion = version;
+    }
+  }
+
+  // caller holds the lock
+  private void apply(RecommendationRequest request) {
+    RecommendationRequest previous = open.remove(request.getId());
+    boolean wasUnannounced = false;
+    if (previous != null) {
+      Deadline old = deadline(previous);
+      deadlines.remove(old);
+      wasUnannounced = unannounced.remove(old);
+    }
+    if (request.getDone() || request.getDateNeeded() == null) {
+      return;
+    }
+    RecommendationRequest copy = copy(request);
+    Deadline deadline = deadline(copy);
+    open.put(copy.getId(), copy);
+    deadlines.add(deadline);
+    boolean announced = copy.getDateNeeded().equals(copy.getAnnouncedFor());
+    if (!announced && (previous == null || wasUnannounced || !previous.getDateNeeded().equals(copy.getDateNeeded()))) {
+      unannounced.add(deadline);
+    }
+  }
+
+  // caller holds the lock
+  private void drop(long id) {
+    RecommendationRequest previous = open.remove(id);
+    if (previous != null) {
+      deadlines.remove(deadline(previous));
+      unannounced.remove(deadline(previous));
+    }
+  }
+
+  /**
+   * Publishes a RecommendationRequestDueSoon for each request that has
+   * come due soon since the last sweep and that no other instance has
+   * announced. Listeners run on the calling thread, so a listener that
+   * fails is logged and does not stop the others.
+   */
+  public void sweep() {
+    List<RecommendationRequest> dueSoon = new ArrayList<>();
+    synchronized (this) {
+      LocalDateTime horizon = LocalDateTime.now(clock).plusHours(dueSoonHours);
+      while (!unannounced.isEmpty() && !unannounced.first().dateNeeded().isAfter(horizon)) {
+        dueSoon.add(copy(open.get(unannounced.pollFirst().id())));
+      }
+    }
+    int announced = 0;
+    for (RecommendationRequest request : dueSoon) {
+      if (recommendationRequestRepository.claimAnnouncement(request.getId(), request.getDateNeeded()) == 0) {
+        continue;
+      }
+      announced++;
+      try {
+        applicationEventPublisher.publishEvent(new RecommendationRequestDueSoon(request));
+      } catch (RuntimeException e) {
+        log.warn("due soon listener failed for recommendation request {}", request.getId(), e);
+      }
+    }
+    if (announced > 0) {
+      log.info("{} recommendation requests due within {} hours", announced, dueSoonHours);
+    }
+  }
+
+  private static Deadline deadline(RecommendationRequest request) {
+    return new Deadline(request.getDateNeeded(), request.getId());
+  }
+
+  private List<RecommendationRequest> copies(Collection<Deadline> range) {
+    return range.stream().map(deadline -> copy(open.get(deadline.id()))).toList();
+  }
+
+  // the entity passed in may still be modified by its caller, and results go out to be serialized
+  private static RecommendationRequest copy(RecommendationRequest request) {
+    return RecommendationRequest.builder()
+        .id(request.getId())
+        .requesterEmail(request.getRequesterEmail())
+        .professorEmail(request.getProfessorEmail())
+        .explanation(request.getExplanation())
+        .dateRequested(request.getDateRequested())
+        .dateNeeded(request.getDateNeeded())
+        .done(request.getDone())
+        .announcedFor(request.getAnnouncedFor())
+        .build();
+  }
+}
@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache for a small, rarely changing table: single rows by
+ * primary key (including "no such row") and the whole table as a list.
+ * Entries live for at most ttlSeconds and at most maxEntries rows are kept.
+ *
+ * Entries are keyed on the table's version in TableVersions, which every
+ * write to the table bumps once it has committed, through whichever
+ * instance. A lookup reads the version first (a primary key lookup) and
+ * only serves an entry loaded at that same version. An entry is loaded
+ * after the version it is tagged with was read, so it holds every write
+ * bumped up to that version, and once a write's bump has committed no
+ * instance serves a row loaded before it.
+ *
+ * Rows are copied on the way in and on the way out, so neither the loader's
+ * entities nor the callers' can change what is cached.
+ *
+ * Lookups are counted in the cache.gets meter, tagged with the cache name
+ * and result=hit or miss.
+ */
+
+@Slf4j
+public class ReferenceTableCache<K, V> {
+
+  private final String table;
+  private final TableVersions tableVersions;
+  private final UnaryOperator<V> copy;
+  private final long ttlSeconds;
+  private final int maxEntries;
+
+  Clock clock = Clock.systemUTC();
+
+  private final ConcurrentHashMap<K, Entry<Optional<V>>> rows = new ConcurrentHashMap<>();
+  private final AtomicReference<Entry<List<V>>> all = new AtomicReference<>();
+
+  private final Counter hits;
+  private final Counter misses;
+
+  private record Entry<T>(T value, long version, Instant expiresAt) {
+    boolean fresh(long current, Instant now) {
+      return version == current && now.isBefore(expiresAt());
+    }
+  }
+
+  public ReferenceTableCache(String table, TableVersions tableVersions, UnaryOperator<V> copy,
+      long ttlSeconds, int maxEntries, MeterRegistry meterRegistry) {
+    this.table = table;
+    this.tableVersions = tableVersions;
+    this.copy = copy;
+    this.ttlSeconds = ttlSeconds;
+    this.maxEntries = maxEntries;
+    this.hits = meterRegistry.counter("cache.gets", "cache", table, "result", "hit");
+    this.misses = meterRegistry.counter("cache.gets", "cache", table, "result", "miss");
+    meterRegistry.gaugeMapSize("cache.size", Tags.of("cache", table), rows);
+  }
+
+  public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+    long version = tableVersions.version(table);
+    Instant now = clock.instant();
+    Entry<Optional<V>> entry = rows.get(key);
+    if (entry != null && entry.fresh(version, now)) {
+      hits.increment();
+      return entry.value().map(copy);
+    }
+
+    misses.increment();
+    Optional<V> value = loader.apply(key).map(copy);
+    if (rows.size() >= maxEntries) {
+      rows.values().removeIf(e -> !e.fresh(version, now));
+    }
+    if (rows.size() >= maxEntries) {
+      log.warn("{} cache is full ({} entries); clearing it", table, rows.size());
+      rows.clear();
+    }
+    Entry<Optional<V>> loaded = new Entry<>(value, version, now.plusSeconds(ttlSeconds));
+    // a reader that read a later version may have stored first
+    rows.merge(key, loaded, (current, mine) -> current.version() > version ? current : mine);
+    return value.map(copy);
+  }
+
+  public List<V> getAll(Supplier<Iterable<V>> loader) {
+    long version = tableVersions.version(table);
+    Instant now = clock.instant();
+    Entry<List<V>> entry = all.get();
+    if (entry != null && entry.fresh(version, now)) {
+      hits.increment();
+      return copies(entry.value());
+    }
+
+    misses.increment();
+    List<V> value = new ArrayList<>();
+    loader.get().forEach(row -> value.add(copy.apply(row)));
+    Entry<List<V>> loaded = new Entry<>(List.copyOf(value), version, now.plusSeconds(ttlSeconds));
+    all.updateAndGet(current -> current != null && current.version() > version ? current : loaded);
+    return copies(loaded.value());
+  }
+
+  private List<V> copies(List<V> cached) {
+    return cached.stream().map(copy).toList();
+  }
+
+  /** Forgets everything this instance holds; the version keeps other instances' entries right. */
+  public void invalidateAll() {
+    rows.clear();
+    all.set(null);
+  }
+
+  public int size() {
+    return rows.size();
+  }
+}
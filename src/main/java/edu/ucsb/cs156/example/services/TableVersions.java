@@ -0,0 +1,161 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import edu.ucsb.cs156.example.entities.TableChange;
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableChangeRepository;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * A version counter per table, bumped by controllers after each write to
+ * that table has committed, so list endpoints can answer conditional GETs
+ * (If-None-Match) with a primary key lookup instead of reading the table.
+ *
+ * The counters are rows of tableversions rather than fields of this bean,
+ * so a write through one instance changes the ETag every instance sends,
+ * and versions carry on across restarts.
+ *
+ * A bump returns the version it made, and may record the primary keys of
+ * the rows the write changed (in tablechanges, for the last CHANGES_KEPT
+ * or so versions). An in-memory view of a table can then tell its own
+ * writes from other instances' (a write that made the version right after
+ * the one it holds is the only change in between) and catch up with
+ * others by reading back just the rows they changed.
+ *
+ * ETags look like W/"helprequest-ks0z1c2a-42": table, the time its counter
+ * was created (so tags from a database that has since been recreated never
+ * match) and the version. They are weak because the same version may be
+ * sent gzipped or not, and Tomcat will not compress a response that carries
+ * a strong ETag.
+ */
+
+@Service
+public class TableVersions {
+
+  // store the response, but check with us before every reuse; it is per-user data
+  static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+  static final long CHANGES_KEPT = 1000;
+
+  @Autowired
+  TableVersionRepository tableVersionRepository;
+
+  @Autowired
+  TableChangeRepository tableChangeRepository;
+
+  private Optional<TableVersion> counter(String table) {
+    return tableVersionRepository.findById(table);
+  }
+
+  public long version(String table) {
+    return counter(table).map(TableVersion::getVersion).orElse(0L);
+  }
+
+  /** Bumps the table's version, after a write to it has committed; returns the new version. */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public long bump(String table) {
+    return bump(table, List.of());
+  }
+
+  /**
+   * The same, recording the primary keys of the rows the write inserted,
+   * updated or deleted. The counter row stays locked until the change log
+   * is written, so changes are logged in version order.
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public long bump(String table, Collection<?> keys) {
+    if (tableVersionRepository.increment(table) == 0) {
+      create(table);
+      tableVersionRepository.increment(table);
+    }
+    long version = tableVersionRepository.findVersion(table).orElseThrow();
+    keys.forEach(key -> tableChangeRepository.save(
+        TableChange.builder().tableName(table).version(version).rowKey(key.toString()).build()));
+    if (version % CHANGES_KEPT == 0) {
+      tableChangeRepository.deleteUpTo(table, version - CHANGES_KEPT);
+    }
+    return version;
+  }
+
+  /**
+   * The keys recorded by the bumps after version after, up to and
+   * including version upTo; empty if some of them are no longer kept, in
+   * which case the caller should reload the table instead.
+   */
+  public Optional<List<String>> changedKeys(String table, long after, long upTo) {
+    List<String> keys = tableChangeRepository.findRowKeys(table, after, upTo);
+    // read after the keys: every pruning that could have hidden some of them has committed by now
+    long version = version(table);
+    long prunedUpTo = version - version % CHANGES_KEPT - CHANGES_KEPT;
+    return after < prunedUpTo ? Optional.empty() : Optional.of(keys);
+  }
+
+  /**
+   * Holds the table's counter row locked until the caller's transaction
+   * ends, creating it first if need be: a lock shared by every instance,
+   * for work that only one of them should do at a time.
+   */
+  public void lock(String table) {
+    if (tableVersionRepository.findForUpdate(table).isEmpty()) {
+      create(table);
+      tableVersionRepository.findForUpdate(table);
+    }
+  }
+
+  private void create(String table) {
+    try {
+      tableVersionRepository.create(table, System.currentTimeMillis());
+    } catch (DataIntegrityViolationException e) {
+      // another instance created it in the meantime
+    }
+  }
+
+  public String etag(String table) {
+    return etag(table, counter(table));
+  }
+
+  private static String etag(String table, Optional<TableVersion> counter) {
+    return counter
+        .map(row -> "W/\"%s-%s-%d\"".formatted(table, Long.toString(row.getEpoch(), 36), row.getVersion()))
+        .orElse("W/\"%s-0-0\"".formatted(table));
+  }
+
+  /**
+   * 304 Not Modified if the request's If-None-Match matches the table's
+   * current ETag; otherwise 200 with the body from the supplier and the ETag.
+   * The ETag is read before the body, so a write that races with the read
+   * can only make the tag older than the body, never newer.
+   */
+  public <T> ResponseEntity<T> conditionalGet(WebRequest request, String table, Supplier<T> body) {
+    return conditionalGet(request, table, version -> body.get());
+  }
+
+  /**
+   * The same, for a body served from memory: it is passed the version the
+   * ETag was made from, and must answer as of that version or later.
+   */
+  public <T> ResponseEntity<T> conditionalGet(WebRequest request, String table, LongFunction<T> body) {
+    Optional<TableVersion> counter = counter(table);
+    String etag = etag(table, counter);
+    if (request.checkNotModified(etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+    long version = counter.map(TableVersion::getVersion).orElse(0L);
+    return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body.apply(version));
+  }
+}
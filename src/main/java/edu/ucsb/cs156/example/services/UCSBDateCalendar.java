@@ -0,0 +1,234 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.InvalidQuarterException;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The ucsbdates of a quarter, or of a range of quarters, in date order.
+ * Quarters are written YYYYQ (Q is 1 for Winter through 4 for Fall), so
+ * they sort as strings.
+ *
+ * Calendars almost always show the current quarter or a later one, so
+ * those quarters are kept in memory: loaded at startup, from the quarter
+ * the clock was in then onwards, into a map from quarter to its dates.
+ * A lookup is a map lookup or sub-map, never a query. Earlier quarters
+ * are read from the database through ucsbdates_quarter_local_date_time_idx.
+ * UCSBDatesController reports every save and delete made through this
+ * instance, along with the table version in TableVersions that its bump
+ * made; a date that moves between quarters leaves the old one, and a
+ * report of an older version of a date than the one held is ignored.
+ * When a report's version is the one right after the version held,
+ * nothing else was written in between and the held version moves up to
+ * it, so writes through this instance never make a lookup reload.
+ *
+ * Writes through other instances are caught up with when a lookup is
+ * asked for a version newer than the one held: the dates changed in
+ * between are read back by primary key, and the quarters reloaded only if
+ * those changes are no longer logged.
+ */
+
+@Slf4j
+@Service
+public class UCSBDateCalendar {
+
+  public static final String TABLE = "ucsbdates";
+
+  private static final Pattern QUARTER = Pattern.compile("\\d{4}[1-4]");
+
+  private static final Comparator<UCSBDate> IN_DATE_ORDER = Comparator
+      .comparing(UCSBDate::getLocalDateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparingLong(UCSBDate::getId);
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  Clock clock = Clock.systemDefaultZone();
+
+  // all guarded by this
+  private String firstCachedQuarter = "99994";
+  private final NavigableMap<String, NavigableSet<UCSBDate>> quarters = new TreeMap<>();
+  private final Map<Long, UCSBDate> cached = new HashMap<>();
+  private long loadedVersion;
+
+  @PostConstruct
+  public synchronized void refresh() {
+    load(tableVersions.version(TABLE));
+  }
+
+  // version was read before the load starts, so a write that lands during it makes the next lookup load again
+  private void load(long version) {
+    loadedVersion = version;
+    firstCachedQuarter = quarterOf(LocalDate.now(clock));
+    quarters.clear();
+    cached.clear();
+    ucsbDateRepository.findQuarters(firstCachedQuarter, "99994").forEach(this::add);
+    log.info("ucsb date calendar loaded: {} dates in {} quarters from {}", cached.size(), quarters.size(), firstCachedQuarter);
+  }
+
+  /** The dates in quarterYYYYQ, earliest first. */
+  public List<UCSBDate> quarter(String quarterYYYYQ) {
+    return quarters(quarterYYYYQ, quarterYYYYQ);
+  }
+
+  /** The dates in quarterYYYYQ as of the table's version atLeast or later. */
+  public List<UCSBDate> quarter(String quarterYYYYQ, long atLeast) {
+    catchUp(atLeast);
+    return quarter(quarterYYYYQ);
+  }
+
+  /** The dates in the quarters from first to last as of the table's version atLeast or later. */
+  public List<UCSBDate> quarters(String first, String last, long atLeast) {
+    catchUp(atLeast);
+    return quarters(first, last);
+  }
+
+  private synchronized void catchUp(long version) {
+    if (version <= loadedVersion) {
+      return;
+    }
+    Optional<List<String>> changed = tableVersions.changedKeys(TABLE, loadedVersion, version);
+    if (changed.isEmpty()) {
+      load(version);
+      return;
+    }
+    List<Long> ids = changed.get().stream().map(Long::valueOf).toList();
+    ids.forEach(this::drop);
+    ucsbDateRepository.findAllById(ids).forEach(this::apply);
+    loadedVersion = version;
+  }
+
+  /** The dates in the quarters from first to last inclusive, by quarter and then date. */
+  public List<UCSBDate> quarters(String first, String last) {
+    check(first);
+    check(last);
+    if (first.compareTo(last) > 0) {
+      return List.of();
+    }
+    List<UCSBDate> dates = new ArrayList<>();
+    String cachedFrom;
+    synchronized (this) {
+      cachedFrom = firstCachedQuarter;
+    }
+    if (first.compareTo(cachedFrom) < 0) {
+      String uncachedLast = last.compareTo(cachedFrom) < 0 ? last : previousQuarter(cachedFrom);
+      dates.addAll(ucsbDateRepository.findQuarters(first, uncachedLast));
+    }
+    if (last.compareTo(cachedFrom) >= 0) {
+      String cachedFirst = first.compareTo(cachedFrom) < 0 ? cachedFrom : first;
+      synchronized (this) {
+        quarters.subMap(cachedFirst, true, last, true).values()
+            .forEach(quarter -> quarter.forEach(date -> dates.add(copy(date))));
+      }
+    }
+    return dates;
+  }
+
+  /** A save through this instance, whose bump made version. */
+  public synchronized void put(UCSBDate date, long version) {
+    if (version <= loadedVersion) {
+      // already read back, along with anything written since
+      return;
+    }
+    UCSBDate held = cached.get(date.getId());
+    if (held == null || held.getVersion() <= date.getVersion()) {
+      apply(date);
+    }
+    // otherwise a slower request's save, overtaken by a newer one
+    advanceTo(version);
+  }
+
+  /** A delete of the dates with these ids through this instance, whose bump made version. */
+  public synchronized void remove(Collection<Long> ids, long version) {
+    if (version <= loadedVersion) {
+      return;
+    }
+    ids.forEach(this::drop);
+    advanceTo(version);
+  }
+
+  // otherwise another instance wrote in between, and the next lookup reads back both changes
+  private void advanceTo(long version) {
+    if (version == loadedVersion + 1) {
+      loadedVersion = version;
+    }
+  }
+
+  // caller holds the lock
+  private void apply(UCSBDate date) {
+    drop(date.getId());
+    if (date.getQuarterYYYYQ() != null && date.getQuarterYYYYQ().compareTo(firstCachedQuarter) >= 0) {
+      add(date);
+    }
+  }
+
+  // caller holds the lock
+  private void drop(long id) {
+    UCSBDate previous = cached.remove(id);
+    if (previous != null) {
+      NavigableSet<UCSBDate> dates = quarters.get(previous.getQuarterYYYYQ());
+      dates.remove(previous);
+      if (dates.isEmpty()) {
+        quarters.remove(previous.getQuarterYYYYQ());
+      }
+    }
+  }
+
+  static String quarterOf(LocalDate day) {
+    return "%04d%d".formatted(day.getYear(), (day.getMonthValue() - 1) / 3 + 1);
+  }
+
+  static String previousQuarter(String quarterYYYYQ) {
+    int year = Integer.parseInt(quarterYYYYQ.substring(0, 4));
+    int quarter = quarterYYYYQ.charAt(4) - '0';
+    return quarter == 1 ? "%04d4".formatted(year - 1) : "%04d%d".formatted(year, quarter - 1);
+  }
+
+  private static void check(String quarterYYYYQ) {
+    if (quarterYYYYQ == null || !QUARTER.matcher(quarterYYYYQ).matches()) {
+      throw new InvalidQuarterException(quarterYYYYQ);
+    }
+  }
+
+  // caller holds the lock
+  private void add(UCSBDate date) {
+    UCSBDate copy = copy(date);
+    cached.put(copy.getId(), copy);
+    quarters.computeIfAbsent(copy.getQuarterYYYYQ(), quarter -> new TreeSet<>(IN_DATE_ORDER)).add(copy);
+  }
+
+  // the entity passed in may still be modified by its caller, and results go out to be serialized
+  private static UCSBDate copy(UCSBDate date) {
+    return UCSBDate.builder()
+        .id(date.getId())
+        .quarterYYYYQ(date.getQuarterYYYYQ())
+        .name(date.getName())
+        .localDateTime(date.getLocalDateTime())
+        .version(date.getVersion())
+        .build();
+  }
+}
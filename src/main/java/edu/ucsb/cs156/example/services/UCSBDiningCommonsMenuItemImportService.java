@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.InvalidUploadException;
+import edu.ucsb.cs156.example.models.BulkImportResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Creates many menu items in one transaction, e.g. a quarter's menu.
+ *
+ * Rows missing a required field are rejected individually; the rest are
+ * inserted app.bulkImport.batchSize at a time as JDBC batches (ids come
+ * from a pooled sequence, so Hibernate can batch the inserts), flushing
+ * and clearing the persistence context after each batch.
+ */
+
+@Slf4j
+@Service
+public class UCSBDiningCommonsMenuItemImportService {
+  static final List<String> CSV_COLUMNS = List.of("diningCommonsCode", "name", "station");
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Value("${app.bulkImport.batchSize:100}")
+  int batchSize;
+
+  private record Row(int row, UCSBDiningCommonsMenuItem item) {
+  }
+
+  @Transactional
+  public BulkImportResult importItems(List<UCSBDiningCommonsMenuItem> items) {
+    List<BulkRowResult> results = new ArrayList<>();
+    List<Row> valid = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      UCSBDiningCommonsMenuItem item = items.get(i);
+      String problem = validate(item);
+      if (problem != null) {
+        results.add(BulkRowResult.rejected(i + 1, problem));
+      } else {
+        valid.add(new Row(i + 1, UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode(item.getDiningCommonsCode())
+            .name(item.getName())
+            .station(item.getStation())
+            .build()));
+      }
+    }
+
+    entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+    for (int start = 0; start < valid.size(); start += batchSize) {
+      List<Row> batch = valid.subList(start, Math.min(start + batchSize, valid.size()));
+      ucsbDiningCommonsMenuItemRepository.saveAll(batch.stream().map(Row::item).toList());
+      entityManager.flush();
+      entityManager.clear();
+      batch.forEach(row -> results.add(BulkRowResult.created(row.row(), row.item().getId())));
+    }
+
+    results.sort(Comparator.comparingInt(BulkRowResult::getRow));
+    log.info("bulk import of {} menu items: {} created, {} rejected",
+        items.size(), valid.size(), items.size() - valid.size());
+    return BulkImportResult.builder()
+        .created(valid.size())
+        .rejected(items.size() - valid.size())
+        .rows(results)
+        .build();
+  }
+
+  /**
+   * Imports CSV with a header line naming the columns diningCommonsCode,
+   * name and station (in any order; other columns are ignored).
+   */
+  @Transactional
+  public BulkImportResult importCsv(String csv) {
+    List<List<String>> lines = Csv.parse(csv);
+    if (lines.isEmpty()) {
+      throw new InvalidUploadException("CSV has no header line");
+    }
+    List<String> header = lines.get(0).stream().map(String::trim).toList();
+    int[] columns = new int[CSV_COLUMNS.size()];
+    for (int c = 0; c < columns.length; c++) {
+      columns[c] = header.indexOf(CSV_COLUMNS.get(c));
+      if (columns[c] < 0) {
+        throw new InvalidUploadException("CSV header is missing column %s".formatted(CSV_COLUMNS.get(c)));
+      }
+    }
+
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>();
+    for (List<String> line : lines.subList(1, lines.size())) {
+      items.add(UCSBDiningCommonsMenuItem.builder()
+          .diningCommonsCode(column(line, columns[0]))
+          .name(column(line, columns[1]))
+          .station(column(line, columns[2]))
+          .build());
+    }
+    return importItems(items);
+  }
+
+  private static String column(List<String> line, int index) {
+    return index < line.size() ? line.get(index) : null;
+  }
+
+  private static String validate(UCSBDiningCommonsMenuItem item) {
+    if (item == null) {
+      return "row is empty";
+    }
+    List<String> missing = new ArrayList<>();
+    if (isBlank(item.getDiningCommonsCode())) {
+      missing.add("diningCommonsCode");
+    }
+    if (isBlank(item.getName())) {
+      missing.add("name");
+    }
+    if (isBlank(item.getStation())) {
+      missing.add("station");
+    }
+    return missing.isEmpty() ? null : "missing " + String.join(", ", missing);
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
+}
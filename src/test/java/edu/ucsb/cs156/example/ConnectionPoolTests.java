@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.testconfig.IntegrationTestApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * What a request sees when every pooled connection is in use.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:connectionpool;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.hikari.maximum-pool-size=2",
+    "spring.datasource.hikari.connection-timeout=250",
+    "logging.level.sql=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+@AutoConfigureMockMvc
+class ConnectionPoolTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  DataSource dataSource;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  private double timeouts() {
+    return meterRegistry.get("hikaricp.connections.timeout").tag("pool", "main").counter().count();
+  }
+
+  @Test
+  void pool_metrics_are_published() {
+    for (String timer : new String[] { "acquire", "usage", "creation" }) {
+      assertNotNull(meterRegistry.get("hikaricp.connections." + timer).tag("pool", "main").timer());
+    }
+    for (String gauge : new String[] { "", ".active", ".idle", ".pending", ".max", ".min" }) {
+      assertNotNull(meterRegistry.get("hikaricp.connections" + gauge).tag("pool", "main").gauge());
+    }
+    assertEquals(2.0, meterRegistry.get("hikaricp.connections.max").gauge().value());
+  }
+
+  @Test
+  void requests_fail_fast_with_service_unavailable_when_the_pool_is_exhausted() throws Exception {
+    double timeoutsBefore = timeouts();
+    MvcResult result;
+    long started = System.nanoTime();
+    try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+      result = mockMvc.perform(get("/api/HelpRequests?id=1").with(user("cgaucho").roles("USER"))).andReturn();
+    }
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+    assertEquals(503, result.getResponse().getStatus());
+    assertEquals("1", result.getResponse().getHeader("Retry-After"));
+    Map<?, ?> body = mapper.readValue(result.getResponse().getContentAsString(), Map.class);
+    assertEquals("DatabaseUnavailable", body.get("type"));
+    assertTrue(elapsed.toMillis() < 2000, "elapsed=" + elapsed);
+    assertEquals(timeoutsBefore + 1, timeouts());
+  }
+
+  @Test
+  void requests_succeed_again_once_connections_are_returned() throws Exception {
+    try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+      mockMvc.perform(get("/api/HelpRequests/all").with(user("cgaucho").roles("USER"))).andReturn();
+    }
+
+    MvcResult result = mockMvc.perform(get("/api/HelpRequests/all").with(user("cgaucho").roles("USER"))).andReturn();
+
+    assertEquals(200, result.getResponse().getStatus());
+  }
+}
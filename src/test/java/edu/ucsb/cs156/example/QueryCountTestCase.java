@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.metrics.QueryCounter;
+import edu.ucsb.cs156.example.testconfig.IntegrationTestApplication;
+import edu.ucsb.cs156.example.testconfig.RecordingQueryCounter;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Runs requests through the whole application against an in-memory H2
+ * database, so tests can pin down how many SQL statements an endpoint
+ * runs: an N+1 or an extra query on a hot path fails assertQueries.
+ *
+ * The database is shared by every test class using this base; tests
+ * create the rows they need.
+ */
+@SpringBootTest(classes = { IntegrationTestApplication.class, QueryCountTestCase.Recording.class }, properties = {
+    "spring.datasource.url=jdbc:h2:mem:querycount;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "logging.level.sql=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+@AutoConfigureMockMvc
+public abstract class QueryCountTestCase {
+
+  @TestConfiguration
+  static class Recording {
+    @Bean
+    @Primary
+    QueryCounter recordingQueryCounter() {
+      return new RecordingQueryCounter();
+    }
+  }
+
+  @Autowired
+  public MockMvc mockMvc;
+
+  @Autowired
+  public ObjectMapper mapper;
+
+  /**
+   * Performs the request (following any async dispatch) and fails unless
+   * handling it ran exactly expected SQL statements.
+   */
+  protected MvcResult assertQueries(int expected, RequestBuilder request) throws Throwable {
+    return RecordingQueryCounter.assertQueries(expected, () -> {
+      MvcResult result = mockMvc.perform(request).andReturn();
+      while (result.getRequest().isAsyncStarted()) {
+        result = mockMvc.perform(asyncDispatch(result)).andReturn();
+      }
+      return result;
+    });
+  }
+}
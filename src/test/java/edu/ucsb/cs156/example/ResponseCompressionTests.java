@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.testconfig.IntegrationTestApplication;
+
+/**
+ * Measures the bytes on the wire for /api responses through a real Tomcat
+ * (MockMvc bypasses the connector, which is where compression happens).
+ */
+@SpringBootTest(classes = { IntegrationTestApplication.class, ResponseCompressionTests.LoggedInUser.class },
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "logging.level.sql=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+class ResponseCompressionTests {
+
+  @TestConfiguration
+  static class LoggedInUser {
+    // stands in for an OAuth2 login: every request's session holds a ROLE_USER authentication
+    @Bean
+    FilterRegistrationBean<Filter> loggedInUserFilter() {
+      Filter filter = (request, response, chain) -> {
+        ((HttpServletRequest) request).getSession().setAttribute(
+            HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+            new SecurityContextImpl(new TestingAuthenticationToken("cgaucho@ucsb.edu", null, "ROLE_USER")));
+        chain.doFilter(request, response);
+      };
+      FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+      registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+      return registration;
+    }
+  }
+
+  @LocalServerPort
+  int port;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeEach
+  void seed() {
+    if (helpRequestRepository.count() > 0) {
+      return;
+    }
+    LocalDateTime start = LocalDateTime.parse("2023-10-02T08:00:00");
+    helpRequestRepository.saveAll(IntStream.range(0, 500).mapToObj(i -> HelpRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu").teamId("f23-5pm-" + (i % 8))
+        .tableOrBreakoutRoom("table " + (i % 12)).requestTime(start.plusMinutes(i))
+        .explanation("Help request " + i).solved(i % 3 == 0).build()).toList());
+  }
+
+  private HttpResponse<byte[]> get(String path, String acceptEncoding) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    if (acceptEncoding != null) {
+      request.header("Accept-Encoding", acceptEncoding);
+    }
+    // HttpClient never decompresses, so body().length is what crossed the wire
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static byte[] gunzip(byte[] body) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      return in.readAllBytes();
+    }
+  }
+
+  @Test
+  void large_all_response_is_gzipped_for_clients_that_accept_it() throws Exception {
+    HttpResponse<byte[]> identity = get("/api/HelpRequests/all", null);
+    HttpResponse<byte[]> gzipped = get("/api/HelpRequests/all", "gzip, deflate, br");
+
+    assertEquals(200, identity.statusCode());
+    assertEquals(200, gzipped.statusCode());
+    assertTrue(identity.headers().firstValue("Content-Encoding").isEmpty());
+    assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+    assertTrue(gzipped.headers().allValues("Vary").stream().anyMatch("accept-encoding"::equalsIgnoreCase),
+        gzipped.headers().allValues("Vary").toString());
+
+    int raw = identity.body().length;
+    int wire = gzipped.body().length;
+    assertTrue(raw > 50_000, "raw=" + raw);
+    assertTrue(wire * 5 < raw, "raw=" + raw + " wire=" + wire);
+    assertEquals(new String(identity.body()), new String(gunzip(gzipped.body())));
+  }
+
+  @Test
+  void responses_under_the_threshold_are_sent_as_is() throws Exception {
+    long id = helpRequestRepository.findAll().iterator().next().getId();
+
+    HttpResponse<byte[]> response = get("/api/HelpRequests?id=" + id, "gzip");
+
+    assertEquals(200, response.statusCode());
+    assertNull(response.headers().firstValue("Content-Encoding").orElse(null));
+    assertTrue(response.body().length < 2048, "length=" + response.body().length);
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ucsb.cs156.example.testconfig.IntegrationTestApplication;
+
+/**
+ * The application with spring.main.lazy-initialization on, as production
+ * runs it when LAZY_INITIALIZATION is set.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.main.lazy-initialization=true",
+    "spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "logging.level.sql=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+@AutoConfigureMockMvc
+class StartupTests {
+
+  @Autowired
+  ConfigurableListableBeanFactory beanFactory;
+
+  @Autowired
+  MockMvc mockMvc;
+
+  private List<String> apiDocsBeans() {
+    return Arrays.stream(beanFactory.getBeanDefinitionNames())
+        .filter(name -> beanFactory.getBeanDefinition(name).getResolvableType().toString().startsWith("org.springdoc."))
+        .toList();
+  }
+
+  @Test
+  void beans_are_created_on_first_use_except_those_that_must_run_at_startup() throws Exception {
+    assertTrue(beanFactory.containsSingleton("idSequenceAligner"));
+    assertFalse(beanFactory.containsSingleton("helpRequestEventFeed"));
+
+    assertFalse(apiDocsBeans().isEmpty());
+    apiDocsBeans().forEach(name -> assertTrue(beanFactory.getBeanDefinition(name).isLazyInit(), name));
+
+    // generating the docs looks at every controller, which creates them and their dependencies
+    assertEquals(200, mockMvc.perform(get("/v3/api-docs")).andReturn().getResponse().getStatus());
+    assertTrue(beanFactory.containsSingleton("helpRequestEventFeed"));
+  }
+}
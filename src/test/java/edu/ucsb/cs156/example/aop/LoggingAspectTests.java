@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import edu.ucsb.cs156.example.controllers.FrontendProxyController;
+
+class LoggingAspectTests {
+
+  public static class Handler {
+    @GetMapping("/api/test")
+    public int handle() {
+      return 42;
+    }
+  }
+
+  /** Records the join point Spring AOP builds for a call, so tests can hand it to LoggingAspect. */
+  @Aspect
+  public static class CapturingAspect {
+    JoinPoint joinPoint;
+
+    @Before("execution(* *(..))")
+    public void capture(JoinPoint joinPoint) {
+      this.joinPoint = joinPoint;
+    }
+  }
+
+  private final LoggingAspect aspect = new LoggingAspect();
+  private final Logger logger = (Logger) LoggerFactory.getLogger(LoggingAspect.class);
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+  private Level originalLevel;
+
+  @BeforeEach
+  void setup() {
+    originalLevel = logger.getLevel();
+    logger.setLevel(Level.INFO);
+    appender.start();
+    logger.addAppender(appender);
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/test")));
+  }
+
+  @AfterEach
+  void teardown() {
+    logger.detachAppender(appender);
+    logger.setLevel(originalLevel);
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private static JoinPoint joinPointFor(Object target, java.util.function.Consumer<Object> call) {
+    CapturingAspect capturing = new CapturingAspect();
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(capturing);
+    call.accept(factory.getProxy());
+    return capturing.joinPoint;
+  }
+
+  private static JoinPoint handlerJoinPoint() {
+    return joinPointFor(new Handler(), proxy -> ((Handler) proxy).handle());
+  }
+
+  private List<String> messages() {
+    return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+  }
+
+  @Test
+  void test_logs_request_and_handler() {
+    JoinPoint joinPoint = handlerJoinPoint();
+
+    aspect.logControllers(joinPoint);
+    aspect.logControllers(joinPoint);
+
+    String expected = "===== GET /api/test handled by handle in edu.ucsb.cs156.example.aop.LoggingAspectTests$Handler";
+    assertEquals(List.of(expected, expected), messages());
+  }
+
+  @Test
+  void test_does_not_log_outside_a_request() {
+    RequestContextHolder.resetRequestAttributes();
+
+    aspect.logControllers(handlerJoinPoint());
+
+    assertEquals(List.of(), messages());
+  }
+
+  @Test
+  void test_does_not_log_stoplisted_controllers() {
+    JoinPoint joinPoint = joinPointFor(new FrontendProxyController("http://localhost:3000", 30),
+        proxy -> assertThrows(NullPointerException.class, () -> ((FrontendProxyController) proxy).proxy(null)));
+
+    aspect.logControllers(joinPoint);
+    aspect.logControllers(joinPoint);
+
+    assertEquals(List.of(), messages());
+  }
+
+  @Test
+  void test_allocates_nothing_when_info_is_disabled() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    JoinPoint joinPoint = handlerJoinPoint();
+    logger.setLevel(Level.WARN);
+    int calls = 100_000;
+    for (int i = 0; i < calls; i++) {
+      aspect.logControllers(joinPoint);
+    }
+
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < calls; i++) {
+      aspect.logControllers(joinPoint);
+    }
+    long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+    // any object allocated per call is at least 16 bytes; allow for background noise (JIT, agents) well below that
+    assertEquals(List.of(), messages());
+    assertTrue(allocated < calls, "expected no allocation per call, measured %d bytes for %d calls".formatted(allocated, calls));
+  }
+}
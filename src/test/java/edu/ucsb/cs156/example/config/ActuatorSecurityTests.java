@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import edu.ucsb.cs156.example.QueryCountTestCase;
+
+class ActuatorSecurityTests extends QueryCountTestCase {
+
+  @Autowired
+  SecurityConfig securityConfig;
+
+  @AfterEach
+  void noManagementPort() {
+    securityConfig.managementPort = null;
+  }
+
+  @Test
+  void logged_out_users_cannot_read_the_actuator() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isForbidden());
+  }
+
+  @Test
+  void logged_in_regular_users_cannot_read_the_actuator() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus").with(user("cgaucho@ucsb.edu").roles("USER")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void admins_can_read_the_actuator() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus").with(user("admin@ucsb.edu").roles("ADMIN", "USER")))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void a_scraper_on_the_management_port_needs_no_login() throws Exception {
+    securityConfig.managementPort = 9090;
+
+    mockMvc.perform(get("/actuator/prometheus").with(request -> {
+      request.setLocalPort(9090);
+      return request;
+    })).andExpect(status().isOk());
+    // the same request on the application's port still needs an admin
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+  }
+}
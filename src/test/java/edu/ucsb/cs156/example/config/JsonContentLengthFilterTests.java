@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class JsonContentLengthFilterTests {
+
+  private final JsonContentLengthFilter filter = new JsonContentLengthFilter(2048);
+  private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/things");
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void small_json_is_held_and_sent_with_a_content_length() throws Exception {
+    filter.doFilter(request, response, (req, res) -> {
+      res.setContentType("application/json");
+      res.getOutputStream().write(utf8("{\"a\":1}"));
+      res.flushBuffer();
+      assertFalse(response.isCommitted());
+    });
+
+    assertEquals("{\"a\":1}", response.getContentAsString());
+    assertEquals(7, response.getContentLength());
+  }
+
+  @Test
+  void reset_buffer_and_reset_drop_the_held_bytes() throws Exception {
+    filter.doFilter(request, response, (req, res) -> {
+      res.setContentType("application/json");
+      ServletOutputStream out = res.getOutputStream();
+      out.write(utf8("{\"partial\":"));
+      res.resetBuffer();
+      out.write(utf8("{\"error\":"));
+      res.reset();
+      res.setContentType("application/json");
+      out.write(utf8("{\"b\":2}"));
+    });
+
+    assertEquals("{\"b\":2}", response.getContentAsString());
+    assertEquals(7, response.getContentLength());
+  }
+
+  @Test
+  void an_async_request_streams_what_is_held_and_everything_after() throws Exception {
+    request.setAsyncSupported(true);
+    ServletOutputStream[] out = new ServletOutputStream[1];
+    filter.doFilter(request, response, (req, res) -> {
+      req.startAsync();
+      res.setContentType("application/json");
+      out[0] = res.getOutputStream();
+      out[0].write(utf8("[1,"));
+    });
+
+    assertEquals("[1,", response.getContentAsString());
+    // written later, from another thread, after the filter has returned
+    out[0].write(utf8("2]"));
+    assertEquals("[1,2]", response.getContentAsString());
+    assertEquals(0, response.getContentLength());
+  }
+
+  @Test
+  void a_write_listener_gets_the_held_bytes_then_the_container_stream() throws Exception {
+    HttpServletResponse container = mock(HttpServletResponse.class);
+    ServletOutputStream containerOut = mock(ServletOutputStream.class);
+    when(container.getContentType()).thenReturn("application/json");
+    when(container.getOutputStream()).thenReturn(containerOut);
+    when(containerOut.isReady()).thenReturn(false);
+    WriteListener listener = mock(WriteListener.class);
+    FilterChain chain = (req, res) -> {
+      ServletOutputStream out = res.getOutputStream();
+      out.write(utf8("[1,"));
+      // held in memory, so it can take more without blocking
+      assertTrue(out.isReady());
+      out.setWriteListener(listener);
+      assertFalse(out.isReady());
+    };
+
+    filter.doFilter(request, container, chain);
+
+    verify(containerOut).write(utf8("[1,"));
+    verify(containerOut).setWriteListener(listener);
+  }
+
+  @Test
+  void other_content_types_are_not_wrapped() throws Exception {
+    filter.doFilter(request, response, (req, res) -> {
+      res.setContentType("text/event-stream");
+      res.getOutputStream().write(utf8("data: 1\n\n"));
+    });
+
+    assertEquals("data: 1\n\n", response.getContentAsString());
+    assertNull(response.getHeader("Content-Length"));
+  }
+}
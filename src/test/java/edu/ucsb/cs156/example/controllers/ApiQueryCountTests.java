@@ -0,0 +1,276 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.QueryCountTestCase;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchIndex;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.RecommendationDeadlines;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * The number of SQL statements behind the hot /api endpoints, with enough
+ * rows in each table that an N+1 would show up as dozens of extra queries.
+ */
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class ApiQueryCountTests extends QueryCountTestCase {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2023-10-02T08:00:00");
+  private static final int ROWS = 40;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingService menuItemRatingService;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  ArticleSearchIndex articleSearchIndex;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  RecommendationDeadlines recommendationDeadlines;
+
+  @Autowired
+  ReferenceTableCache<String, UCSBOrganization> ucsbOrganizationCache;
+
+  @Autowired
+  ReferenceTableCache<String, UCSBDiningCommons> ucsbDiningCommonsCache;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  UCSBDateCalendar ucsbDateCalendar;
+
+  List<HelpRequest> helpRequests;
+
+  @BeforeEach
+  void seed() {
+    helpRequestRepository.deleteAll();
+    helpRequests = (List<HelpRequest>) helpRequestRepository.saveAll(IntStream.range(0, ROWS)
+        .mapToObj(i -> HelpRequest.builder()
+            .requesterEmail("student" + i + "@ucsb.edu").teamId("f23-5pm-" + (i % 4))
+            .tableOrBreakoutRoom("table " + i).requestTime(START.plusMinutes(i))
+            .explanation("help " + i).solved(i % 3 == 0).build())
+        .toList());
+    if (ucsbDateRepository.count() == 0) {
+      ucsbDateRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> UCSBDate.builder()
+          .quarterYYYYQ("20234").name("date " + i).localDateTime(START.plusDays(i)).build()).toList());
+      ucsbOrganizationRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> UCSBOrganization.builder()
+          .orgCode("ORG" + i).orgTranslationShort("Org " + i).orgTranslation("Organization " + i).build()).toList());
+      ucsbDiningCommonsRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> UCSBDiningCommons.builder()
+          .code("dc" + i).name("Commons " + i).latitude(34.41 + i * 0.001).longitude(-119.84).build()).toList());
+      menuItemReviewRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> MenuItemReview.builder()
+          .itemId(i % 5).reviewerEmail("r" + i + "@ucsb.edu").stars(1 + i % 5)
+          .dateReviewed(START.plusMinutes(i)).comments("review " + i).build()).toList());
+      menuItemRatingService.rebuild();
+      articlesRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> Articles.builder()
+          .title("Article " + i).url("https://example.org/" + i).explanation("about topic " + (i % 8))
+          .email("a" + i + "@ucsb.edu").dateAdded(START.plusDays(i)).build()).toList());
+      articleSearchIndex.refresh();
+      // half of them overdue, half due over the next few weeks
+      LocalDateTime now = LocalDateTime.now();
+      recommendationRequestRepository.saveAll(IntStream.range(0, ROWS).mapToObj(i -> RecommendationRequest.builder()
+          .requesterEmail("student" + i + "@ucsb.edu").professorEmail("prof@ucsb.edu").explanation("request " + i)
+          .dateRequested(now.minusDays(30)).dateNeeded(now.plusDays(i - ROWS / 2).plusHours(12)).done(false).build()).toList());
+      recommendationDeadlines.refresh();
+    }
+    ucsbOrganizationCache.invalidateAll();
+    ucsbDiningCommonsCache.invalidateAll();
+    // so the first write in a test bumps an existing row rather than creating it
+    tableVersions.bump("helprequest");
+    tableVersions.bump("ucsbdates");
+    ucsbDateCalendar.refresh();
+  }
+
+  private int length(MvcResult result) throws Exception {
+    return mapper.readTree(result.getResponse().getContentAsString()).size();
+  }
+
+  @Test
+  public void help_requests_all_is_the_version_and_one_select() throws Throwable {
+    MvcResult result = assertQueries(2, get("/api/HelpRequests/all"));
+    assertEquals(ROWS, length(result));
+  }
+
+  @Test
+  public void help_requests_all_not_modified_only_reads_the_version() throws Throwable {
+    String etag = mockMvc.perform(get("/api/HelpRequests/all")).andReturn().getResponse().getHeader("ETag");
+
+    MvcResult result = assertQueries(1, get("/api/HelpRequests/all").header("If-None-Match", etag));
+    assertEquals(304, result.getResponse().getStatus());
+  }
+
+  @Test
+  public void help_requests_ndjson_export_is_one_select() throws Throwable {
+    MvcResult result = assertQueries(1, get("/api/HelpRequests/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE));
+    assertEquals(ROWS, result.getResponse().getContentAsString().lines().count());
+  }
+
+  @Test
+  public void help_requests_pages_are_one_select_each() throws Throwable {
+    assertQueries(1, get("/api/HelpRequests/page?limit=10"));
+    assertQueries(1, get("/api/HelpRequests/page?limit=10&teamId=f23-5pm-1&unsolvedOnly=true"));
+  }
+
+  @Test
+  public void help_request_by_id_is_one_select() throws Throwable {
+    assertQueries(1, get("/api/HelpRequests?id=" + helpRequests.get(0).getId()));
+  }
+
+  @Test
+  public void help_request_update_is_two_selects_and_two_updates() throws Throwable {
+    HelpRequest edited = helpRequests.get(1);
+    edited.setSolved(true);
+
+    // findById, then save() merges the detached row and reads it again; then the version is bumped and read back
+    assertQueries(5, put("/api/HelpRequests?id=" + edited.getId())
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(edited))
+        .with(csrf()));
+  }
+
+  @Test
+  public void help_request_patch_is_two_updates_and_two_selects() throws Throwable {
+    HelpRequest edited = helpRequests.get(1);
+
+    // solved as of the patch's version, the versioned update of just the solved column, findById for the response,
+    // and the table version bump and read back
+    MvcResult result = assertQueries(5, patch("/api/HelpRequests?id=" + edited.getId())
+        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+        .content("{\"version\": %d, \"solved\": true}".formatted(edited.getVersion()))
+        .with(csrf()));
+    assertEquals(edited.getVersion() + 1, mapper.readTree(result.getResponse().getContentAsString()).get("version").asLong());
+  }
+
+  @Test
+  public void help_request_delete_is_one_delete_and_the_version_bump() throws Throwable {
+    long id = helpRequests.get(2).getId();
+    assertEquals(200, assertQueries(3, delete("/api/HelpRequests?id=" + id).with(csrf())).getResponse().getStatus());
+    // and so is finding out that the row is already gone
+    assertEquals(404, assertQueries(1, delete("/api/HelpRequests?id=" + id).with(csrf())).getResponse().getStatus());
+  }
+
+  @Test
+  public void ucsb_dates_all_is_the_version_and_one_select() throws Throwable {
+    MvcResult result = assertQueries(2, get("/api/ucsbdates/all"));
+    assertEquals(ROWS, length(result));
+  }
+
+  @Test
+  public void ucsb_dates_of_a_past_quarter_are_the_version_and_one_select() throws Throwable {
+    MvcResult result = assertQueries(2, get("/api/ucsbdates/quarter?quarterYYYYQ=20234"));
+    assertEquals(ROWS, length(result));
+    assertEquals(ROWS, length(assertQueries(2, get("/api/ucsbdates/quarters?first=20231&last=20234"))));
+  }
+
+  @Test
+  public void ucsb_dates_of_the_current_quarter_only_read_the_version() throws Throwable {
+    LocalDate today = LocalDate.now();
+    String quarter = "%04d%d".formatted(today.getYear(), (today.getMonthValue() - 1) / 3 + 1);
+    MvcResult posted = mockMvc.perform(post("/api/ucsbdates/post?name=today&quarterYYYYQ=" + quarter
+        + "&localDateTime=" + today.atStartOfDay()).with(csrf())).andReturn();
+    long id = mapper.readTree(posted.getResponse().getContentAsString()).get("id").asLong();
+
+    // writes through this instance are already in memory, so the reads after them reload nothing
+    assertEquals(1, length(assertQueries(1, get("/api/ucsbdates/quarter?quarterYYYYQ=" + quarter))));
+
+    mockMvc.perform(delete("/api/ucsbdates?id=" + id).with(csrf()));
+    assertEquals(0, length(assertQueries(1, get("/api/ucsbdates/quarter?quarterYYYYQ=" + quarter))));
+
+    // a write through another instance is read back by id
+    tableVersions.bump(UCSBDatesController.TABLE, List.of(id));
+    assertEquals(0, length(assertQueries(4, get("/api/ucsbdates/quarter?quarterYYYYQ=" + quarter))));
+  }
+
+  @Test
+  public void reference_tables_are_read_once_then_only_their_version_is() throws Throwable {
+    assertQueries(2, get("/api/ucsborganization/all"));
+    assertQueries(1, get("/api/ucsborganization/all"));
+    assertQueries(2, get("/api/ucsborganization?orgCode=ORG3"));
+    assertQueries(1, get("/api/ucsborganization?orgCode=ORG3"));
+
+    assertQueries(2, get("/api/ucsbdiningcommons?code=dc3"));
+    assertQueries(1, get("/api/ucsbdiningcommons?code=dc3"));
+
+    // a write through another instance
+    tableVersions.bump("ucsborganization", List.of("ORG3"));
+    assertQueries(2, get("/api/ucsborganization?orgCode=ORG3"));
+    assertQueries(1, get("/api/ucsborganization?orgCode=ORG3"));
+  }
+
+  @Test
+  public void nearest_dining_commons_only_reads_the_version() throws Throwable {
+    MvcResult result = assertQueries(1, get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.84&k=5"));
+    assertEquals(5, length(result));
+  }
+
+  @Test
+  public void menu_item_ratings_come_from_the_aggregate_table() throws Throwable {
+    MvcResult all = assertQueries(1, get("/api/menuitemreview/stats"));
+    assertEquals(5, length(all));
+    assertQueries(1, get("/api/menuitemreview/stats?itemId=3"));
+  }
+
+  @Test
+  public void article_search_only_reads_the_version() throws Throwable {
+    MvcResult result = assertQueries(1, get("/api/articles/search?q=topic 3&limit=100"));
+    assertEquals(ROWS, length(result));
+  }
+
+  @Test
+  public void recommendation_deadlines_only_read_the_version() throws Throwable {
+    assertEquals(ROWS / 2, length(assertQueries(1, get("/api/recommendationrequest/overdue"))));
+    assertEquals(ROWS / 2, length(assertQueries(1, get("/api/recommendationrequest/due?days=365"))));
+  }
+}
@@ -2,6 +2,7 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
@@ -17,11 +18,19 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.ArticleSearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -32,6 +41,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = ArticlesController.class)
 @Import(TestConfig.class)
@@ -43,6 +53,16 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        ArticleSearchIndex articleSearchIndex;
+
+        @MockBean
+        TableVersions tableVersions;
+
         // Tests for GET /api/articles/all
         
         @Test
@@ -130,7 +150,17 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         .dateAdded(ldt1)
                         .build();
 
-                when(articlesRepository.save(eq(articles1))).thenReturn(articles1);
+                Articles savedArticles = Articles.builder()
+                        .id(1L)
+                        .title("how to make an article")
+                        .url("url.com/article1")
+                        .explanation("this is self explanatory")
+                        .email("katytsao@ucsb.edu")
+                        .dateAdded(ldt1)
+                        .build();
+
+                when(articlesRepository.save(eq(articles1))).thenReturn(savedArticles);
+                when(tableVersions.bump(ArticleSearchIndex.TABLE, List.of(1L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -140,7 +170,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articlesRepository, times(1)).save(articles1);
-                String expectedJson = mapper.writeValueAsString(articles1);
+                verify(articleSearchIndex, times(1)).put(savedArticles, 7L);
+                String expectedJson = mapper.writeValueAsString(savedArticles);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
@@ -231,6 +262,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
                 when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(tableVersions.bump(ArticleSearchIndex.TABLE, List.of(67L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -244,6 +276,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 // assert
                 verify(articlesRepository, times(1)).findById(67L);
                 verify(articlesRepository, times(1)).save(articleEdited); // should be saved with correct user
+                verify(articleSearchIndex, times(1)).put(articleEdited, 7L);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -290,18 +323,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_delete_an_article() throws Exception {
                 // arrange
-
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                Articles articles1 = Articles.builder()
-                        .title("how to make an article")
-                        .url("url.com/article1")
-                        .explanation("this is self explanatory")
-                        .email("katytsao@ucsb.edu")
-                        .dateAdded(ldt1)
-                        .build();
-
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(articles1));
+                when(articlesRepository.deleteRowById(eq(15L))).thenReturn(1);
+                when(tableVersions.bump(ArticleSearchIndex.TABLE, List.of(15L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,8 +333,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(any());
+                verify(articlesRepository, times(1)).deleteRowById(15L);
+                verify(articlesRepository, never()).findById(any());
+                verify(articleSearchIndex, times(1)).remove(15L, 7L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -323,7 +347,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -332,9 +356,85 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearchIndex, never()).remove(anyLong(), anyLong());
+                verify(tableVersions, never()).bump(any(), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
 
+
+        // Tests for GET /api/articles/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/articles/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_articles_as_ndjson() throws Exception {
+
+                // arrange
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+                // act
+                mockMvc.perform(get("/api/articles/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().isOk());
+
+                // assert: rows come from the streaming query, never from findAll
+                ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(articlesRepository, times(1)).streamAll();
+                verify(articlesRepository, never()).findAll();
+        }
+
+        // Tests for GET /api/articles/search?q=...
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=tests"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_articles() throws Exception {
+
+                // arrange
+                Articles articles1 = Articles.builder()
+                                .id(3L)
+                                .title("how to make good tests")
+                                .url("url.com/testers")
+                                .explanation("testing is very good")
+                                .email("katytsao@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                List<ArticleSearchHit> hits = List.of(new ArticleSearchHit(articles1, 1.5));
+
+                when(articleSearchIndex.search(eq("good tests"), eq(20))).thenReturn(hits);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=good tests"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert: answered by the index, never the database
+                verify(articleSearchIndex, times(1)).search("good tests", 20);
+                verify(articlesRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(hits), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_limit_is_capped() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=tests&limit=5"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/articles/search?q=tests&limit=100000"))
+                                .andExpect(status().isOk());
+
+                verify(articleSearchIndex, times(1)).search("tests", 5);
+                verify(articleSearchIndex, times(1)).search("tests", ArticlesController.MAX_SEARCH_RESULTS);
+        }
 }
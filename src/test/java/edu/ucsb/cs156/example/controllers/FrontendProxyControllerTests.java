@@ -0,0 +1,158 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ActiveProfiles("development")
+@WebMvcTest(controllers = FrontendProxyController.class)
+@Import(TestConfig.class)
+public class FrontendProxyControllerTests extends ControllerTestCase {
+
+  // stands in for the React dev server on localhost:3000
+  static HttpServer devServer;
+  static final byte[] BUNDLE = new byte[3 * 1024 * 1024];
+  static final List<String> requests = new CopyOnWriteArrayList<>();
+  static final List<Integer> remotePorts = new CopyOnWriteArrayList<>();
+
+  @MockBean
+  UserRepository userRepository;
+
+  @BeforeAll
+  static void startDevServer() throws IOException {
+    for (int i = 0; i < BUNDLE.length; i++) {
+      BUNDLE[i] = (byte) ('a' + i % 26);
+    }
+    devServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    devServer.createContext("/", exchange -> {
+      requests.add(exchange.getRequestURI() + " " + exchange.getRequestHeaders().getFirst("If-None-Match"));
+      remotePorts.add(exchange.getRemoteAddress().getPort());
+      String path = exchange.getRequestURI().getPath();
+      if (path.equals("/slow")) {
+        try {
+          Thread.sleep(3000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      byte[] body = path.equals("/static/js/bundle.js") ? BUNDLE : "<html>index</html>".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", path.endsWith(".js") ? "application/javascript" : "text/html");
+      exchange.getResponseHeaders().add("ETag", "\"v1\"");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    devServer.setExecutor(Executors.newCachedThreadPool());
+    devServer.start();
+  }
+
+  @AfterAll
+  static void stopDevServer() {
+    devServer.stop(0);
+  }
+
+  @DynamicPropertySource
+  static void devServerUrl(DynamicPropertyRegistry registry) {
+    registry.add("app.frontendProxy.url", () -> "http://localhost:" + devServer.getAddress().getPort() + "/");
+    registry.add("app.frontendProxy.timeoutSeconds", () -> "1");
+  }
+
+  private MvcResult proxied(MvcResult started) throws Exception {
+    // first the wait for the dev server's headers, then the streamed body
+    MvcResult relayed = mockMvc.perform(asyncDispatch(started)).andReturn();
+    return relayed.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(relayed)).andReturn() : relayed;
+  }
+
+  @Test
+  public void large_assets_are_streamed_through_with_their_headers() throws Exception {
+    MvcResult started = mockMvc.perform(get("/static/js/bundle.js?v=2"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult response = proxied(started);
+
+    assertEquals(200, response.getResponse().getStatus());
+    assertEquals("application/javascript", response.getResponse().getContentType());
+    assertEquals("\"v1\"", response.getResponse().getHeader("ETag"));
+    assertArrayEquals(BUNDLE, response.getResponse().getContentAsByteArray());
+    assertTrue(requests.contains("/static/js/bundle.js?v=2 null"), requests.toString());
+  }
+
+  @Test
+  public void conditional_requests_are_forwarded() throws Exception {
+    MvcResult response = proxied(mockMvc.perform(get("/").header("If-None-Match", "\"v1\"")).andReturn());
+
+    assertEquals(304, response.getResponse().getStatus());
+    assertEquals("\"v1\"", response.getResponse().getHeader("ETag"));
+    assertTrue(requests.contains("/ \"v1\""), requests.toString());
+  }
+
+  @Test
+  public void connections_to_the_dev_server_are_reused() throws Exception {
+    remotePorts.clear();
+    for (int i = 0; i < 3; i++) {
+      MvcResult response = proxied(mockMvc.perform(get("/")).andReturn());
+      assertEquals("<html>index</html>", response.getResponse().getContentAsString());
+    }
+
+    assertEquals(3, remotePorts.size());
+    assertEquals(1, remotePorts.stream().distinct().count(), remotePorts.toString());
+  }
+
+  @Test
+  public void slow_dev_server_gets_gateway_timeout() throws Exception {
+    MvcResult response = proxied(mockMvc.perform(get("/slow")).andReturn());
+
+    assertEquals(504, response.getResponse().getStatus());
+  }
+
+  @Test
+  public void dev_server_not_running_gets_instructions() throws Exception {
+    // nothing listens on port 1
+    FrontendProxyController controller = new FrontendProxyController("http://localhost:1", 1);
+
+    ResponseEntity<StreamingResponseBody> response = controller.proxy(new MockHttpServletRequest("GET", "/")).get();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    response.getBody().writeTo(body);
+
+    assertEquals(200, response.getStatusCodeValue());
+    assertTrue(body.toString(StandardCharsets.UTF_8).contains("npm install; npm start"), body.toString());
+  }
+}
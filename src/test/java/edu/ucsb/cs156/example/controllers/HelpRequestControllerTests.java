@@ -4,15 +4,22 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,16 +31,35 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.HelpRequestEventFeed;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableChangeRepository;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.mockito.ArgumentCaptor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = HelpRequestController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, TableVersions.class })
 public class HelpRequestControllerTests extends ControllerTestCase {
     @MockBean
     HelpRequestRepository helpRequestRepository;
@@ -41,6 +67,16 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    HelpRequestEventFeed helpRequestEventFeed;
+
+    @MockBean
+    MergePatchService mergePatchService;
+
     // test for GET
     
     @Test
@@ -86,19 +122,279 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             ArrayList<HelpRequest> expectedHelpRequests = new ArrayList<>();
             expectedHelpRequests.addAll(Arrays.asList(helpRequest1, helpRequest2));
 
-            when(helpRequestRepository.findAll()).thenReturn(expectedHelpRequests);
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 1001)))).thenReturn(expectedHelpRequests);
             // act
             MvcResult response = mockMvc.perform(get("/api/HelpRequests/all"))
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(helpRequestRepository, times(1)).findAll();
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 1001)));
+            verify(helpRequestRepository, never()).findAll();
             String expectedJson = mapper.writeValueAsString(expectedHelpRequests);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
             
     }
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_links_to_the_page_with_the_rest_when_it_leaves_rows_out() throws Exception {
+
+            // arrange
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 1001))))
+                            .thenReturn(helpRequestsWithIds(1L, 1001));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/all"))
+                            .andExpect(status().isOk())
+                            .andExpect(header().string("Link", "</api/HelpRequests/page?cursor=%s>; rel=\"next\"".formatted(KeysetPage.encodeCursor(1000L))))
+                            .andExpect(header().string("ETag", "W/\"helprequest-0-0\""))
+                            .andReturn();
+
+            // assert
+            assertEquals(mapper.writeValueAsString(helpRequestsWithIds(1L, 1000)), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_has_no_link_when_it_returns_every_row() throws Exception {
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 1001))))
+                            .thenReturn(helpRequestsWithIds(1L, 1000));
+
+            mockMvc.perform(get("/api/HelpRequests/all"))
+                            .andExpect(status().isOk())
+                            .andExpect(header().doesNotExist("Link"));
+    }
+
+    // Tests for conditional GET /api/HelpRequests/all
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @MockBean
+    TableVersionRepository tableVersionRepository;
+
+    @MockBean
+    TableChangeRepository tableChangeRepository;
+
+    @BeforeEach
+    public void counter_rows_exist() {
+            when(tableVersionRepository.increment(anyString())).thenReturn(1);
+            when(tableVersionRepository.findVersion(anyString())).thenReturn(Optional.of(1L));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_answers_a_matching_if_none_match_with_304_without_a_query() throws Exception {
+
+            // arrange
+            when(tableVersionRepository.findById(eq("helprequest")))
+                            .thenReturn(Optional.of(TableVersion.builder().tableName("helprequest").epoch(1L).version(3L).build()));
+            String etag = tableVersions.etag("helprequest");
+            assertEquals("W/\"helprequest-1-3\"", etag);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/all").header("If-None-Match", etag))
+                            .andExpect(status().isNotModified())
+                            .andExpect(header().string("ETag", etag))
+                            .andReturn();
+
+            // assert
+            assertEquals("", response.getResponse().getContentAsString());
+            verify(helpRequestRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void every_write_bumps_the_version() throws Exception {
+
+            // arrange
+            HelpRequest helpRequest = helpRequestsWithIds(7L, 1).get(0);
+            when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.of(helpRequest));
+            when(helpRequestRepository.deleteRowById(eq(7L))).thenReturn(1);
+            mockMvc.perform(get("/api/HelpRequests/all"))
+                            .andExpect(status().isOk())
+                            .andExpect(header().string("ETag", "W/\"helprequest-0-0\""))
+                            .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+            // act
+            mockMvc.perform(post("/api/HelpRequests/post?requesterEmail=cgaucho@ucsb.edu&teamId=s22-5pm-3&tableOrBreakoutRoom=7&requestTime=2022-04-20T17:35&explanation=Need help&solved=false")
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+            mockMvc.perform(put("/api/HelpRequests?id=7")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(helpRequest))
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+            mockMvc.perform(delete("/api/HelpRequests?id=7").with(csrf()))
+                            .andExpect(status().isOk());
+
+            // assert
+            verify(tableVersionRepository, times(3)).increment("helprequest");
+    }
+
+    // Tests for GET /api/HelpRequests/page
+
+    private List<HelpRequest> helpRequestsWithIds(long firstId, int count) {
+            List<HelpRequest> helpRequests = new ArrayList<>();
+            for (long id = firstId; id < firstId + count; id++) {
+                    helpRequests.add(HelpRequest.builder()
+                                    .id(id)
+                                    .requesterEmail("student" + id + "@ucsb.edu")
+                                    .teamId("teamId")
+                                    .tableOrBreakoutRoom("table")
+                                    .requestTime(LocalDateTime.parse("2021-10-01T00:00:00"))
+                                    .explanation("explanation")
+                                    .solved(false)
+                                    .build());
+            }
+            return helpRequests;
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+            mockMvc.perform(get("/api/HelpRequests/page"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_first_page_and_cursor_when_more_rows_exist() throws Exception {
+
+            // arrange
+            List<HelpRequest> rows = helpRequestsWithIds(1L, 3);
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3)))).thenReturn(rows);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/page?limit=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3)));
+            KeysetPage<HelpRequest> expectedPage = KeysetPage.<HelpRequest>builder()
+                            .content(rows.subList(0, 2))
+                            .nextCursor(KeysetPage.encodeCursor(2L))
+                            .build();
+            String expectedJson = mapper.writeValueAsString(expectedPage);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_follow_cursor_to_last_page() throws Exception {
+
+            // arrange
+            List<HelpRequest> rows = helpRequestsWithIds(3L, 1);
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3)))).thenReturn(rows);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/page?limit=2&afterId=99&cursor=" + KeysetPage.encodeCursor(2L)))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3)));
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(1, ((List<?>) json.get("content")).size());
+            assertNull(json.get("nextCursor"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_page_using_afterId() throws Exception {
+
+            // arrange
+            List<HelpRequest> rows = helpRequestsWithIds(11L, 2);
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), eq(PageRequest.of(0, 51)))).thenReturn(rows);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/page?afterId=10"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(10L), eq(PageRequest.of(0, 51)));
+            String expectedJson = mapper.writeValueAsString(KeysetPage.<HelpRequest>builder().content(rows).build());
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void page_size_is_bounded_no_matter_how_large_the_table_or_limit() throws Exception {
+
+            // act
+            mockMvc.perform(get("/api/HelpRequests/page?limit=1000000"))
+                            .andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?limit=0"))
+                            .andExpect(status().isOk());
+
+            // assert: never more than MAX_PAGE_SIZE + 1 rows are loaded, and never findAll
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, HelpRequestController.MAX_PAGE_SIZE + 1)));
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+            verify(helpRequestRepository, never()).findAll();
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_filter_a_page() throws Exception {
+
+            // arrange
+            HelpRequestFilter filter = HelpRequestFilter.builder()
+                            .requesterEmail("student3@ucsb.edu")
+                            .teamId("teamId")
+                            .unsolvedOnly(true)
+                            .requestedFrom(LocalDateTime.parse("2021-10-01T00:00:00"))
+                            .requestedTo(LocalDateTime.parse("2021-10-02T00:00:00"))
+                            .build();
+            List<HelpRequest> rows = helpRequestsWithIds(3L, 3);
+            when(helpRequestRepository.findByFilter(eq(filter), eq(2L), eq(3))).thenReturn(rows);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/page?limit=2&afterId=2&requesterEmail=student3@ucsb.edu&teamId=teamId"
+                                            + "&unsolvedOnly=true&requestedFrom=2021-10-01T00:00:00&requestedTo=2021-10-02T00:00:00"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).findByFilter(eq(filter), eq(2L), eq(3));
+            verify(helpRequestRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+            KeysetPage<HelpRequest> expectedPage = KeysetPage.<HelpRequest>builder()
+                            .content(rows.subList(0, 2))
+                            .nextCursor(KeysetPage.encodeCursor(4L))
+                            .build();
+            assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void each_filter_on_its_own_uses_the_filtered_query() throws Exception {
+
+            // act
+            mockMvc.perform(get("/api/HelpRequests/page?teamId=team01")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?unsolvedOnly=true")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?requestedFrom=2021-10-01T00:00:00")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?requestedTo=2021-10-01T00:00:00")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?requesterEmail=student3@ucsb.edu")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/HelpRequests/page?unsolvedOnly=false")).andExpect(status().isOk());
+
+            // assert
+            verify(helpRequestRepository, times(5)).findByFilter(any(), eq(0L), eq(51));
+            verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 51)));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void invalid_cursor_gets_bad_request() throws Exception {
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/HelpRequests/page?cursor=not-a-cursor"))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("InvalidCursorException", json.get("type"));
+            assertEquals("cursor not-a-cursor is not valid", json.get("message"));
+    }
+
     // Tests for POST /api/HelpRequests/post...
 
     @Test
@@ -138,6 +434,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             // assert
 
             verify(helpRequestRepository, times(1)).save(helpRequest1);
+            verify(helpRequestEventFeed, times(1)).created(helpRequest1);
             String expectedJson = mapper.writeValueAsString(helpRequest1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -200,17 +497,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @Test
     public void admin_can_delete_a_date() throws Exception {
             // arrange
-
-
-            HelpRequest helpRequest1 = HelpRequest.builder()
-                            .requesterEmail("student@ucsb.edu")
-                            .teamId("teamId")
-                            .tableOrBreakoutRoom("table")
-                            .requestTime(LocalDateTime.parse("2021-10-01T00:00:00"))
-                            .explanation("explanation")
-                            .solved(false)
-                            .build();
-            when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helpRequest1));
+            when(helpRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -219,8 +506,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(helpRequestRepository, times(1)).findById(15L);
-            verify(helpRequestRepository, times(1)).delete(any());
+            verify(helpRequestRepository, times(1)).deleteRowById(15L);
+            verify(helpRequestRepository, never()).findById(any());
+            verify(helpRequestEventFeed, times(1)).deleted(15L);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -232,7 +520,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(helpRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -241,7 +529,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(helpRequestRepository, times(1)).findById(15L);
+            verify(helpRequestRepository, times(1)).deleteRowById(15L);
+            verify(helpRequestEventFeed, never()).deleted(anyLong());
             Map<String, Object> json = responseToJson(response);
             assertEquals("HelpRequest with id 15 not found", json.get("message"));
     }
@@ -286,6 +575,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             // assert
             verify(helpRequestRepository, times(1)).findById(67L);
             verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
+            verify(helpRequestEventFeed, times(1)).updated(helpRequestEdited, false); // was unsolved before the edit
             String responseString = response.getResponse().getContentAsString();
             assertEquals(requestBody, responseString);
     }
@@ -326,6 +616,251 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
     }
-    
 
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void edit_that_loses_a_race_with_another_edit_gets_conflict() throws Exception {
+            // arrange
+            HelpRequest helpRequest = helpRequestsWithIds(67L, 1).get(0);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequest));
+            when(helpRequestRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(HelpRequest.class, 67L));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/HelpRequests?id=67")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(mapper.writeValueAsString(helpRequest))
+                                            .with(csrf()))
+                            .andExpect(status().isConflict()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("VersionConflictException", json.get("type"));
+            assertEquals("the row was changed by someone else since it was read; reload it and try again", json.get("message"));
+            verify(helpRequestEventFeed, never()).updated(any(), anyBoolean());
+    }
+
+    // Tests for PATCH /api/HelpRequests?id=...
+
+    private static final String SOLVE_PATCH = "{\"version\": 3, \"solved\": true}";
+
+    @Test
+    public void logged_out_users_cannot_patch() throws Exception {
+            mockMvc.perform(patch("/api/HelpRequests?id=67")
+                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                            .content(SOLVE_PATCH)
+                            .with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_patch() throws Exception {
+            mockMvc.perform(patch("/api/HelpRequests?id=67")
+                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                            .content(SOLVE_PATCH)
+                            .with(csrf()))
+                            .andExpect(status().is(403));
+            verify(mergePatchService, never()).applyAndGetPrevious(any(), anyLong(), any(), any(), any(), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_patch_some_fields_of_a_helpRequest() throws Exception {
+            // arrange
+            HelpRequest patched = helpRequestsWithIds(67L, 1).get(0);
+            patched.setSolved(true);
+            patched.setVersion(4);
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), eq("solved"), eq(Boolean.class)))
+                            .thenReturn(false);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/HelpRequests?id=67")
+                                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                            .content(SOLVE_PATCH)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(mergePatchService, times(1)).applyAndGetPrevious(HelpRequest.class, 67L, mapper.readTree(SOLVE_PATCH),
+                            HelpRequestController.PATCHABLE, "solved", Boolean.class);
+            verify(helpRequestRepository, never()).save(any());
+            verify(helpRequestEventFeed, times(1)).updated(patched, false); // the patch is what solved it
+            verify(tableVersionRepository, times(1)).increment("helprequest");
+            assertEquals(mapper.writeValueAsString(patched), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void patch_that_sets_solved_on_a_request_already_solved_does_not_solve_it_again() throws Exception {
+            // arrange
+            HelpRequest patched = helpRequestsWithIds(67L, 1).get(0);
+            patched.setSolved(true);
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), eq("solved"), eq(Boolean.class)))
+                            .thenReturn(true);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+            // act
+            mockMvc.perform(patch("/api/HelpRequests?id=67")
+                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                            .content(SOLVE_PATCH)
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+
+            // assert
+            verify(helpRequestEventFeed, times(1)).updated(patched, true);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void patch_that_does_not_solve_is_an_update_and_plain_json_is_accepted() throws Exception {
+            // arrange
+            HelpRequest patched = helpRequestsWithIds(67L, 1).get(0);
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), eq("solved"), eq(Boolean.class)))
+                            .thenReturn(false);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+            // act
+            mockMvc.perform(patch("/api/HelpRequests?id=67")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"version\": 3, \"explanation\": \"still stuck\"}")
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+
+            // assert
+            verify(helpRequestEventFeed, times(1)).updated(patched, false);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_helpRequest_deleted_after_the_update() throws Exception {
+            // arrange
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), eq("solved"), eq(Boolean.class)))
+                            .thenReturn(false);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/HelpRequests?id=67")
+                                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                            .content(SOLVE_PATCH)
+                                            .with(csrf()))
+                            .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 not found", json.get("message"));
+            verify(helpRequestEventFeed, never()).updated(any(), anyBoolean());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void patch_made_from_an_old_version_gets_conflict() throws Exception {
+            // arrange
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), any(), any()))
+                            .thenThrow(new VersionConflictException(HelpRequest.class, 67L, 3, 5));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/HelpRequests?id=67")
+                                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                            .content(SOLVE_PATCH)
+                                            .with(csrf()))
+                            .andExpect(status().isConflict()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("VersionConflictException", json.get("type"));
+            assertEquals("HelpRequest with id 67 has changed since version 3 (it is now version 5); reload it and try again", json.get("message"));
+            verify(helpRequestRepository, never()).findById(anyLong());
+            verify(helpRequestEventFeed, never()).updated(any(), anyBoolean());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void invalid_patch_gets_bad_request() throws Exception {
+            // arrange
+            when(mergePatchService.applyAndGetPrevious(eq(HelpRequest.class), eq(67L), any(), any(), any(), any()))
+                            .thenThrow(new InvalidPatchException("requesterEmail cannot be patched"));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/HelpRequests?id=67")
+                                            .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                            .content("{\"version\": 3, \"requesterEmail\": \"someone@ucsb.edu\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("InvalidPatchException", json.get("type"));
+            assertEquals("invalid merge patch: requesterEmail cannot be patched", json.get("message"));
+    }
+
+    // Tests for GET /api/HelpRequests/all with Accept: application/x-ndjson
+
+    @Test
+    public void logged_out_users_cannot_stream_all() throws Exception {
+            mockMvc.perform(get("/api/HelpRequests/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all_help_requests_as_ndjson() throws Exception {
+
+            // arrange
+            when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+            // act
+            mockMvc.perform(get("/api/HelpRequests/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().isOk());
+
+            // assert: rows come from the streaming query, never from findAll
+            ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+            verify(ndjsonExportService, times(1)).export(rows.capture());
+            rows.getValue().get();
+            verify(helpRequestRepository, times(1)).streamAll();
+            verify(helpRequestRepository, never()).findAll();
+    }
+
+    // Tests for GET /api/HelpRequests/events
+
+    @Test
+    public void logged_out_users_cannot_subscribe_to_events() throws Exception {
+            mockMvc.perform(get("/api/HelpRequests/events").accept(MediaType.TEXT_EVENT_STREAM))
+                            .andExpect(status().is(403));
+            verify(helpRequestEventFeed, never()).subscribe(any());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_subscribe_to_events_from_now_on() throws Exception {
+            when(helpRequestEventFeed.subscribe(isNull())).thenReturn(new SseEmitter());
+
+            mockMvc.perform(get("/api/HelpRequests/events").accept(MediaType.TEXT_EVENT_STREAM))
+                            .andExpect(request().asyncStarted());
+
+            verify(helpRequestEventFeed, times(1)).subscribe(isNull());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void subscribers_can_resume_after_an_event_id() throws Exception {
+            when(helpRequestEventFeed.subscribe(any())).thenReturn(new SseEmitter());
+
+            mockMvc.perform(get("/api/HelpRequests/events?lastEventId=abc-3").accept(MediaType.TEXT_EVENT_STREAM))
+                            .andExpect(request().asyncStarted());
+            // EventSource sends Last-Event-ID itself when it reconnects; that wins over a stale query string
+            mockMvc.perform(get("/api/HelpRequests/events?lastEventId=abc-3").header("Last-Event-ID", "abc-7")
+                            .accept(MediaType.TEXT_EVENT_STREAM))
+                            .andExpect(request().asyncStarted());
+
+            verify(helpRequestEventFeed, times(1)).subscribe("abc-3");
+            verify(helpRequestEventFeed, times(1)).subscribe("abc-7");
+    }
 }
@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.QueryCountTestCase;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * How many help requests a request loads as the table grows: /page must
+ * load limit + 1 rows whatever the size of the table, and /all no more
+ * than app.helpRequests.allLimit + 1, so the memory a request needs stays
+ * flat.
+ */
+@WithMockUser(roles = { "USER" })
+public class HelpRequestPagingTests extends QueryCountTestCase {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2023-10-02T08:00:00");
+  private static final int[] TABLE_SIZES = { 100, 1_000, 5_000 };
+  private static final int LIMIT = 50;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Value("${app.helpRequests.allLimit}")
+  int allLimit;
+
+  private Statistics statistics;
+
+  private int seeded;
+
+  @BeforeEach
+  void start() {
+    deleteAll();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  // the tables are shared with the other tests of the database, which expect to start empty
+  @AfterEach
+  void deleteAll() {
+    jdbcTemplate.update("delete from helprequest");
+    seeded = 0;
+    if (statistics != null) {
+      statistics.setStatisticsEnabled(false);
+    }
+  }
+
+  private void growTo(int rows) {
+    helpRequestRepository.saveAll(IntStream.range(seeded, rows)
+        .mapToObj(i -> HelpRequest.builder()
+            .requesterEmail("student" + i + "@ucsb.edu").teamId("f23-5pm-" + (i % 4))
+            .tableOrBreakoutRoom("table " + i).requestTime(START.plusMinutes(i))
+            .explanation("help " + i).solved(i % 3 == 0).build())
+        .toList());
+    seeded = rows;
+  }
+
+  // the help requests Hibernate has materialized since the statistics were cleared
+  private long helpRequestsLoaded() {
+    return statistics.getEntityStatistics(HelpRequest.class.getName()).getLoadCount();
+  }
+
+  private long loaded(String url) throws Throwable {
+    statistics.clear();
+    MvcResult result = assertQueries(1, get(url));
+    assertEquals(200, result.getResponse().getStatus());
+    return helpRequestsLoaded();
+  }
+
+  @Test
+  public void a_page_loads_limit_plus_one_rows_however_big_the_table() throws Throwable {
+    for (int rows : TABLE_SIZES) {
+      growTo(rows);
+      long aQuarterIn = helpRequestRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(rows / 4, 1))
+          .get(0).getId();
+
+      assertEquals(LIMIT + 1, loaded("/api/HelpRequests/page?limit=" + LIMIT), "first page of " + rows);
+      assertEquals(LIMIT + 1, loaded("/api/HelpRequests/page?limit=" + LIMIT + "&cursor=" + KeysetPage.encodeCursor(aQuarterIn)),
+          "page from a quarter of the way into " + rows);
+      assertEquals(LIMIT + 1, loaded("/api/HelpRequests/page?limit=" + LIMIT + "&requestedFrom=" + START),
+          "filtered page of " + rows);
+    }
+  }
+
+  @Test
+  public void all_loads_at_most_all_limit_plus_one_rows_and_links_to_the_rest() throws Throwable {
+    growTo(allLimit);
+    statistics.clear();
+    MvcResult complete = mockMvc.perform(get("/api/HelpRequests/all")).andReturn();
+    assertNull(complete.getResponse().getHeader("Link"));
+    assertEquals(allLimit, helpRequestsLoaded());
+
+    int rows = TABLE_SIZES[TABLE_SIZES.length - 1];
+    growTo(rows);
+    statistics.clear();
+
+    MvcResult result = mockMvc.perform(get("/api/HelpRequests/all")).andReturn();
+
+    assertEquals(allLimit + 1, helpRequestsLoaded(), "all of " + rows);
+    JsonNode body = mapper.readTree(result.getResponse().getContentAsString());
+    assertEquals(allLimit, body.size());
+    String next = "/api/HelpRequests/page?cursor=" + KeysetPage.encodeCursor(body.get(allLimit - 1).get("id").asLong());
+    assertEquals("<%s>; rel=\"next\"".formatted(next), result.getResponse().getHeader("Link"));
+
+    // and following it picks up where /all stopped
+    JsonNode page = mapper.readTree(mockMvc.perform(get(next + "&limit=1")).andReturn().getResponse().getContentAsString());
+    long lastId = body.get(allLimit - 1).get("id").asLong();
+    assertEquals(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 1)).get(0).getId(),
+        page.get("content").get(0).get("id").asLong());
+  }
+}
@@ -3,8 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
@@ -24,26 +26,45 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import java.time.LocalDateTime;
 
+import java.util.List;
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, MenuItemRatingService.class })
 public class MenuItemReviewControllerTests extends ControllerTestCase {
     
     @MockBean
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @MockBean
+    MenuItemRatingRepository menuItemRatingRepository;
+
     @MockBean
     UserRepository userRepository;
 
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    TableVersions tableVersions;
+
+
     // Tests for GET /api/menuitemreview/all
         
     @Test
@@ -132,6 +153,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                             .build();
 
             when(menuItemReviewRepository.save(eq(menuItemReview1))).thenReturn(menuItemReview1);
+            // the item's first review: its empty rating row is inserted, then locked
+            when(menuItemRatingRepository.findForUpdate(eq(1L)))
+                            .thenReturn(Optional.empty(), Optional.of(MenuItemRating.builder().itemId(1).build()));
 
             // act
             MvcResult response = mockMvc.perform(
@@ -141,11 +165,111 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
             // assert
             verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+            verify(menuItemRatingRepository, times(1)).create(1L);
+            verify(menuItemRatingRepository, times(1)).save(MenuItemRating.builder()
+                            .itemId(1).reviewCount(1).totalStars(4).minStars(4).maxStars(4).fourStars(1).build());
             String expectedJson = mapper.writeValueAsString(menuItemReview1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void posting_a_review_adds_it_to_the_items_rating() throws Exception {
+            // arrange
+
+            MenuItemRating existing = MenuItemRating.builder()
+                            .itemId(1).reviewCount(1).totalStars(2).minStars(2).maxStars(2).twoStars(1)
+                            .build();
+
+            when(menuItemReviewRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(menuItemRatingRepository.findForUpdate(eq(1L))).thenReturn(Optional.of(existing));
+
+            // act
+            mockMvc.perform(
+                            post("/api/menuitemreview/post?itemId=1&reviewerEmail=mitaligaidhani@ucsb.edu&stars=4&dateReviewed=2022-01-03T00:00:00&comments=good")
+                                            .with(csrf()))
+                            .andExpect(status().isOk());
+
+            // assert
+            MenuItemRating expected = MenuItemRating.builder()
+                            .itemId(1).reviewCount(2).totalStars(6).minStars(2).maxStars(4).twoStars(1).fourStars(1)
+                            .build();
+            verify(menuItemRatingRepository, times(1)).save(expected);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_cannot_post_a_review_with_too_many_stars() throws Exception {
+            // act
+            MvcResult response = mockMvc.perform(
+                            post("/api/menuitemreview/post?itemId=1&reviewerEmail=mitaligaidhani@ucsb.edu&stars=9&dateReviewed=2022-01-03T00:00:00&comments=good")
+                                            .with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, never()).save(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("InvalidStarsException", json.get("type"));
+            assertEquals("stars must be between 1 and 5, not 9", json.get("message"));
+    }
+
+    // Tests for GET /api/menuitemreview/stats
+
+    @Test
+    public void logged_out_users_cannot_get_stats() throws Exception {
+            mockMvc.perform(get("/api/menuitemreview/stats"))
+                            .andExpect(status().is(403));
+            mockMvc.perform(get("/api/menuitemreview/stats?itemId=1"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_stats_for_all_items() throws Exception {
+            // arrange
+
+            List<MenuItemRating> ratings = List.of(
+                            MenuItemRating.builder().itemId(1).reviewCount(2).totalStars(7).minStars(3).maxStars(4).threeStars(1).fourStars(1).build(),
+                            MenuItemRating.builder().itemId(2).reviewCount(1).totalStars(5).minStars(5).maxStars(5).fiveStars(1).build());
+
+            when(menuItemRatingRepository.findAllByReviewCountGreaterThan(0)).thenReturn(ratings);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(menuItemRatingRepository, times(1)).findAllByReviewCountGreaterThan(0);
+            verify(menuItemReviewRepository, never()).findAll();
+            String expectedJson = mapper.writeValueAsString(ratings);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_stats_for_one_item() throws Exception {
+            // arrange
+
+            MenuItemRating rating = MenuItemRating.builder()
+                            .itemId(1).reviewCount(2).totalStars(7).minStars(3).maxStars(4).threeStars(1).fourStars(1)
+                            .build();
+
+            when(menuItemRatingRepository.findById(eq(1L))).thenReturn(Optional.of(rating));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats?itemId=1"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(menuItemRatingRepository, times(1)).findById(1L);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(2, json.get("reviewCount"));
+            assertEquals(3.5, json.get("averageStars"));
+            assertEquals(mapper.writeValueAsString(rating), response.getResponse().getContentAsString());
+    }
+
     // Tests for GET /api/menuitemreviews?id=...
 
         @Test
@@ -231,7 +355,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.findForUpdate(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemRatingRepository.findForUpdate(eq(2L)))
+                                .thenReturn(Optional.empty(), Optional.of(MenuItemRating.builder().itemId(2).build()));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -243,7 +369,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(67L);
                 verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
@@ -267,7 +393,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemEditedReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdate(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -279,7 +405,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(67L);
+                verify(menuItemReviewRepository, never()).save(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
         }
@@ -301,7 +428,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .comments("good")
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.findForUpdate(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,8 +438,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).findForUpdate(15L);
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L);
+                verify(menuItemRatingRepository, times(1)).findForUpdate(1L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -323,7 +452,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdate(eq(15L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -332,10 +461,63 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(15L);
+                verify(menuItemReviewRepository, never()).deleteRowById(anyLong());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_that_is_gone_by_the_time_it_is_deleted_leaves_the_rating_alone()
+                        throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .itemId(1)
+                                .stars(4)
+                                .build();
+
+                when(menuItemReviewRepository.findForUpdate(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(0);
 
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreview?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemRatingRepository, never()).findForUpdate(anyLong());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 15 not found", json.get("message"));
+        }
+
+
+    // Tests for GET /api/menuitemreview/all with Accept: application/x-ndjson
+
+    @Test
+    public void logged_out_users_cannot_stream_all() throws Exception {
+            mockMvc.perform(get("/api/menuitemreview/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all_menu_item_reviews_as_ndjson() throws Exception {
+
+            // arrange
+            when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+            // act
+            mockMvc.perform(get("/api/menuitemreview/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().isOk());
+
+            // assert: rows come from the streaming query, never from findAll
+            ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+            verify(ndjsonExportService, times(1)).export(rows.capture());
+            rows.getValue().get();
+            verify(menuItemReviewRepository, times(1)).streamAll();
+            verify(menuItemReviewRepository, never()).findAll();
+    }
 }
@@ -9,6 +9,7 @@ import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -22,9 +23,16 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.RecommendationDeadlines;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,6 +40,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
 @Import(TestConfig.class)
@@ -43,6 +52,16 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        RecommendationDeadlines recommendationDeadlines;
+
+        @MockBean
+        TableVersions tableVersions;
+
         // Tests for GET /api/recommendationrequest/all
         
         @Test
@@ -137,6 +156,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .build();
 
                 when(recommendationRequestRepository.save(eq(request1))).thenReturn(request1);
+                when(tableVersions.bump(RecommendationDeadlines.TABLE, List.of(0L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -146,6 +166,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(recommendationRequestRepository, times(1)).save(request1);
+                verify(recommendationDeadlines, times(1)).put(request1, 7L);
                 String expectedJson = mapper.writeValueAsString(request1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -219,21 +240,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
-
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-		LocalDateTime ldt2 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                RecommendationRequest request1 = RecommendationRequest.builder()
-                                .requesterEmail("requester@gmail.com")
-                                .professorEmail("professor@gmail.com")
-                                .explanation("grad school")
-                                .dateRequested(ldt1)
-                                .dateNeeded(ldt2)
-                                .done(false)
-                                .build();
-
-
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(request1));
+                when(recommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
+                when(tableVersions.bump(RecommendationDeadlines.TABLE, List.of(15L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -242,8 +250,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
+                verify(recommendationRequestRepository, never()).findById(any());
+                verify(recommendationDeadlines, times(1)).remove(15L, 7L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -255,7 +264,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -264,7 +273,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
+                verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
@@ -304,6 +313,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(request2);
 
                 when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(request1));
+                when(tableVersions.bump(RecommendationDeadlines.TABLE, List.of(67L))).thenReturn(7L);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -317,6 +327,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 // assert
                 verify(recommendationRequestRepository, times(1)).findById(67L);
                 verify(recommendationRequestRepository, times(1)).save(request2); // should be saved with correct user
+                verify(recommendationDeadlines, times(1)).put(request2, 7L);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -360,4 +371,104 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         }
 
 
-}
\ No newline at end of file
+        // Tests for GET /api/recommendationrequest/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_recommendation_requests_as_ndjson() throws Exception {
+
+                // arrange
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+                // act
+                mockMvc.perform(get("/api/recommendationrequest/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().isOk());
+
+                // assert: rows come from the streaming query, never from findAll
+                ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(recommendationRequestRepository, times(1)).streamAll();
+                verify(recommendationRequestRepository, never()).findAll();
+        }
+
+        // Tests for GET /api/recommendationrequest/due and /overdue
+
+        @Test
+        public void logged_out_users_cannot_get_due_or_overdue() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/due"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/recommendationrequest/overdue"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_requests_due_soon() throws Exception {
+
+                // arrange
+                RecommendationRequest request1 = RecommendationRequest.builder()
+                                .id(7L)
+                                .requesterEmail("requester@gmail.com")
+                                .professorEmail("professor@gmail.com")
+                                .explanation("grad school")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationDeadlines.dueWithin(eq(Duration.ofDays(3)))).thenReturn(List.of(request1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/due?days=3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert: answered from memory, never the database
+                verify(recommendationRequestRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(request1)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void due_days_default_to_a_week_and_are_capped() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/due")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/recommendationrequest/due?days=100000")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/recommendationrequest/due?days=-5")).andExpect(status().isOk());
+
+                verify(recommendationDeadlines, times(1)).dueWithin(Duration.ofDays(7));
+                verify(recommendationDeadlines, times(1)).dueWithin(Duration.ofDays(RecommendationRequestController.MAX_DUE_DAYS));
+                verify(recommendationDeadlines, times(1)).dueWithin(Duration.ZERO);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_overdue_requests() throws Exception {
+
+                // arrange
+                RecommendationRequest request1 = RecommendationRequest.builder()
+                                .id(8L)
+                                .requesterEmail("requester@gmail.com")
+                                .professorEmail("professor@gmail.com")
+                                .explanation("internship")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-10T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationDeadlines.overdue()).thenReturn(List.of(request1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/overdue"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(request1)), response.getResponse().getContentAsString());
+        }
+}
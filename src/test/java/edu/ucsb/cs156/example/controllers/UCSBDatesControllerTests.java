@@ -8,7 +8,9 @@ import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -24,16 +26,36 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.repositories.TableChangeRepository;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
+import edu.ucsb.cs156.example.errors.InvalidQuarterException;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, TableVersions.class })
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +64,19 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        UCSBDateCalendar ucsbDateCalendar;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
+        @Autowired
+        MeterRegistry meterRegistry;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -95,6 +130,75 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for conditional GET /api/ucsbdates/all
+
+        @Autowired
+        TableVersions tableVersions;
+
+        @MockBean
+        TableVersionRepository tableVersionRepository;
+
+        @MockBean
+        TableChangeRepository tableChangeRepository;
+
+        @BeforeEach
+        public void counter_rows_exist() {
+                when(tableVersionRepository.increment(anyString())).thenReturn(1);
+                when(tableVersionRepository.findVersion(anyString())).thenReturn(Optional.of(1L));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_returns_an_etag_and_answers_a_matching_if_none_match_without_a_query() throws Exception {
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+                MvcResult second = mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+
+                // assert
+                assertEquals(tableVersions.etag("ucsbdates"), etag);
+                assertEquals("", second.getResponse().getContentAsString());
+                verify(ucsbDateRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void every_write_bumps_the_version() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .quarterYYYYQ("20221")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+                when(ucsbDateRepository.deleteRowById(eq(7L))).thenReturn(1);
+                when(ucsbDateRepository.save(any())).thenReturn(ucsbDate);
+
+                // act
+                mockMvc.perform(post("/api/ucsbdates/post?name=firstDayOfClasses&quarterYYYYQ=20222&localDateTime=2022-01-03T00:00:00").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(put("/api/ucsbdates?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(ucsbDate))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/ucsbdates?id=7").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(tableVersionRepository, times(3)).increment("ucsbdates");
+        }
+
         // Tests for POST /api/ucsbdates/post...
 
         @Test
@@ -133,6 +237,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(ucsbDateCalendar, times(1)).put(ucsbDate1, 1L);
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -200,16 +305,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
-
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -218,8 +314,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDateRepository, never()).findById(any());
+                verify(ucsbDateCalendar, times(1)).remove(List.of(15L), 1L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -231,7 +328,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -240,11 +337,101 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
 
+        // Tests for DELETE /api/ucsbdates/bulk?ids=...
+
+        @Test
+        public void logged_out_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdates/bulk?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdates/bulk?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(ucsbDateRepository, never()).deleteRowsByIds(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_repeated_ids_count_once() throws Exception {
+                // arrange
+                when(ucsbDateRepository.deleteRowsByIds(eq(Set.of(3L, 4L, 5L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/bulk?ids=3,4,3,5")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteRowsByIds(eq(Set.of(3L, 4L, 5L)));
+                verify(ucsbDateRepository, never()).deleteRowById(anyLong());
+                verify(ucsbDateCalendar, times(1)).remove(Set.of(3L, 4L, 5L), 1L);
+                verify(tableVersionRepository, times(1)).increment("ucsbdates");
+                verify(tableChangeRepository, times(3)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 of 3 UCSBDates deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_delete_of_ids_that_dont_exist_changes_nothing() throws Exception {
+                // arrange
+                when(ucsbDateRepository.deleteRowsByIds(eq(Set.of(98L, 99L)))).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/bulk?ids=98,99")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendar, never()).remove(any(), anyLong());
+                verify(tableVersionRepository, never()).increment(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("0 of 2 UCSBDates deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_delete_of_no_ids_does_not_query() throws Exception {
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/bulk?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                verify(ucsbDateRepository, never()).deleteRowsByIds(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("0 of 0 UCSBDates deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_delete_of_too_many_ids_is_refused() throws Exception {
+                // arrange
+                String ids = LongStream.rangeClosed(1, UCSBDatesController.MAX_BULK_DELETE + 1)
+                                .mapToObj(Long::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/bulk").param("ids", ids)
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).deleteRowsByIds(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TooManyIdsException", json.get("type"));
+                assertEquals("1001 ids were sent; at most 1000 may be sent at once", json.get("message"));
+        }
+
         // Tests for PUT /api/ucsbdates?id=... 
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -283,6 +470,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
                 verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateCalendar, times(1)).put(ucsbDateEdited, 1L);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -320,4 +508,232 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/ucsbdates/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_ucsbdates_as_ndjson() throws Exception {
+
+                // arrange
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().isOk());
+
+                // assert: rows come from the streaming query, never from findAll
+                ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDateRepository, times(1)).streamAll();
+                verify(ucsbDateRepository, never()).findAll();
+        }
+
+        // Tests for the api.* request metrics
+
+        private DistributionSummary apiSummary(String name, String outcome) {
+                return meterRegistry.summary(name, "controller", "UCSBDatesController", "method", "GET", "outcome", outcome);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_records_rows_serialized_for_the_controller() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder().name("firstDayOfClasses").quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                UCSBDate ucsbDate2 = UCSBDate.builder().name("lastDayOfClasses").quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+                when(ucsbDateRepository.findAll()).thenReturn(Arrays.asList(ucsbDate1, ucsbDate2));
+                double rowsBefore = apiSummary("api.rows.serialized", "SUCCESS").totalAmount();
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+                // assert
+                assertEquals(rowsBefore + 2, apiSummary("api.rows.serialized", "SUCCESS").totalAmount());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void not_found_is_recorded_as_a_client_error() throws Exception {
+
+                // arrange
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.empty());
+                long errorsBefore = apiSummary("api.db.queries", "CLIENT_ERROR").count();
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=7")).andExpect(status().isNotFound());
+
+                // assert
+                assertEquals(errorsBefore + 1, apiSummary("api.db.queries", "CLIENT_ERROR").count());
+        }
+
+        // Tests for GET /api/ucsbdates/quarter and /quarters
+
+        @Test
+        public void logged_out_users_cannot_get_quarters() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20234"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/quarters?first=20231&last=20234"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_in_a_quarter() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20234")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2023-09-28T00:00:00"))
+                                .build();
+                when(tableVersionRepository.findById(eq("ucsbdates")))
+                                .thenReturn(Optional.of(TableVersion.builder().tableName("ucsbdates").epoch(1L).version(5L).build()));
+                when(ucsbDateCalendar.quarter(eq("20234"), eq(5L))).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20234"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"ucsbdates-1-5\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(ucsbDate1)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_in_a_range_of_quarters() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("20232")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2023-04-03T00:00:00"))
+                                .build();
+                UCSBDate ucsbDate2 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20234")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2023-09-28T00:00:00"))
+                                .build();
+                when(ucsbDateCalendar.quarters(eq("20231"), eq("20234"), eq(0L))).thenReturn(List.of(ucsbDate1, ucsbDate2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarters?first=20231&last=20234"))
+                                .andExpect(status().isOk()).andReturn();
+                String etag = response.getResponse().getHeader("ETag");
+                mockMvc.perform(get("/api/ucsbdates/quarters?first=20231&last=20234").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDateCalendar, times(1)).quarters("20231", "20234", 0L);
+                assertEquals(mapper.writeValueAsString(List.of(ucsbDate1, ucsbDate2)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_invalid_quarter_is_a_bad_request() throws Exception {
+
+                // arrange
+                when(ucsbDateCalendar.quarter(eq("F23"), anyLong())).thenThrow(new InvalidQuarterException("F23"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=F23"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidQuarterException", json.get("type"));
+                assertEquals("quarter F23 is not valid; expected YYYYQ, e.g. 20234 for Fall 2023", json.get("message"));
+        }
+
+        // Tests for PATCH /api/ucsbdates?id=...
+
+        private static final String RENAME_PATCH = "{\"version\": 0, \"name\": \"Finals week\"}";
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=67")
+                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                .content(RENAME_PATCH)
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=67")
+                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                .content(RENAME_PATCH)
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+                verify(mergePatchService, never()).apply(any(), anyLong(), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_ucsbdate() throws Exception {
+
+                // arrange
+                UCSBDate patched = UCSBDate.builder()
+                                .id(67L)
+                                .quarterYYYYQ("20224")
+                                .name("Finals week")
+                                .localDateTime(LocalDateTime.parse("2022-12-05T00:00:00"))
+                                .version(1)
+                                .build();
+                when(mergePatchService.apply(eq(UCSBDate.class), eq(67L), any(), any())).thenReturn(1L);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content(RENAME_PATCH)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(mergePatchService, times(1)).apply(UCSBDate.class, 67L, mapper.readTree(RENAME_PATCH), UCSBDatesController.PATCHABLE);
+                verify(ucsbDateRepository, never()).save(any());
+                verify(ucsbDateCalendar, times(1)).put(patched, 1L);
+                verify(tableVersionRepository, times(1)).increment("ucsbdates");
+                assertEquals(mapper.writeValueAsString(patched), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_ucsbdate_deleted_after_the_update() throws Exception {
+
+                // arrange
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content(RENAME_PATCH)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 not found", json.get("message"));
+                verify(ucsbDateCalendar, never()).put(any(), anyLong());
+        }
 }
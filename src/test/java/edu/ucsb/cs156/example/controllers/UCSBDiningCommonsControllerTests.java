@@ -1,5 +1,6 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.ReferenceCacheConfig;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
@@ -22,6 +23,18 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,9 +42,10 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, ReferenceCacheConfig.class })
 public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -40,6 +54,166 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        DiningCommonsLocator diningCommonsLocator;
+
+        @MockBean
+        TableVersions tableVersions;
+
+        @Autowired
+        ReferenceTableCache<String, UCSBDiningCommons> ucsbDiningCommonsCache;
+
+        @Autowired
+        MeterRegistry meterRegistry;
+
+        @BeforeEach
+        public void clearCache() {
+                ucsbDiningCommonsCache.invalidateAll();
+        }
+
+        // Tests for the dining commons cache
+
+        private UCSBDiningCommons commons(String code, String name) {
+                return UCSBDiningCommons.builder()
+                                .code(code).name(name).hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true)
+                                .latitude(34.41).longitude(-119.84).build();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void repeated_reads_are_served_from_the_cache() throws Exception {
+
+                // arrange
+                double hitsBefore = meterRegistry.counter("cache.gets", "cache", "ucsbdiningcommons", "result", "hit").count();
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(commons("ortega", "Ortega")));
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(commons("ortega", "Ortega")));
+
+                // act
+                for (int i = 0; i < 3; i++) {
+                        mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega")).andExpect(status().isOk());
+                        mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+                }
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findById("ortega");
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals(4, meterRegistry.counter("cache.gets", "cache", "ucsbdiningcommons", "result", "hit").count() - hitsBefore);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void reads_after_a_write_see_the_write() throws Exception {
+
+                // arrange
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(commons("ortega", "Ortega")));
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega")).andExpect(status().isOk());
+
+                // act: put
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(commons("ortega", "Ortega")), Optional.of(commons("ortega", "New Ortega")));
+                mockMvc.perform(put("/api/ucsbdiningcommons?code=ortega")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(commons("ortega", "New Ortega")))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                // as UCSBDiningCommonsEntityListener's bump does once the write commits
+                when(tableVersions.version("ucsbdiningcommons")).thenReturn(1L);
+
+                // assert
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega")).andExpect(status().isOk()).andReturn();
+                assertEquals(mapper.writeValueAsString(commons("ortega", "New Ortega")), response.getResponse().getContentAsString());
+
+                // act: delete
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(commons("ortega", "New Ortega")), Optional.empty());
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=ortega").with(csrf())).andExpect(status().isOk());
+                when(tableVersions.version("ucsbdiningcommons")).thenReturn(2L);
+
+                // assert
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega")).andExpect(status().isNotFound());
+
+                // act: post
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(commons("ortega", "Ortega")));
+                mockMvc.perform(post("/api/ucsbdiningcommons/post?code=ortega&name=Ortega&hasSackMeal=false&hasTakeOutMeal=false&hasDiningCam=true&latitude=34.41&longitude=-119.84")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                when(tableVersions.version("ucsbdiningcommons")).thenReturn(3L);
+
+                // assert
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega")).andExpect(status().isOk());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearest_commons_without_touching_the_database() throws Exception {
+
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .code("ortega").name("Ortega").hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(true)
+                                .latitude(34.410987).longitude(-119.84709).build();
+                List<NearbyDiningCommons> nearest = List.of(new NearbyDiningCommons(ortega, 12.5));
+                when(diningCommonsLocator.nearest(eq(34.41), eq(-119.847), eq(3), eq(500.0))).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.847&k=3&radius=500"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocator, times(1)).nearest(34.41, -119.847, 3, 500.0);
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(nearest), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_defaults_to_one_commons_and_bounds_k() throws Exception {
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.847"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.847&k=1000"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.847&k=-5"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(diningCommonsLocator, times(2)).nearest(34.41, -119.847, 1, null);
+                verify(diningCommonsLocator, times(1)).nearest(34.41, -119.847, UCSBDiningCommonsController.MAX_NEAREST, null);
+        }
+
+        private String nearestError(String query) throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?" + query))
+                                .andExpect(status().isBadRequest()).andReturn();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidLocationException", json.get("type"));
+                return (String) json.get("message");
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_rejects_locations_off_the_globe_and_negative_radii() throws Exception {
+                assertEquals("lat must be between -90 and 90, not 91.0", nearestError("lat=91&lon=-119.847"));
+                assertEquals("lat must be between -90 and 90, not NaN", nearestError("lat=NaN&lon=-119.847"));
+                assertEquals("lon must be between -180 and 180, not -180.5", nearestError("lat=34.41&lon=-180.5"));
+                assertEquals("radius must be 0 or more, not -500.0", nearestError("lat=34.41&lon=-119.847&radius=-500"));
+
+                // the edges of the globe and a zero radius are fine
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=-90&lon=180&radius=0"))
+                                .andExpect(status().isOk());
+                verify(diningCommonsLocator, times(1)).nearest(-90, 180, 1, 0.0);
+        }
+
         // Tests for GET /api/ucsbdiningcommons/all
 
         @Test
@@ -337,4 +511,32 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/ucsbdiningcommons/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_commons_as_ndjson() throws Exception {
+
+                // arrange
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().isOk());
+
+                // assert: rows come from the streaming query, never from findAll
+                ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDiningCommonsRepository, times(1)).streamAll();
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+        }
 }
@@ -22,6 +22,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.function.Supplier;
+import java.util.List;
+import edu.ucsb.cs156.example.errors.InvalidUploadException;
+import edu.ucsb.cs156.example.models.BulkImportResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsMenuItemImportService;
+import org.springframework.mock.web.MockMultipartFile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +39,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDiningCommonsMenuItemController.class)
 @Import(TestConfig.class)
@@ -39,6 +50,13 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        UCSBDiningCommonsMenuItemImportService importService;
+
         // Tests for GET /api/ucsbdiningcommonsmenuitems/all
 
         @Test
@@ -185,14 +203,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @Test
         public void admin_can_delete_an_item() throws Exception {
                 // arrange
-
-                UCSBDiningCommonsMenuItem menuItem1 = UCSBDiningCommonsMenuItem.builder()
-                                .diningCommonsCode("DLG")
-                                .station("Pizza")
-                                .name("Cheese Pizza")
-                                .build();
-
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.of(menuItem1)); 
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(eq(15L))).thenReturn(1); 
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +212,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDiningCommonsMenuItemRepository, never()).findById(any());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -214,7 +225,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +234,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
@@ -298,4 +309,115 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitems/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_menu_items_as_ndjson() throws Exception {
+
+                // arrange
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                                .andExpect(status().isOk());
+
+                // assert: rows come from the streaming query, never from findAll
+                ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).streamAll();
+                verify(ucsbDiningCommonsMenuItemRepository, never()).findAll();
+        }
+
+        // Tests for POST /api/ucsbdiningcommonsmenuitems/bulk
+
+        private BulkImportResult oneCreatedOneRejected() {
+                return BulkImportResult.builder()
+                                .created(1)
+                                .rejected(1)
+                                .rows(List.of(BulkRowResult.created(1, 17L), BulkRowResult.rejected(2, "missing name")))
+                                .build();
+        }
+
+        @Test
+        public void logged_out_users_cannot_bulk_post() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitems/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitems/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_a_json_array() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem pizza = UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("ortega").name("Pizza").station("Entrees").build();
+                UCSBDiningCommonsMenuItem noName = UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("ortega").station("Entrees").build();
+                when(importService.importItems(eq(List.of(pizza, noName)))).thenReturn(oneCreatedOneRejected());
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitems/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(List.of(pizza, noName)))
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(importService, times(1)).importItems(List.of(pizza, noName));
+                assertEquals(mapper.writeValueAsString(oneCreatedOneRejected()), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_upload_a_csv_file() throws Exception {
+                // arrange
+                String csv = "diningCommonsCode,name,station\nortega,Pizza,Entrees\nortega,,Entrees\n";
+                when(importService.importCsv(eq(csv))).thenReturn(oneCreatedOneRejected());
+
+                // act
+                MvcResult response = mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/bulk")
+                                .file(new MockMultipartFile("file", "menu.csv", "text/csv", csv.getBytes()))
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(importService, times(1)).importCsv(csv);
+                assertEquals(mapper.writeValueAsString(oneCreatedOneRejected()), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_csv_file_without_the_required_columns_is_a_bad_request() throws Exception {
+                // arrange
+                when(importService.importCsv(any())).thenThrow(new InvalidUploadException("CSV header is missing column station"));
+
+                // act
+                MvcResult response = mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/bulk")
+                                .file(new MockMultipartFile("file", "menu.csv", "text/csv", "name\n".getBytes()))
+                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidUploadException", json.get("type"));
+                assertEquals("upload is not valid: CSV header is missing column station", json.get("message"));
+        }
 }
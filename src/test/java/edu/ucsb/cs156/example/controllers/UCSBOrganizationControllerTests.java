@@ -1,5 +1,6 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.ReferenceCacheConfig;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
@@ -23,6 +24,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceTableCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,9 +42,10 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, ReferenceCacheConfig.class })
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     @MockBean 
@@ -41,6 +54,29 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    TableVersions tableVersions;
+
+    @Autowired
+    ReferenceTableCache<String, UCSBOrganization> ucsbOrganizationCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // the table's version, as the database would hold it
+    private final AtomicLong version = new AtomicLong();
+
+    @BeforeEach
+    public void clearCache() {
+            ucsbOrganizationCache.invalidateAll();
+            when(tableVersions.version("ucsborganization")).thenAnswer(invocation -> version.get());
+            when(tableVersions.bump(eq("ucsborganization"), any())).thenAnswer(invocation -> version.incrementAndGet());
+    }
+
     // Tests for GET /api/ucsborganization/all
 
     @Test
@@ -269,15 +305,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
-
-                UCSBOrganization world = UCSBOrganization.builder()
-                            .orgCode("world")
-                            .orgTranslationShort("Hello")
-                            .orgTranslation("Hello World")
-                            .inactive(true)
-                            .build();
-
-                when(ucsbOrganizationRepository.findById(eq("world"))).thenReturn(Optional.of(world));
+                when(ucsbOrganizationRepository.deleteRowById(eq("world"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -286,8 +314,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("world");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("world");
+                verify(ucsbOrganizationRepository, never()).findById(any());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id world deleted", json.get("message"));
@@ -299,7 +327,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("not-exist"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.deleteRowById(eq("not-exist"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -308,9 +336,146 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("not-exist");
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("not-exist");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id not-exist not found", json.get("message"));
         }
-    
+
+
+    // Tests for the organization cache
+
+    private UCSBOrganization org(String orgCode, String translation) {
+            return UCSBOrganization.builder()
+                            .orgCode(orgCode)
+                            .orgTranslationShort(translation)
+                            .orgTranslation(translation)
+                            .inactive(false)
+                            .build();
+    }
+
+    private double cacheGets(String result) {
+            return meterRegistry.counter("cache.gets", "cache", "ucsborganization", "result", result).count();
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void repeated_reads_are_served_from_the_cache() throws Exception {
+
+            // arrange
+            double hitsBefore = cacheGets("hit");
+            double missesBefore = cacheGets("miss");
+            when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(org("ZPR", "ZETA PHI RHO")));
+            when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(org("ZPR", "ZETA PHI RHO")));
+
+            // act
+            for (int i = 0; i < 3; i++) {
+                    mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk());
+                    mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+            }
+
+            // assert
+            verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
+            verify(ucsbOrganizationRepository, times(1)).findAll();
+            assertEquals(4, cacheGets("hit") - hitsBefore);
+            assertEquals(2, cacheGets("miss") - missesBefore);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void reads_after_an_edit_see_the_edit() throws Exception {
+
+            // arrange
+            when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(org("ZPR", "ZETA PHI RHO")));
+            when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(org("ZPR", "ZETA PHI RHO")));
+            mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+
+            // act
+            when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(org("ZPR", "ZETA PHI RHO")), Optional.of(org("ZPR", "ZETAS")));
+            when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(org("ZPR", "ZETAS")));
+            mockMvc.perform(put("/api/ucsborganization?orgCode=ZPR")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(org("ZPR", "ZETAS")))
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+            MvcResult one = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk()).andReturn();
+            MvcResult all = mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(tableVersions).bump("ucsborganization", List.of("ZPR", "ZPR"));
+            assertEquals(mapper.writeValueAsString(org("ZPR", "ZETAS")), one.getResponse().getContentAsString());
+            assertEquals(mapper.writeValueAsString(List.of(org("ZPR", "ZETAS"))), all.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void reads_after_a_post_or_delete_see_the_change() throws Exception {
+
+            // arrange
+            when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+            mockMvc.perform(get("/api/ucsborganization?orgCode=SKY")).andExpect(status().isNotFound());
+
+            // act: post
+            when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(org("SKY", "SKYDIVING CLUB")));
+            mockMvc.perform(post("/api/ucsborganization/post?orgCode=SKY&orgTranslationShort=SKYDIVING CLUB&orgTranslation=SKYDIVING CLUB&inactive=false")
+                            .with(csrf()))
+                            .andExpect(status().isOk());
+
+            // assert
+            mockMvc.perform(get("/api/ucsborganization?orgCode=SKY")).andExpect(status().isOk());
+
+            // act: delete
+            when(ucsbOrganizationRepository.deleteRowById(eq("SKY"))).thenReturn(1);
+            mockMvc.perform(delete("/api/ucsborganization?orgCode=SKY").with(csrf())).andExpect(status().isOk());
+            when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+
+            // assert
+            mockMvc.perform(get("/api/ucsborganization?orgCode=SKY")).andExpect(status().isNotFound());
+            verify(tableVersions, times(2)).bump("ucsborganization", List.of("SKY"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void reads_after_a_write_through_another_instance_see_the_write() throws Exception {
+
+            // arrange
+            when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(org("ZPR", "ZETA PHI RHO")), Optional.of(org("ZPR", "ZETAS")));
+            mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk());
+
+            // act: another instance bumps the version after its write commits
+            version.incrementAndGet();
+            MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(ucsbOrganizationRepository, times(2)).findById("ZPR");
+            assertEquals(mapper.writeValueAsString(org("ZPR", "ZETAS")), response.getResponse().getContentAsString());
+    }
+
+    // Tests for GET /api/ucsborganization/all with Accept: application/x-ndjson
+
+    @Test
+    public void logged_out_users_cannot_stream_all() throws Exception {
+            mockMvc.perform(get("/api/ucsborganization/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all_organizations_as_ndjson() throws Exception {
+
+            // arrange
+            when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok().contentType(NdjsonExportService.APPLICATION_NDJSON).build());
+
+            // act
+            mockMvc.perform(get("/api/ucsborganization/all").accept(NdjsonExportService.APPLICATION_NDJSON))
+                            .andExpect(status().isOk());
+
+            // assert: rows come from the streaming query, never from findAll
+            ArgumentCaptor<Supplier> rows = ArgumentCaptor.forClass(Supplier.class);
+            verify(ndjsonExportService, times(1)).export(rows.capture());
+            rows.getValue().get();
+            verify(ucsbOrganizationRepository, times(1)).streamAll();
+            verify(ucsbOrganizationRepository, never()).findAll();
+    }
 }
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.TableVersions;
+
+class UCSBDiningCommonsEntityListenerTests {
+
+  private UCSBDiningCommonsEntityListener listener;
+
+  private final UCSBDiningCommons commons = UCSBDiningCommons.builder().code("ortega").latitude(34.41).longitude(-119.84).build();
+
+  @BeforeEach
+  void setup() {
+    listener = new UCSBDiningCommonsEntityListener();
+    listener.diningCommonsLocator = mock(DiningCommonsLocator.class);
+    listener.tableVersions = mock(TableVersions.class);
+    when(listener.tableVersions.bump(DiningCommonsLocator.TABLE, List.of("ortega"))).thenReturn(7L);
+  }
+
+  @Test
+  void test_commonsChanged_bumps_the_version_and_updates_locator() {
+    listener.commonsChanged(commons);
+
+    verify(listener.diningCommonsLocator).commonsChanged(commons, 7L);
+  }
+
+  @Test
+  void test_commonsRemoved_bumps_the_version_and_updates_locator() {
+    listener.commonsRemoved(commons);
+
+    verify(listener.diningCommonsLocator).commonsRemoved(commons, 7L);
+  }
+
+  @Test
+  void test_changes_in_a_transaction_are_passed_on_once_it_has_committed() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      listener.commonsChanged(commons);
+      listener.commonsRemoved(commons);
+      verifyNoInteractions(listener.tableVersions);
+      verify(listener.diningCommonsLocator, never()).commonsChanged(commons, 7L);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(listener.diningCommonsLocator).commonsChanged(commons, 7L);
+      verify(listener.diningCommonsLocator).commonsRemoved(commons, 7L);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_changes_rolled_back_are_never_passed_on() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      listener.commonsChanged(commons);
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+      verifyNoInteractions(listener.tableVersions, listener.diningCommonsLocator);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}
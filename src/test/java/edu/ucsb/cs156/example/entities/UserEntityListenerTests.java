@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.services.AdminEmailIndex;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+
+class UserEntityListenerTests {
+
+  private UserEntityListener listener;
+
+  @BeforeEach
+  void setup() {
+    listener = new UserEntityListener();
+    listener.currentUserCache = mock(CurrentUserCache.class);
+    listener.adminEmailIndex = mock(AdminEmailIndex.class);
+  }
+
+  @Test
+  void test_userChanged_invalidates_cached_user_and_updates_admin_index() {
+    User user = User.builder().email("a@ucsb.edu").admin(true).build();
+
+    listener.userChanged(user);
+
+    verify(listener.currentUserCache).invalidate("a@ucsb.edu");
+    verify(listener.adminEmailIndex).userChanged(user);
+  }
+
+  @Test
+  void test_userRemoved_invalidates_cached_user_and_updates_admin_index() {
+    User user = User.builder().email("a@ucsb.edu").admin(true).build();
+
+    listener.userRemoved(user);
+
+    verify(listener.currentUserCache).invalidate("a@ucsb.edu");
+    verify(listener.adminEmailIndex).userRemoved(user);
+  }
+
+  @Test
+  void test_cached_user_is_dropped_again_after_commit() {
+    User user = User.builder().email("a@ucsb.edu").admin(true).build();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      listener.userChanged(user);
+      verify(listener.currentUserCache, times(1)).invalidate("a@ucsb.edu");
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(listener.currentUserCache, times(2)).invalidate("a@ucsb.edu");
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}
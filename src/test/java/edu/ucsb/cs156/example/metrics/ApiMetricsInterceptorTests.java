@@ -0,0 +1,45 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ApiMetricsInterceptorTests {
+
+  private final ApiMetrics apiMetrics = mock(ApiMetrics.class);
+  private final ApiMetricsInterceptor interceptor = new ApiMetricsInterceptor(apiMetrics);
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+  private final Object handler = new Object();
+
+  @Test
+  void test_records_after_a_synchronous_request_completes() {
+    assertTrue(interceptor.preHandle(request, response, handler));
+    interceptor.afterCompletion(request, response, handler, null);
+
+    InOrder order = inOrder(apiMetrics);
+    order.verify(apiMetrics).startCounting();
+    order.verify(apiMetrics).stopCounting(request);
+    order.verify(apiMetrics).record(request, response, handler);
+  }
+
+  @Test
+  void test_async_request_hands_over_its_count_before_the_async_dispatch() {
+    interceptor.preHandle(request, response, handler);
+    interceptor.afterConcurrentHandlingStarted(request, response, handler);
+    interceptor.preHandle(request, response, handler);
+    interceptor.afterCompletion(request, response, handler, null);
+
+    InOrder order = inOrder(apiMetrics);
+    order.verify(apiMetrics).startCounting();
+    order.verify(apiMetrics).stopCounting(request);
+    order.verify(apiMetrics).startCounting();
+    order.verify(apiMetrics).stopCounting(request);
+    order.verify(apiMetrics).record(request, response, handler);
+  }
+}
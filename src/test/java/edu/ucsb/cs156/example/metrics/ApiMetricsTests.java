@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.context.request.WebRequest;
+
+import edu.ucsb.cs156.example.controllers.UCSBDatesController;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ApiMetricsTests {
+
+  private ApiMetrics apiMetrics;
+  private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @BeforeEach
+  void setup() {
+    apiMetrics = new ApiMetrics();
+    apiMetrics.meterRegistry = new SimpleMeterRegistry();
+    apiMetrics.queryCounter = new QueryCounter();
+  }
+
+  private HandlerMethod handler() throws Exception {
+    return new HandlerMethod(new UCSBDatesController(), "allUCSBDates", WebRequest.class);
+  }
+
+  private DistributionSummary summary(String name, String outcome) {
+    return apiMetrics.meterRegistry.get(name)
+        .tags("controller", "UCSBDatesController", "method", "GET", "outcome", outcome)
+        .summary();
+  }
+
+  @Test
+  void test_controller_names_handler_methods_by_bean_type() throws Exception {
+    assertEquals("UCSBDatesController", ApiMetrics.controller(handler()));
+    assertEquals("none", ApiMetrics.controller(new Object()));
+  }
+
+  @Test
+  void test_rowsIn_counts_entities_in_response_bodies() {
+    assertEquals(0, ApiMetrics.rowsIn(null));
+    assertEquals(0, ApiMetrics.rowsIn(Map.of("message", "deleted")));
+    assertEquals(3, ApiMetrics.rowsIn(List.of(1, 2, 3)));
+    assertEquals(2, ApiMetrics.rowsIn(KeysetPage.builder().content(List.of(1, 2)).build()));
+    assertEquals(1, ApiMetrics.rowsIn("single entity"));
+  }
+
+  @Test
+  void test_record_publishes_queries_and_rows_tagged_by_controller_method_and_outcome() throws Exception {
+    apiMetrics.startCounting();
+    apiMetrics.queryCounter.inspect("select 1");
+    apiMetrics.queryCounter.inspect("select 2");
+    apiMetrics.stopCounting(request);
+    apiMetrics.addRows(request, 5);
+
+    apiMetrics.record(request, response, handler());
+
+    assertEquals(2.0, summary("api.db.queries", "SUCCESS").totalAmount());
+    assertEquals(5.0, summary("api.rows.serialized", "SUCCESS").totalAmount());
+  }
+
+  @Test
+  void test_counts_accumulate_across_dispatches() throws Exception {
+    apiMetrics.startCounting();
+    apiMetrics.queryCounter.inspect("select 1");
+    apiMetrics.stopCounting(request);
+    apiMetrics.startCounting();
+    apiMetrics.queryCounter.inspect("select 2");
+    apiMetrics.stopCounting(request);
+    apiMetrics.addRows(request, 1);
+    apiMetrics.addRows(request, 2);
+
+    apiMetrics.record(request, response, handler());
+
+    assertEquals(2.0, summary("api.db.queries", "SUCCESS").totalAmount());
+    assertEquals(3.0, summary("api.rows.serialized", "SUCCESS").totalAmount());
+  }
+
+  @Test
+  void test_not_found_is_recorded_under_client_error() throws Exception {
+    response.setStatus(404);
+
+    apiMetrics.record(request, response, handler());
+
+    assertEquals(1, summary("api.db.queries", "CLIENT_ERROR").count());
+    assertEquals(0.0, summary("api.rows.serialized", "CLIENT_ERROR").totalAmount());
+  }
+
+  @Test
+  void test_counts_without_a_request_are_dropped() {
+    apiMetrics.stopCounting(null);
+    apiMetrics.addRows(null, 3);
+  }
+}
@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class QueryCounterTests {
+
+  private final QueryCounter queryCounter = new QueryCounter();
+
+  @Test
+  void test_inspect_counts_statements_and_leaves_sql_unchanged() {
+    queryCounter.reset();
+
+    assertEquals("select 1", queryCounter.inspect("select 1"));
+    queryCounter.inspect("select 2");
+
+    assertEquals(2, queryCounter.get());
+  }
+
+  @Test
+  void test_reset_starts_again_from_zero() {
+    queryCounter.inspect("select 1");
+    queryCounter.reset();
+
+    assertEquals(0, queryCounter.get());
+  }
+
+  @Test
+  void test_counts_are_per_thread() throws Exception {
+    queryCounter.reset();
+    queryCounter.inspect("select 1");
+    AtomicLong otherThread = new AtomicLong(-1);
+
+    Thread thread = new Thread(() -> {
+      queryCounter.inspect("select 2");
+      queryCounter.inspect("select 3");
+      otherThread.set(queryCounter.get());
+    });
+    thread.start();
+    thread.join();
+
+    assertEquals(1, queryCounter.get());
+    assertEquals(2, otherThread.get());
+  }
+}
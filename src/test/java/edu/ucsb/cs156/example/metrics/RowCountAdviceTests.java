@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class RowCountAdviceTests {
+
+  private final RowCountAdvice advice = new RowCountAdvice();
+
+  RowCountAdviceTests() {
+    advice.apiMetrics = mock(ApiMetrics.class);
+  }
+
+  @Test
+  void test_supports_every_return_type() {
+    assertTrue(advice.supports(null, null));
+  }
+
+  @Test
+  void test_reports_rows_for_servlet_requests() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    List<String> body = List.of("a", "b");
+
+    Object written = advice.beforeBodyWrite(body, null, null, null, new ServletServerHttpRequest(request), null);
+
+    assertSame(body, written);
+    verify(advice.apiMetrics).addRows(request, 2);
+  }
+
+  @Test
+  void test_ignores_other_requests() {
+    List<String> body = List.of("a");
+
+    Object written = advice.beforeBodyWrite(body, null, null, null, mock(ServerHttpRequest.class), null);
+
+    assertSame(body, written);
+    verify(advice.apiMetrics, never()).addRows(any(), anyLong());
+  }
+}
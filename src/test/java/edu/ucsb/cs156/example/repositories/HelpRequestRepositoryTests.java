@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+import edu.ucsb.cs156.example.testconfig.RecordingQueryCounter;
+
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=edu.ucsb.cs156.example.testconfig.RecordingQueryCounter"
+})
+class HelpRequestRepositoryTests {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  List<HelpRequest> seeded;
+
+  // 500 requests from 50 requesters on 25 teams, one per hour, every fifth one unsolved
+  @BeforeEach
+  void seed() {
+    List<HelpRequest> rows = new ArrayList<>();
+    IntStream.range(0, 500).forEach(i -> rows.add(HelpRequest.builder()
+        .requesterEmail("student%d@ucsb.edu".formatted(i % 50))
+        .teamId("team%02d".formatted(i % 25))
+        .tableOrBreakoutRoom("table%d".formatted(i % 10))
+        .requestTime(START.plusHours(i))
+        .explanation("help %d".formatted(i))
+        .solved(i % 5 != 0)
+        .build()));
+    seeded = new ArrayList<>();
+    helpRequestRepository.saveAll(rows).forEach(seeded::add);
+    jdbcTemplate.execute("analyze");
+  }
+
+  // every filter is a single select, which is then EXPLAINed; the seeded rows are flushed first so their inserts aren't counted
+  private List<HelpRequest> findByFilter(HelpRequestFilter filter, long afterId, int limit) throws Throwable {
+    entityManager.flush();
+    return RecordingQueryCounter.assertQueries(1, () -> helpRequestRepository.findByFilter(filter, afterId, limit));
+  }
+
+  private String explainLastSelect(Object... params) {
+    List<String> plan = jdbcTemplate.queryForList("explain " + RecordingQueryCounter.statements().get(0), String.class, params);
+    return plan.get(0);
+  }
+
+  private static HelpRequestFilter.HelpRequestFilterBuilder filter() {
+    return HelpRequestFilter.builder();
+  }
+
+  @Test
+  void filter_by_requester_uses_requester_email_index() throws Throwable {
+    List<HelpRequest> rows = findByFilter(filter().requesterEmail("student7@ucsb.edu").build(), 0, 20);
+
+    assertEquals(10, rows.size());
+    assertEquals(seeded.get(7), rows.get(0));
+    assertEquals(seeded.get(57), rows.get(1));
+    assertTrue(explainLastSelect("student7@ucsb.edu", 20).contains("HELPREQUEST_REQUESTER_EMAIL_IDX"));
+  }
+
+  @Test
+  void filter_by_team_uses_team_id_index() throws Throwable {
+    List<HelpRequest> rows = findByFilter(filter().teamId("team03").build(), seeded.get(3).getId(), 5);
+
+    assertEquals(List.of(seeded.get(28), seeded.get(53), seeded.get(78), seeded.get(103), seeded.get(128)), rows);
+    assertTrue(explainLastSelect(seeded.get(3).getId(), "team03", 5).contains("HELPREQUEST_TEAM_ID_IDX"));
+  }
+
+  @Test
+  void unsolved_only_uses_solved_index() throws Throwable {
+    List<HelpRequest> rows = findByFilter(filter().unsolvedOnly(true).build(), 0, 3);
+
+    assertEquals(List.of(seeded.get(0), seeded.get(5), seeded.get(10)), rows);
+    assertTrue(explainLastSelect(3).contains("HELPREQUEST_SOLVED_REQUEST_TIME_IDX"));
+  }
+
+  @Test
+  void time_range_uses_request_time_index() throws Throwable {
+    LocalDateTime from = START.plusHours(100);
+    LocalDateTime to = START.plusHours(104);
+    List<HelpRequest> rows = findByFilter(filter().requestedFrom(from).requestedTo(to).build(), 0, 10);
+
+    assertEquals(seeded.subList(100, 104), rows);
+    assertTrue(explainLastSelect(from, to, 10).contains("HELPREQUEST_REQUEST_TIME_IDX"));
+  }
+
+  @Test
+  void conditions_are_combined() throws Throwable {
+    LocalDateTime from = START.plusHours(100);
+    HelpRequestFilter filter = filter().teamId("team05").unsolvedOnly(true).requestedFrom(from).build();
+
+    List<HelpRequest> rows = findByFilter(filter, 0, 3);
+
+    assertEquals(List.of(seeded.get(105), seeded.get(130), seeded.get(155)), rows);
+  }
+}
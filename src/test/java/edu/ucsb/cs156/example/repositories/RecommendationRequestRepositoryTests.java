@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+
+@DataJpaTest
+class RecommendationRequestRepositoryTests {
+
+  private static final LocalDateTime NEEDED = LocalDateTime.parse("2023-10-03T09:00:00");
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  RecommendationRequest saved;
+
+  @BeforeEach
+  void seed() {
+    saved = recommendationRequestRepository.save(RecommendationRequest.builder()
+        .requesterEmail("student@ucsb.edu").professorEmail("prof@ucsb.edu").explanation("grad school")
+        .dateRequested(NEEDED.minusDays(30)).dateNeeded(NEEDED).done(false)
+        // not written on insert: only a claim sets it
+        .announcedFor(NEEDED)
+        .build());
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private RecommendationRequest reload() {
+    entityManager.clear();
+    return recommendationRequestRepository.findById(saved.getId()).orElseThrow();
+  }
+
+  @Test
+  void an_announcement_is_claimed_once_per_deadline() {
+    assertNull(reload().getAnnouncedFor());
+
+    assertEquals(1, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED));
+    assertEquals(0, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED));
+    assertEquals(NEEDED, reload().getAnnouncedFor());
+
+    RecommendationRequest moved = reload();
+    moved.setDateNeeded(NEEDED.plusDays(1));
+    recommendationRequestRepository.save(moved);
+    entityManager.flush();
+
+    // a claim for the deadline the sweep saw, which has since moved, loses
+    assertEquals(0, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED));
+    assertEquals(1, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED.plusDays(1)));
+  }
+
+  @Test
+  void saving_an_edit_keeps_the_claim() {
+    recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED);
+    RecommendationRequest edited = reload();
+    edited.setAnnouncedFor(null);
+    edited.setExplanation("edited");
+    recommendationRequestRepository.save(edited);
+    entityManager.flush();
+
+    assertEquals(NEEDED, reload().getAnnouncedFor());
+    assertEquals(0, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED));
+  }
+
+  @Test
+  void requests_that_are_done_are_never_claimed() {
+    RecommendationRequest done = reload();
+    done.setDone(true);
+    recommendationRequestRepository.save(done);
+    entityManager.flush();
+
+    assertEquals(0, recommendationRequestRepository.claimAnnouncement(saved.getId(), NEEDED));
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.testconfig.RecordingQueryCounter;
+
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=edu.ucsb.cs156.example.testconfig.RecordingQueryCounter"
+})
+class UCSBDateRepositoryTests {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2020-01-06T08:00:00");
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  List<UCSBDate> seeded;
+
+  // 20 dates in each quarter from Winter 2020 to Fall 2024, added newest first
+  @BeforeEach
+  void seed() {
+    List<UCSBDate> rows = new ArrayList<>();
+    IntStream.range(0, 400).map(i -> 399 - i).forEach(i -> rows.add(UCSBDate.builder()
+        .quarterYYYYQ("%d%d".formatted(2020 + i / 80, 1 + i / 20 % 4))
+        .name("date %d".formatted(i))
+        .localDateTime(START.plusDays(i / 20 * 91 + i % 20 * 4))
+        .build()));
+    seeded = new ArrayList<>();
+    ucsbDateRepository.saveAll(rows).forEach(seeded::add);
+    jdbcTemplate.execute("analyze");
+  }
+
+  // a single select, which is then EXPLAINed; the seeded rows are flushed first so their inserts aren't counted
+  private List<UCSBDate> findQuarters(String first, String last) throws Throwable {
+    entityManager.flush();
+    return RecordingQueryCounter.assertQueries(1, () -> ucsbDateRepository.findQuarters(first, last));
+  }
+
+  private String explainLastSelect(Object... params) {
+    List<String> plan = jdbcTemplate.queryForList("explain " + RecordingQueryCounter.statements().get(0), String.class, params);
+    return plan.get(0);
+  }
+
+  @Test
+  void one_quarter_in_date_order_uses_quarter_index() throws Throwable {
+    List<UCSBDate> rows = findQuarters("20223", "20223");
+
+    assertEquals(20, rows.size());
+    assertEquals("date 200", rows.get(0).getName());
+    assertEquals("date 219", rows.get(19).getName());
+    assertTrue(explainLastSelect("20223", "20223").contains("UCSBDATES_QUARTER_LOCAL_DATE_TIME_IDX"));
+  }
+
+  @Test
+  void a_range_of_quarters_in_quarter_then_date_order_uses_quarter_index() throws Throwable {
+    List<UCSBDate> rows = findQuarters("20214", "20221");
+
+    assertEquals(40, rows.size());
+    assertEquals("date 140", rows.get(0).getName());
+    assertEquals("date 159", rows.get(19).getName());
+    assertEquals("date 160", rows.get(20).getName());
+    assertTrue(explainLastSelect("20214", "20221").contains("UCSBDATES_QUARTER_LOCAL_DATE_TIME_IDX"));
+  }
+
+  @Test
+  void delete_row_by_id_is_one_delete() throws Throwable {
+    long id = seeded.get(0).getId();
+    entityManager.flush();
+    entityManager.clear();
+
+    assertEquals(1, (int) RecordingQueryCounter.assertQueries(1, () -> ucsbDateRepository.deleteRowById(id)));
+    assertTrue(RecordingQueryCounter.statements().get(0).startsWith("delete from ucsbdates"));
+    assertEquals(0, ucsbDateRepository.deleteRowById(id));
+    assertFalse(ucsbDateRepository.existsById(id));
+    assertEquals(399, ucsbDateRepository.count());
+  }
+
+  @Test
+  void delete_rows_by_ids_is_one_delete_and_skips_missing_ids() throws Throwable {
+    List<Long> ids = seeded.subList(0, 20).stream().map(UCSBDate::getId).collect(Collectors.toList());
+    ids.add(-1L);
+    entityManager.flush();
+    entityManager.clear();
+
+    assertEquals(20, (int) RecordingQueryCounter.assertQueries(1, () -> ucsbDateRepository.deleteRowsByIds(ids)));
+    assertEquals(380, ucsbDateRepository.count());
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { AdminEmailIndex.class, AdminEmailIndexTests.Config.class })
+@TestPropertySource(properties = "app.admin.emails=admin1@ucsb.edu,admin2@ucsb.edu")
+class AdminEmailIndexTests {
+
+  // Spring Boot applications split comma separated properties into lists using this conversion service
+  @Configuration
+  static class Config {
+    @Bean
+    public ConversionService conversionService() {
+      return ApplicationConversionService.getSharedInstance();
+    }
+  }
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  AdminEmailIndex adminEmailIndex;
+
+  private User user(String email, boolean admin) {
+    return User.builder().email(email).admin(admin).build();
+  }
+
+  @BeforeEach
+  void freezeClock() {
+    adminEmailIndex.clock = Clock.fixed(Instant.parse("2023-10-01T00:00:00Z"), ZoneOffset.UTC);
+    adminEmailIndex.refresh();
+  }
+
+  @Test
+  void test_configured_admins_are_admins_without_a_database_lookup() {
+    clearInvocations(userRepository);
+
+    assertTrue(adminEmailIndex.isAdmin("admin1@ucsb.edu"));
+    assertTrue(adminEmailIndex.isAdmin("admin2@ucsb.edu"));
+    assertFalse(adminEmailIndex.isAdmin("student@ucsb.edu"));
+
+    verifyNoInteractions(userRepository);
+  }
+
+  @Test
+  void test_refresh_loads_admins_from_users_table() {
+    when(userRepository.findAllByAdminTrue()).thenReturn(List.of(user("ta@ucsb.edu", true)));
+
+    adminEmailIndex.refresh();
+    assertTrue(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+
+    when(userRepository.findAllByAdminTrue()).thenReturn(List.of());
+    adminEmailIndex.refresh();
+    assertFalse(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+  }
+
+  @Test
+  void test_admins_changed_elsewhere_are_seen_once_the_index_is_too_old() {
+    when(userRepository.findAllByAdminTrue()).thenReturn(List.of(user("ta@ucsb.edu", true)));
+    adminEmailIndex.refresh();
+    clearInvocations(userRepository);
+
+    // revoked by another instance: still trusted until the index is maxAgeSeconds old
+    when(userRepository.findAllByAdminTrue()).thenReturn(List.of(user("tutor@ucsb.edu", true)));
+    adminEmailIndex.clock = Clock.offset(adminEmailIndex.clock, Duration.ofSeconds(29));
+    assertTrue(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+    verifyNoInteractions(userRepository);
+
+    adminEmailIndex.clock = Clock.offset(adminEmailIndex.clock, Duration.ofSeconds(1));
+    assertFalse(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+    assertTrue(adminEmailIndex.isAdmin("tutor@ucsb.edu"));
+    verify(userRepository, times(1)).findAllByAdminTrue();
+  }
+
+  @Test
+  void test_a_login_that_waited_for_another_reload_does_not_reload_again() {
+    Instant loaded = Instant.parse("2023-10-01T00:00:00Z");
+    Clock clock = mock(Clock.class);
+    // stale when first checked, then the other login's reload finished before this one got the lock
+    when(clock.instant()).thenReturn(loaded.plusSeconds(30), loaded.minusSeconds(1));
+    adminEmailIndex.clock = clock;
+    clearInvocations(userRepository);
+
+    assertFalse(adminEmailIndex.isAdmin("student@ucsb.edu"));
+    verifyNoInteractions(userRepository);
+  }
+
+  @Test
+  void test_user_changes_update_the_index() {
+    adminEmailIndex.userChanged(user("ta@ucsb.edu", true));
+    assertTrue(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+
+    adminEmailIndex.userChanged(user("ta@ucsb.edu", false));
+    assertFalse(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+
+    adminEmailIndex.userChanged(user("ta@ucsb.edu", true));
+    adminEmailIndex.userRemoved(user("ta@ucsb.edu", true));
+    assertFalse(adminEmailIndex.isAdmin("ta@ucsb.edu"));
+  }
+}
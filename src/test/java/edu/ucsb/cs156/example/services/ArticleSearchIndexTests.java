@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = ArticleSearchIndex.class)
+class ArticleSearchIndexTests {
+
+  @MockBean
+  ArticlesRepository articlesRepository;
+
+  @MockBean
+  TableVersions tableVersions;
+
+  @Autowired
+  ArticleSearchIndex articleSearchIndex;
+
+  // the version of the latest write through this instance; the others write nothing unless a test says so
+  private long version;
+
+  private void put(Articles article) {
+    articleSearchIndex.put(article, ++version);
+  }
+
+  private void remove(long id) {
+    articleSearchIndex.remove(id, ++version);
+  }
+
+  private static Articles article(long id, String title, String explanation) {
+    return Articles.builder()
+        .id(id)
+        .title(title)
+        .url("https://example.org/" + id)
+        .explanation(explanation)
+        .email("cgaucho@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+        .build();
+  }
+
+  private static final Articles TESTING = article(1, "How to write good tests", "Tests that fail for the right reasons.");
+  private static final Articles SPRING = article(2, "Spring Boot in practice", "Controllers, repositories and tests.");
+  private static final Articles DINING = article(3, "Dining commons hours", "When Ortega and Carrillo are open.");
+
+  private List<Long> searchIds(String query) {
+    return articleSearchIndex.search(query, 10).stream().map(hit -> hit.getArticle().getId()).toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    when(articlesRepository.findAll()).thenReturn(List.of(TESTING, SPRING, DINING));
+    articleSearchIndex.refresh();
+    version = 0;
+  }
+
+  @Test
+  void test_search_answers_from_memory() {
+    clearInvocations(articlesRepository);
+
+    List<ArticleSearchHit> hits = articleSearchIndex.search("TESTS!", 10);
+
+    assertEquals(List.of(TESTING, SPRING), hits.stream().map(ArticleSearchHit::getArticle).toList());
+    verifyNoInteractions(articlesRepository);
+  }
+
+  @Test
+  void test_title_words_count_more_than_explanation_words() {
+    assertEquals(List.of(2L, 1L), searchIds("spring practice write"));
+  }
+
+  @Test
+  void test_words_are_letters_and_digits() {
+    assertEquals(List.of("how", "to", "write", "3", "ünïcode", "tests"), ArticleSearchIndex.tokens("How-to: write 3 ÜNÏCODE tests..."));
+    assertEquals(List.of(), ArticleSearchIndex.tokens(null));
+    assertEquals(List.of(), ArticleSearchIndex.tokens(" -- "));
+    assertEquals(List.of("leading", "dots"), ArticleSearchIndex.tokens("...leading dots"));
+    assertEquals(Map.of("good", 2, "tests", 3), ArticleSearchIndex.termFrequencies(article(4, "good tests", "tests")));
+    assertEquals(List.of(), searchIds(" -- "));
+  }
+
+  @Test
+  void test_put_adds_and_replaces_articles() {
+    put(article(4, "Storke Tower", "The tallest building on campus."));
+    assertEquals(List.of(4L), searchIds("storke"));
+
+    put(article(3, "Dining commons menus", "Now with tests."));
+    assertEquals(List.of(), searchIds("ortega"));
+    assertEquals(List.of(3L), searchIds("menus"));
+  }
+
+  @Test
+  void test_put_keeps_a_copy() {
+    Articles storke = article(4, "Storke Tower", "The tallest building on campus.");
+    put(storke);
+
+    storke.setTitle("renamed");
+    articleSearchIndex.search("storke", 1).get(0).getArticle().setUrl("changed");
+
+    assertEquals(article(4, "Storke Tower", "The tallest building on campus."), articleSearchIndex.search("storke", 1).get(0).getArticle());
+  }
+
+  @Test
+  void test_remove_drops_articles() {
+    remove(1);
+
+    assertEquals(List.of(2L), searchIds("tests"));
+  }
+
+  @Test
+  void test_search_catches_up_with_other_instances_by_reading_back_the_articles_they_changed() {
+    // another instance rewrote 2, added 4 and deleted 1
+    when(tableVersions.version(ArticleSearchIndex.TABLE)).thenReturn(3L);
+    when(tableVersions.changedKeys(ArticleSearchIndex.TABLE, 0, 3)).thenReturn(Optional.of(List.of("1", "2", "4")));
+    when(articlesRepository.findAllById(List.of(1L, 2L, 4L)))
+        .thenReturn(List.of(article(2, "Spring Boot", "No more of that."), article(4, "Storke Tower", "Tests of the bells.")));
+
+    assertEquals(List.of(4L), searchIds("tests"));
+    assertEquals(List.of(2L), searchIds("spring"));
+
+    verify(tableVersions, times(1)).changedKeys(any(), anyLong(), anyLong());
+    verify(articlesRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_writes_through_this_instance_alone_need_no_catching_up() {
+    put(article(4, "Storke Tower", "The tallest building on campus."));
+    remove(1);
+    when(tableVersions.version(ArticleSearchIndex.TABLE)).thenReturn(2L);
+
+    assertEquals(List.of(4L), searchIds("storke"));
+    assertEquals(List.of(2L), searchIds("tests"));
+
+    verify(tableVersions, never()).changedKeys(any(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_a_write_through_this_instance_after_another_instances_is_read_back_with_it() {
+    // version 1 was another instance's
+    version = 1;
+    put(article(4, "Storke Tower", "The tallest building on campus."));
+    when(tableVersions.version(ArticleSearchIndex.TABLE)).thenReturn(2L);
+    when(tableVersions.changedKeys(ArticleSearchIndex.TABLE, 0, 2)).thenReturn(Optional.of(List.of("5", "4")));
+    when(articlesRepository.findAllById(List.of(5L, 4L)))
+        .thenReturn(List.of(article(5, "Storke Plaza", "Next to the tower."), article(4, "Storke Tower", "The tallest building on campus.")));
+
+    assertEquals(List.of(4L, 5L), searchIds("tower"));
+
+    // reports of writes that have been read back since change nothing
+    articleSearchIndex.put(article(5, "Renamed", ""), 1);
+    articleSearchIndex.remove(4, 2);
+    assertEquals(List.of(4L, 5L), searchIds("tower"));
+  }
+
+  @Test
+  void test_a_search_that_finds_the_index_caught_up_meanwhile_leaves_it_be() {
+    when(tableVersions.version(ArticleSearchIndex.TABLE)).thenReturn(1L);
+    when(tableVersions.changedKeys(ArticleSearchIndex.TABLE, 0, 1)).thenReturn(Optional.of(List.of("4")));
+    doAnswer(invocation -> {
+      // a write through this instance, made and reported while the rows were being read
+      articleSearchIndex.put(article(4, "Storke Tower", "Bells."), 1);
+      return List.of(article(4, "Storke Tower", "The tallest building on campus."));
+    }).when(articlesRepository).findAllById(List.of(4L));
+
+    assertEquals(List.of(4L), searchIds("bells"));
+    assertEquals(List.of(), searchIds("tallest"));
+  }
+
+  @Test
+  void test_search_reloads_everything_once_the_changes_are_no_longer_logged() {
+    when(tableVersions.version(ArticleSearchIndex.TABLE)).thenReturn(5000L);
+    when(tableVersions.changedKeys(ArticleSearchIndex.TABLE, 0, 5000)).thenReturn(Optional.empty());
+    when(articlesRepository.findAll()).thenReturn(List.of(DINING));
+
+    assertEquals(List.of(), searchIds("tests"));
+    assertEquals(List.of(3L), searchIds("ortega"));
+
+    verify(articlesRepository, times(2)).findAll();
+  }
+}
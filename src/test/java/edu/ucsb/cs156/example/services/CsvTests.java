@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTests {
+
+  @Test
+  void test_parse_splits_lines_and_fields() {
+    assertEquals(
+        List.of(List.of("a", "b", "c"), List.of("1", "2", "3")),
+        Csv.parse("a,b,c\n1,2,3\n"));
+  }
+
+  @Test
+  void test_parse_accepts_crlf_and_cr_line_endings_and_skips_blank_lines() {
+    assertEquals(
+        List.of(List.of("a", "b"), List.of("1", "2"), List.of("3", "4")),
+        Csv.parse("a,b\r\n\r\n1,2\r3,4\r"));
+  }
+
+  @Test
+  void test_parse_handles_quoted_fields() {
+    assertEquals(
+        List.of(List.of("Mac, \"n\" cheese", "line\nbreak", "")),
+        Csv.parse("\"Mac, \"\"n\"\" cheese\",\"line\nbreak\",\"\""));
+  }
+
+  @Test
+  void test_parse_keeps_empty_fields() {
+    assertEquals(List.of(List.of("", "b", "")), Csv.parse(",b,"));
+  }
+
+  @Test
+  void test_parse_of_empty_text_has_no_lines() {
+    assertEquals(List.of(), Csv.parse(""));
+  }
+}
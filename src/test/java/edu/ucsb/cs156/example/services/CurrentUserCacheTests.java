@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class CurrentUserCacheTests {
+
+  private CurrentUserCache cache;
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Function<String, User> loader = email -> {
+    loads.incrementAndGet();
+    return User.builder().email(email).build();
+  };
+
+  @BeforeEach
+  void setup() {
+    cache = new CurrentUserCache();
+    cache.ttlSeconds = 60;
+    cache.maxEntries = 2;
+    cache.clock = Clock.fixed(Instant.parse("2023-10-01T00:00:00Z"), ZoneOffset.UTC);
+  }
+
+  @Test
+  void test_second_get_is_served_from_cache() {
+    User first = cache.get("a@ucsb.edu", loader);
+    User second = cache.get("a@ucsb.edu", loader);
+
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void test_entries_expire_after_ttl() {
+    cache.get("a@ucsb.edu", loader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(60));
+    cache.get("a@ucsb.edu", loader);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_invalidate_forces_reload() {
+    cache.get("a@ucsb.edu", loader);
+    cache.get("b@ucsb.edu", loader);
+    cache.invalidate("a@ucsb.edu");
+    cache.get("a@ucsb.edu", loader);
+    cache.get("b@ucsb.edu", loader);
+    assertEquals(3, loads.get());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void test_user_loaded_while_it_was_invalidated_is_not_kept() {
+    User loaded = cache.get("a@ucsb.edu", email -> {
+      // the row changes while the old one is being read
+      cache.invalidate(email);
+      return loader.apply(email);
+    });
+
+    assertEquals("a@ucsb.edu", loaded.getEmail());
+    assertEquals(0, cache.size());
+    cache.get("a@ucsb.edu", loader);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_expired_entries_are_evicted_when_full() {
+    cache.get("a@ucsb.edu", loader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(30));
+    cache.get("b@ucsb.edu", loader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(31));
+
+    // a has expired and is evicted to make room; b is kept
+    cache.get("c@ucsb.edu", loader);
+    assertEquals(2, cache.size());
+    cache.get("b@ucsb.edu", loader);
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void test_cache_is_cleared_when_full_of_live_entries() {
+    cache.get("a@ucsb.edu", loader);
+    cache.get("b@ucsb.edu", loader);
+    cache.get("c@ucsb.edu", loader);
+
+    assertEquals(1, cache.size());
+  }
+}
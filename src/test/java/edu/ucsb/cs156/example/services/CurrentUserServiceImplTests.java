@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { CurrentUserServiceImpl.class, CurrentUserCache.class, GrantedAuthoritiesService.class })
+@TestPropertySource(properties = "app.admin.emails=admin@ucsb.edu")
+class CurrentUserServiceImplTests {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  CurrentUserService currentUserService;
+
+  @Autowired
+  CurrentUserCache currentUserCache;
+
+  private void loginAs(String email) {
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("email", email, "sub", "12345", "name", "Chris Gaucho", "email_verified", true),
+        "email");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @BeforeEach
+  void setup() {
+    currentUserCache.invalidateAll();
+  }
+
+  @AfterEach
+  void cleanup() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_many_requests_in_one_session_look_up_the_user_once() {
+    // arrange
+    User stored = User.builder().id(7L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored));
+    loginAs("cgaucho@ucsb.edu");
+
+    // act
+    for (int i = 0; i < 10; i++) {
+      CurrentUser cu = currentUserService.getCurrentUser();
+      assertEquals(stored, cu.getUser());
+    }
+
+    // assert
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_invalidated_user_is_looked_up_again() {
+    // arrange
+    User stored = User.builder().id(7L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored));
+    loginAs("cgaucho@ucsb.edu");
+
+    // act
+    currentUserService.getUser();
+    currentUserCache.invalidate("cgaucho@ucsb.edu");
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_new_admin_user_is_saved_once_and_cached() {
+    // arrange
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.empty());
+    loginAs("admin@ucsb.edu");
+
+    // act
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+
+    // assert
+    assertTrue(first.getAdmin());
+    assertEquals(first, second);
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+    verify(userRepository, times(1)).save(any());
+  }
+}
@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = DiningCommonsLocator.class)
+class DiningCommonsLocatorTests {
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  TableVersions tableVersions;
+
+  @Autowired
+  DiningCommonsLocator diningCommonsLocator;
+
+  // the version of the latest write through this instance; the others write nothing unless a test says so
+  private long version;
+
+  private void changed(UCSBDiningCommons commons) {
+    diningCommonsLocator.commonsChanged(commons, ++version);
+  }
+
+  private void removed(UCSBDiningCommons commons) {
+    diningCommonsLocator.commonsRemoved(commons, ++version);
+  }
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(latitude).longitude(longitude).build();
+  }
+
+  private static final UCSBDiningCommons CARRILLO = commons("carrillo", 34.409953, -119.85277);
+  private static final UCSBDiningCommons DLG = commons("de-la-guerra", 34.409811, -119.845026);
+  private static final UCSBDiningCommons ORTEGA = commons("ortega", 34.410987, -119.84709);
+  private static final UCSBDiningCommons NOWHERE = commons("nowhere", null, null);
+
+  private List<String> nearestCodes(double lat, double lon, int k, Double radius) {
+    return diningCommonsLocator.nearest(lat, lon, k, radius).stream().map(n -> n.getCommons().getCode()).toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(CARRILLO, DLG, ORTEGA, NOWHERE));
+    diningCommonsLocator.refresh();
+    version = 0;
+  }
+
+  @Test
+  void test_nearest_answers_from_memory() {
+    clearInvocations(ucsbDiningCommonsRepository);
+
+    List<NearbyDiningCommons> nearest = diningCommonsLocator.nearest(34.4099, -119.8450, 2, null);
+
+    assertEquals(List.of(DLG, ORTEGA), nearest.stream().map(NearbyDiningCommons::getCommons).toList());
+    assertEquals(10.2, nearest.get(0).getDistanceMeters(), 0.1);
+    verifyNoInteractions(ucsbDiningCommonsRepository);
+  }
+
+  @Test
+  void test_commons_without_a_location_are_never_returned() {
+    assertEquals(List.of("de-la-guerra", "ortega", "carrillo"), nearestCodes(34.4099, -119.8450, 10, null));
+  }
+
+  @Test
+  void test_radius_limits_results() {
+    assertEquals(List.of("de-la-guerra"), nearestCodes(34.4099, -119.8450, 10, 100.0));
+  }
+
+  @Test
+  void test_commonsChanged_adds_moves_and_drops_commons() {
+    changed(commons("portola", 34.417857, -119.867731));
+    assertEquals(List.of("portola"), nearestCodes(34.4178, -119.8677, 1, null));
+
+    changed(commons("portola", 34.4099, -119.8450));
+    assertEquals(List.of("portola", "de-la-guerra"), nearestCodes(34.4099, -119.8450, 2, null));
+
+    changed(commons("portola", null, -119.8450));
+    changed(commons("ortega", 34.41, null));
+    assertEquals(List.of("de-la-guerra", "carrillo"), nearestCodes(34.4099, -119.8450, 10, null));
+  }
+
+  @Test
+  void test_commonsChanged_keeps_a_copy() {
+    UCSBDiningCommons portola = commons("portola", 34.417857, -119.867731);
+    changed(portola);
+
+    portola.setLatitude(0.0);
+    portola.setName("renamed");
+
+    NearbyDiningCommons nearest = diningCommonsLocator.nearest(34.4178, -119.8677, 1, null).get(0);
+    assertEquals(commons("portola", 34.417857, -119.867731), nearest.getCommons());
+  }
+
+  @Test
+  void test_commonsRemoved_drops_commons() {
+    removed(DLG);
+
+    assertEquals(List.of("ortega", "carrillo"), nearestCodes(34.4099, -119.8450, 10, null));
+  }
+
+  @Test
+  void test_lookups_catch_up_with_other_instances_by_reading_back_the_commons_they_changed() {
+    // another instance moved ortega, added portola and deleted de-la-guerra
+    when(tableVersions.version(DiningCommonsLocator.TABLE)).thenReturn(3L);
+    when(tableVersions.changedKeys(DiningCommonsLocator.TABLE, 0, 3))
+        .thenReturn(Optional.of(List.of("ortega", "portola", "de-la-guerra")));
+    when(ucsbDiningCommonsRepository.findAllById(List.of("ortega", "portola", "de-la-guerra")))
+        .thenReturn(List.of(commons("ortega", 34.4099, -119.8450), commons("portola", 34.417857, -119.867731)));
+
+    assertEquals(List.of("ortega", "carrillo", "portola"), nearestCodes(34.4099, -119.8450, 10, null));
+    assertEquals(List.of("ortega"), nearestCodes(34.4099, -119.8450, 1, null));
+
+    verify(tableVersions, times(1)).changedKeys(any(), anyLong(), anyLong());
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_writes_through_this_instance_alone_need_no_catching_up() {
+    changed(commons("portola", 34.417857, -119.867731));
+    removed(DLG);
+    when(tableVersions.version(DiningCommonsLocator.TABLE)).thenReturn(2L);
+
+    assertEquals(List.of("ortega", "carrillo", "portola"), nearestCodes(34.4099, -119.8450, 10, null));
+
+    verify(tableVersions, never()).changedKeys(any(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_a_write_through_this_instance_after_another_instances_is_read_back_with_it() {
+    // version 1 was another instance's
+    version = 1;
+    changed(commons("portola", 34.417857, -119.867731));
+    when(tableVersions.version(DiningCommonsLocator.TABLE)).thenReturn(2L);
+    when(tableVersions.changedKeys(DiningCommonsLocator.TABLE, 0, 2)).thenReturn(Optional.of(List.of("carrillo", "portola")));
+    when(ucsbDiningCommonsRepository.findAllById(List.of("carrillo", "portola")))
+        .thenReturn(List.of(commons("portola", 34.417857, -119.867731)));
+
+    assertEquals(List.of("de-la-guerra", "ortega", "portola"), nearestCodes(34.4099, -119.8450, 10, null));
+
+    // reports of writes that have been read back since change nothing
+    diningCommonsLocator.commonsChanged(commons("carrillo", 34.409953, -119.85277), 1);
+    diningCommonsLocator.commonsRemoved(commons("portola", null, null), 2);
+    assertEquals(List.of("de-la-guerra", "ortega", "portola"), nearestCodes(34.4099, -119.8450, 10, null));
+  }
+
+  @Test
+  void test_lookups_reload_everything_once_the_changes_are_no_longer_logged() {
+    when(tableVersions.version(DiningCommonsLocator.TABLE)).thenReturn(5000L);
+    when(tableVersions.changedKeys(DiningCommonsLocator.TABLE, 0, 5000)).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(CARRILLO));
+
+    assertEquals(List.of("carrillo"), nearestCodes(34.4099, -119.8450, 10, null));
+    assertEquals(List.of("carrillo"), nearestCodes(34.4099, -119.8450, 10, null));
+
+    verify(ucsbDiningCommonsRepository, times(2)).findAll();
+  }
+}
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeoKdTreeTests {
+
+  record Place(String name, double lat, double lon) {}
+
+  private static GeoKdTree<Place> tree(List<Place> places) {
+    return GeoKdTree.build(places, Place::lat, Place::lon);
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * GeoKdTree.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+  }
+
+  private static List<Place> bruteForce(List<Place> places, double lat, double lon, int k, double maxMeters) {
+    return places.stream()
+        .filter(p -> haversine(lat, lon, p.lat(), p.lon()) <= maxMeters)
+        .sorted(Comparator.comparingDouble(p -> haversine(lat, lon, p.lat(), p.lon())))
+        .limit(k)
+        .toList();
+  }
+
+  private static List<Place> items(List<GeoKdTree.Neighbor<Place>> neighbors) {
+    return neighbors.stream().map(GeoKdTree.Neighbor::item).toList();
+  }
+
+  @Test
+  void nearest_matches_a_brute_force_scan() {
+    Random random = new Random(156);
+    List<Place> places = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      places.add(new Place("p" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    GeoKdTree<Place> tree = tree(places);
+
+    for (int q = 0; q < 200; q++) {
+      double lat = random.nextDouble() * 180 - 90;
+      double lon = random.nextDouble() * 360 - 180;
+      int k = 1 + random.nextInt(10);
+      double radius = q % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 2_000_000;
+
+      List<GeoKdTree.Neighbor<Place>> found = tree.nearest(lat, lon, k, radius);
+
+      assertEquals(bruteForce(places, lat, lon, k, radius), items(found));
+      for (GeoKdTree.Neighbor<Place> n : found) {
+        assertEquals(haversine(lat, lon, n.item().lat(), n.item().lon()), n.distanceMeters(), 0.01);
+      }
+    }
+  }
+
+  @Test
+  void nearest_works_across_the_antimeridian_and_near_the_poles() {
+    Place west = new Place("west", 0, 179.9);
+    Place east = new Place("east", 0, -179.9);
+    Place middle = new Place("middle", 0, 0);
+    Place north = new Place("north", 89.9, 0);
+    Place otherNorth = new Place("otherNorth", 89.9, 180);
+    GeoKdTree<Place> tree = tree(List.of(west, east, middle, north, otherNorth));
+
+    assertEquals(List.of(east, west), items(tree.nearest(0, -179.95, 2, Double.POSITIVE_INFINITY)));
+    assertEquals(List.of(north, otherNorth), items(tree.nearest(89.95, 90, 2, Double.POSITIVE_INFINITY)));
+  }
+
+  @Test
+  void radius_limits_the_results() {
+    Place storke = new Place("storke", 34.4124, -119.8486);
+    Place portola = new Place("portola", 34.4179, -119.8677);
+    GeoKdTree<Place> tree = tree(List.of(storke, portola));
+
+    assertEquals(List.of(storke), items(tree.nearest(34.4124, -119.8486, 5, 1000)));
+    assertEquals(List.of(storke, portola), items(tree.nearest(34.4124, -119.8486, 5, 5000)));
+    assertEquals(List.of(), tree.nearest(0, 0, 5, 1000));
+  }
+
+  @Test
+  void empty_tree_and_nonpositive_k_find_nothing() {
+    assertEquals(0, tree(List.of()).size());
+    assertEquals(List.of(), tree(List.of()).nearest(0, 0, 3, Double.POSITIVE_INFINITY));
+    assertEquals(List.of(), tree(List.of(new Place("a", 0, 0))).nearest(0, 0, 0, Double.POSITIVE_INFINITY));
+  }
+}
@@ -0,0 +1,347 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HelpRequestEventFeedTests {
+
+  private static final Pattern FRAME = Pattern.compile("(?:id:(\\S+)\\n)?event:(\\w+)\\n");
+
+  private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<RecordingEmitter> emitters = new ArrayList<>();
+  private HelpRequestEventFeed feed;
+
+  /** Records what would have been written to the client instead of writing it. */
+  private class RecordingEmitter extends SseEmitter {
+    final List<String> ids = new ArrayList<>();
+    final List<HelpRequestEvent> events = new ArrayList<>();
+    final List<Runnable> onCompletion = new ArrayList<>();
+    final List<Runnable> onTimeout = new ArrayList<>();
+    final List<Consumer<Throwable>> onError = new ArrayList<>();
+    final CountDownLatch sending = new CountDownLatch(1);
+    final CountDownLatch heartbeat = new CountDownLatch(1);
+    IOException failWith;
+    CountDownLatch release;
+    Throwable completedWith;
+    int heartbeats;
+
+    // the servlet container would call these when the connection ends
+    @Override
+    public void onCompletion(Runnable callback) {
+      onCompletion.add(callback);
+    }
+
+    @Override
+    public void onTimeout(Runnable callback) {
+      onTimeout.add(callback);
+    }
+
+    @Override
+    public void onError(Consumer<Throwable> callback) {
+      onError.add(callback);
+    }
+
+    @Override
+    public void complete() {
+      onCompletion.forEach(Runnable::run);
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+      completedWith = ex;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sending.countDown();
+      if (release != null) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (failWith != null) {
+        throw failWith;
+      }
+      StringBuilder frame = new StringBuilder();
+      for (DataWithMediaType part : builder.build()) {
+        frame.append(part.getData() instanceof String s ? s : mapper.writeValueAsString(part.getData()));
+      }
+      if (frame.toString().equals(":heartbeat\n\n")) {
+        synchronized (this) {
+          heartbeats++;
+        }
+        heartbeat.countDown();
+        return;
+      }
+      Matcher matcher = FRAME.matcher(frame);
+      assertTrue(matcher.lookingAt(), frame.toString());
+      String data = frame.substring(frame.indexOf("data:") + 5, frame.length() - 2);
+      HelpRequestEvent event = mapper.readValue(data, HelpRequestEvent.class);
+      assertEquals(matcher.group(2), event.getType());
+      synchronized (this) {
+        ids.add(matcher.group(1));
+        events.add(event);
+      }
+    }
+
+    synchronized List<String> types() {
+      return events.stream().map(HelpRequestEvent::getType).toList();
+    }
+
+    synchronized int heartbeats() {
+      return heartbeats;
+    }
+
+    synchronized String lastId() {
+      return ids.get(ids.size() - 1);
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    feed = new HelpRequestEventFeed() {
+      @Override
+      SseEmitter newEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        return emitter;
+      }
+    };
+    feed.meterRegistry = meterRegistry;
+    feed.bufferSize = 3;
+    feed.historySize = 5;
+    feed.init();
+    feed.shutdown();
+    feed.executor = Runnable::run;
+  }
+
+  @AfterEach
+  void tearDown() {
+    feed.shutdown();
+  }
+
+  private static HelpRequest helpRequest(long id, boolean solved) {
+    return HelpRequest.builder().id(id).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7").explanation("stuck").solved(solved).build();
+  }
+
+  private RecordingEmitter subscribe(String lastEventId) {
+    feed.subscribe(lastEventId);
+    return emitters.get(emitters.size() - 1);
+  }
+
+  @Test
+  void test_subscribers_get_each_kind_of_event_with_increasing_ids() {
+    RecordingEmitter client = subscribe(null);
+
+    feed.created(helpRequest(1, false));
+    feed.updated(helpRequest(1, false), false);
+    feed.updated(helpRequest(1, true), false);
+    feed.updated(helpRequest(1, true), true);
+    feed.deleted(1);
+
+    assertEquals(List.of("create", "update", "solve", "update", "delete"), client.types());
+    assertEquals(helpRequest(1, false), client.events.get(0).getHelpRequest());
+    assertEquals(1L, client.events.get(4).getHelpRequestId());
+    assertNull(client.events.get(4).getHelpRequest());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(client.ids.get(i).matches("[0-9a-z]+-" + (i + 1)), client.ids.get(i));
+    }
+    assertEquals(1, feed.subscriberCount());
+    assertEquals(1.0, meterRegistry.get("helprequest.feed.subscribers").gauge().value());
+  }
+
+  @Test
+  void test_a_new_subscriber_only_gets_events_from_now_on() {
+    feed.created(helpRequest(1, false));
+    RecordingEmitter client = subscribe(null);
+    feed.created(helpRequest(2, false));
+
+    assertEquals(1, client.events.size());
+    assertEquals(2L, client.events.get(0).getHelpRequestId());
+  }
+
+  @Test
+  void test_a_reconnecting_subscriber_gets_only_what_it_missed() {
+    RecordingEmitter first = subscribe(null);
+    feed.created(helpRequest(1, false));
+    String lastSeen = first.lastId();
+    first.complete();
+    feed.created(helpRequest(2, false));
+    feed.updated(helpRequest(2, true), false);
+
+    RecordingEmitter second = subscribe(lastSeen);
+    feed.deleted(1);
+
+    assertEquals(List.of("create", "solve", "delete"), second.types());
+    assertEquals(List.of(2L, 2L, 1L), second.events.stream().map(HelpRequestEvent::getHelpRequestId).toList());
+  }
+
+  @Test
+  void test_resuming_from_the_latest_id_replays_nothing() {
+    RecordingEmitter first = subscribe(null);
+    feed.created(helpRequest(1, false));
+
+    RecordingEmitter second = subscribe(first.lastId());
+
+    assertEquals(List.of(), second.types());
+  }
+
+  @Test
+  void test_ids_that_cannot_be_resumed_get_a_reset() {
+    RecordingEmitter first = subscribe(null);
+    for (long id = 1; id <= 7; id++) {
+      feed.created(helpRequest(id, false));
+    }
+    String epoch = first.ids.get(0).split("-")[0];
+
+    // another instance, garbage, from the future, older than the history, more than fits in the buffer
+    for (String lastEventId : List.of("zzz-3", epoch + "-x", epoch + "-8", epoch + "-1", epoch + "-3")) {
+      RecordingEmitter client = subscribe(lastEventId);
+      assertEquals(List.of("reset"), client.types(), lastEventId);
+      assertNull(client.ids.get(0));
+    }
+    assertEquals(List.of("create", "create", "create"), subscribe(epoch + "-4").types());
+  }
+
+  @Test
+  void test_slow_subscribers_drop_the_oldest_events_without_blocking_writers() throws Exception {
+    feed.shutdown();
+    feed.init();
+    RecordingEmitter slow = subscribe(null);
+    slow.release = new CountDownLatch(1);
+
+    // the first event is handed to the slow client's sender, which then blocks; the buffer holds 3 more
+    feed.created(helpRequest(1, false));
+    assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+    for (long id = 2; id <= 6; id++) {
+      feed.created(helpRequest(id, false));
+    }
+    slow.release.countDown();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (slow.types().size() < 4 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of(1L, 4L, 5L, 6L), slow.events.stream().map(HelpRequestEvent::getHelpRequestId).toList());
+    assertEquals(2.0, meterRegistry.get("helprequest.feed.dropped").counter().count());
+  }
+
+  @Test
+  void test_subscribers_are_drained_by_a_bounded_pool() {
+    feed.threads = 2;
+    feed.init();
+
+    assertEquals(2, ((ThreadPoolExecutor) feed.executor).getMaximumPoolSize());
+  }
+
+  @Test
+  void test_idle_subscribers_get_a_heartbeat() {
+    RecordingEmitter client = subscribe(null);
+
+    feed.heartbeat();
+    feed.created(helpRequest(1, false));
+    feed.heartbeat();
+
+    assertEquals(2, client.heartbeats());
+    assertEquals(List.of("create"), client.types());
+  }
+
+  @Test
+  void test_heartbeats_never_queue_behind_events() throws Exception {
+    feed.shutdown();
+    feed.init();
+    RecordingEmitter slow = subscribe(null);
+    slow.release = new CountDownLatch(1);
+    feed.created(helpRequest(1, false));
+    assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+
+    feed.heartbeat();
+    slow.release.countDown();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (slow.types().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("create"), slow.types());
+    assertEquals(0, slow.heartbeats());
+  }
+
+  @Test
+  void test_heartbeats_are_sent_on_a_schedule() throws Exception {
+    feed.heartbeatSeconds = 1;
+    feed.init();
+    RecordingEmitter client = subscribe(null);
+
+    assertTrue(client.heartbeat.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void test_a_heartbeat_finds_subscribers_that_went_away() {
+    RecordingEmitter broken = subscribe(null);
+    broken.failWith = new IOException("Broken pipe");
+
+    feed.heartbeat();
+
+    assertEquals(0, feed.subscriberCount());
+    assertEquals(broken.failWith, broken.completedWith);
+  }
+
+  @Test
+  void test_streams_time_out_after_the_configured_minutes() {
+    HelpRequestEventFeed configured = new HelpRequestEventFeed();
+    configured.timeoutMinutes = 30;
+
+    assertEquals(30 * 60_000L, configured.newEmitter().getTimeout());
+  }
+
+  @Test
+  void test_subscribers_that_go_away_are_removed() {
+    RecordingEmitter broken = subscribe(null);
+    broken.failWith = new IOException("Broken pipe");
+    RecordingEmitter closed = subscribe(null);
+    RecordingEmitter timedOut = subscribe(null);
+    RecordingEmitter failed = subscribe(null);
+    RecordingEmitter healthy = subscribe(null);
+    closed.complete();
+    timedOut.onTimeout.forEach(Runnable::run);
+    failed.onError.forEach(callback -> callback.accept(new IOException("Connection reset")));
+
+    feed.created(helpRequest(1, false));
+    feed.created(helpRequest(2, false));
+
+    assertEquals(1, feed.subscriberCount());
+    assertEquals(2, healthy.events.size());
+    assertEquals(0, broken.events.size());
+    assertEquals(broken.failWith, broken.completedWith);
+    assertEquals(0, closed.events.size());
+    assertNull(healthy.completedWith);
+  }
+}
@@ -0,0 +1,131 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+// sequence DDL is not transactional, so these tests manage their own data
+@DataJpaTest
+@Import({ IdSequenceAligner.class, TableVersions.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequenceAlignerTests {
+
+  @Autowired
+  IdSequenceAligner aligner;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository repository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @AfterEach
+  void cleanup() {
+    jdbcTemplate.update("delete from ucsbdiningcommonsmenuitems");
+    jdbcTemplate.update("delete from helprequest");
+    jdbcTemplate.update("delete from tableversions");
+  }
+
+  private long nextSequenceValue() {
+    return jdbcTemplate.queryForObject("call next value for ucsbdiningcommonsmenuitems_seq", Long.class);
+  }
+
+  @Test
+  void test_sequence_is_moved_past_rows_inserted_while_the_id_was_an_identity_column() {
+    // arrange: a row written before the switch to a sequence
+    jdbcTemplate.update("insert into ucsbdiningcommonsmenuitems (id, dining_commons_code, name, station) "
+        + "values (1000, 'ortega', 'Pizza', 'Entrees')");
+
+    // act
+    aligner.alignAll();
+    UCSBDiningCommonsMenuItem saved = repository.save(
+        UCSBDiningCommonsMenuItem.builder().diningCommonsCode("ortega").name("Tofu").station("Entrees").build());
+
+    // assert: the first new id comes right after the existing rows
+    assertEquals(1001, saved.getId());
+  }
+
+  @Test
+  void test_every_sequence_backed_table_is_aligned() {
+    // arrange
+    jdbcTemplate.update("insert into helprequest (id, requester_email, team_id, table_or_breakout_room, request_time, explanation, solved) "
+        + "values (300, 'cgaucho@ucsb.edu', 'f23-5pm-4', '7', '2023-10-02 08:00:00', 'stuck', false)");
+
+    // act
+    aligner.alignAll();
+    HelpRequest saved = helpRequestRepository.save(HelpRequest.builder().requesterEmail("ldelplaya@ucsb.edu")
+        .teamId("f23-5pm-4").tableOrBreakoutRoom("8").requestTime(LocalDateTime.parse("2023-10-02T08:05:00"))
+        .explanation("also stuck").solved(false).build());
+
+    // assert
+    assertEquals(301, saved.getId());
+  }
+
+  @Test
+  void test_sequence_that_is_already_ahead_is_left_alone() {
+    // arrange
+    jdbcTemplate.update("insert into ucsbdiningcommonsmenuitems (id, dining_commons_code, name, station) "
+        + "values (5000, 'ortega', 'Pizza', 'Entrees')");
+    aligner.alignAll();
+
+    // act: the sequence now reads 5050, whose block (5000, 5050] is clear of max(id)
+    aligner.alignAll();
+
+    // assert: not restarted again, so the next value follows on
+    assertEquals(5100, nextSequenceValue());
+  }
+
+  @Test
+  void test_each_sequence_is_aligned_holding_its_own_lock() {
+    aligner.alignAll();
+
+    // the lock rows TableVersions.lock creates, one per sequence
+    assertEquals(List.of("articles_seq", "helprequest_seq", "menuitemreview_seq", "recommendationrequest_seq",
+        "tablechanges_seq", "ucsbdates_seq", "ucsbdiningcommonsmenuitems_seq", "users_seq"),
+        jdbcTemplate.queryForList("select table_name from tableversions order by table_name", String.class));
+  }
+
+  @Test
+  void test_empty_tables_are_skipped() {
+    long before = nextSequenceValue();
+
+    aligner.alignAll();
+
+    assertEquals(before + 50, nextSequenceValue());
+  }
+
+  @Test
+  void test_generated_ids_all_come_from_pooled_sequences() {
+    for (Class<?> entity : List.of(Articles.class, HelpRequest.class, MenuItemReview.class,
+        RecommendationRequest.class, UCSBDate.class, UCSBDiningCommonsMenuItem.class, User.class)) {
+      assertEquals(50, IdSequenceAligner.sequenceGenerator(entity).allocationSize(), entity.getSimpleName());
+    }
+    // natural keys have no generator and are skipped
+    assertNull(IdSequenceAligner.sequenceGenerator(UCSBDiningCommons.class));
+  }
+}
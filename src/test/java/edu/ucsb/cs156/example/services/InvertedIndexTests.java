@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTests {
+
+  private static List<Long> ids(List<InvertedIndex.Hit> hits) {
+    return hits.stream().map(InvertedIndex.Hit::id).toList();
+  }
+
+  // BM25 straight from its definition, scoring every document
+  private static List<InvertedIndex.Hit> bruteForce(Map<Long, Map<String, Integer>> documents, List<String> query, int limit) {
+    double averageLength = documents.values().stream()
+        .mapToInt(d -> d.values().stream().mapToInt(Integer::intValue).sum()).average().orElse(0);
+    List<InvertedIndex.Hit> hits = new ArrayList<>();
+    documents.forEach((id, document) -> {
+      int length = document.values().stream().mapToInt(Integer::intValue).sum();
+      double score = 0;
+      for (String term : query.stream().distinct().toList()) {
+        long df = documents.values().stream().filter(d -> d.containsKey(term)).count();
+        int f = document.getOrDefault(term, 0);
+        double idf = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+        score += idf * f * (InvertedIndex.K1 + 1)
+            / (f + InvertedIndex.K1 * (1 - InvertedIndex.B + InvertedIndex.B * length / averageLength));
+      }
+      if (score > 0) {
+        hits.add(new InvertedIndex.Hit(id, score));
+      }
+    });
+    return hits.stream()
+        .sorted(Comparator.comparingDouble(InvertedIndex.Hit::score).reversed().thenComparingLong(InvertedIndex.Hit::id))
+        .limit(limit)
+        .toList();
+  }
+
+  private static void assertSameHits(List<InvertedIndex.Hit> expected, List<InvertedIndex.Hit> actual) {
+    assertEquals(ids(expected), ids(actual));
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-9);
+    }
+  }
+
+  @Test
+  void test_scores_follow_bm25() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, Map.of("good", 1, "tests", 1));
+    index.put(2, Map.of("tests", 2));
+    index.put(3, Map.of("article", 1));
+
+    // "good" is in 1 of 3 documents; both documents are 2 long and the average is 5/3
+    double idf = Math.log(1 + (3 - 1 + 0.5) / (1 + 0.5));
+    double expected = idf * 1 * 2.2 / (1 + 1.2 * (0.25 + 0.75 * 2 / (5.0 / 3)));
+
+    List<InvertedIndex.Hit> hits = index.search(List.of("good"), 10);
+    assertEquals(List.of(1L), ids(hits));
+    assertEquals(expected, hits.get(0).score(), 1e-12);
+
+    // the more often a term occurs, the higher the score
+    assertEquals(List.of(2L, 1L), ids(index.search(List.of("tests"), 10)));
+  }
+
+  @Test
+  void test_matches_brute_force_through_puts_replacements_and_removes() {
+    Random random = new Random(21);
+    List<String> vocabulary = List.of("ucsb", "dining", "tests", "java", "spring", "index", "search", "rank",
+        "article", "good", "fast", "slow", "campus", "library", "storke", "lagoon");
+    Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    InvertedIndex index = new InvertedIndex();
+
+    for (int round = 0; round < 2000; round++) {
+      long id = random.nextInt(300);
+      if (random.nextInt(4) == 0) {
+        documents.remove(id);
+        index.remove(id);
+      } else {
+        Map<String, Integer> document = new HashMap<>();
+        for (int i = random.nextInt(12); i > 0; i--) {
+          document.merge(vocabulary.get((int) Math.abs(random.nextGaussian() * 5) % vocabulary.size()), 1, Integer::sum);
+        }
+        documents.put(id, document);
+        index.put(id, document);
+      }
+      if (round % 100 == 0) {
+        List<String> query = List.of(vocabulary.get(random.nextInt(vocabulary.size())),
+            vocabulary.get(random.nextInt(vocabulary.size())));
+        int limit = 1 + random.nextInt(40);
+        assertSameHits(bruteForce(documents, query, limit), index.search(query, limit));
+      }
+    }
+    assertEquals(documents.size(), index.size());
+    assertEquals(documents.values().stream().flatMap(d -> d.keySet().stream()).distinct().count(), index.terms());
+  }
+
+  @Test
+  void test_limit_keeps_the_best_and_orders_ties_by_id() {
+    InvertedIndex index = new InvertedIndex();
+    for (long id = 40; id > 0; id--) {
+      index.put(id, Map.of("same", 1));
+    }
+
+    assertEquals(List.of(1L, 2L, 3L), ids(index.search(List.of("same"), 3)));
+  }
+
+  @Test
+  void test_nothing_matches() {
+    InvertedIndex index = new InvertedIndex();
+    assertEquals(List.of(), index.search(List.of("anything"), 10));
+
+    index.put(1, Map.of("tests", 1));
+    index.put(2, Map.of());
+    assertEquals(List.of(), index.search(List.of("missing"), 10));
+    assertEquals(List.of(), index.search(List.of(), 10));
+    assertEquals(List.of(), index.search(List.of("tests"), 0));
+
+    index.remove(1);
+    index.remove(1);
+    assertEquals(List.of(), index.search(List.of("tests"), 10));
+    assertEquals(0, index.terms());
+  }
+
+  @Test
+  void test_slots_freed_by_many_removes_are_reused() {
+    InvertedIndex index = new InvertedIndex();
+    for (long id = 1; id <= 40; id++) {
+      index.put(id, Map.of("first", 1));
+    }
+    for (long id = 1; id <= 40; id++) {
+      index.remove(id);
+    }
+    for (long id = 41; id <= 80; id++) {
+      index.put(id, Map.of("second", 1));
+    }
+
+    assertEquals(40, index.size());
+    assertEquals(1, index.terms());
+    assertEquals(List.of(), index.search(List.of("first"), 10));
+    assertEquals(List.of(41L, 42L), ids(index.search(List.of("second"), 2)));
+  }
+
+  @Test
+  void test_repeated_query_terms_count_once() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, Map.of("tests", 1));
+    index.put(2, Map.of("java", 1));
+
+    assertEquals(index.search(List.of("tests"), 10), index.search(List.of("tests", "tests"), 10));
+  }
+
+  @Test
+  void test_scores_of_one_search_do_not_carry_over_to_the_next() {
+    InvertedIndex index = new InvertedIndex();
+    for (long id = 1; id <= 40; id++) {
+      index.put(id, id % 2 == 0 ? Map.of("even", 1) : Map.of("odd", 1, "even", 3));
+    }
+
+    List<InvertedIndex.Hit> first = index.search(List.of("even"), 5);
+    index.search(List.of("odd", "even"), 1);
+
+    assertEquals(first, index.search(List.of("even"), 5));
+  }
+
+  @Test
+  void test_removing_a_slot_that_is_not_posted_changes_nothing() {
+    InvertedIndex.Postings postings = new InvertedIndex.Postings();
+    postings.add(3, 1);
+    postings.add(5, 2);
+
+    postings.remove(4);
+
+    assertEquals(2, postings.size);
+    assertEquals(3, postings.slots[0]);
+    assertEquals(5, postings.slots[1]);
+  }
+}
@@ -0,0 +1,290 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidStarsException;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+@DataJpaTest
+@Import({ MenuItemRatingService.class, TableVersions.class })
+class MenuItemRatingServiceTests {
+
+  @Autowired
+  MenuItemRatingService menuItemRatingService;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @SpyBean
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  // rows committed outside the test's transaction: the empty ratings of first reviews, and everything
+  // written by the tests that run without one
+  @AfterEach
+  @AfterTransaction
+  void deleteCommittedRows() {
+    menuItemRatingRepository.deleteAll();
+    menuItemReviewRepository.deleteAll();
+  }
+
+  private static MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder()
+        .itemId(itemId)
+        .reviewerEmail("reviewer@ucsb.edu")
+        .stars(stars)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .comments("ok")
+        .build();
+  }
+
+  private static MenuItemRating rating(long itemId, long count, long total, int min, int max, long... histogram) {
+    return new MenuItemRating(itemId, count, total, min, max,
+        histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]);
+  }
+
+  @Test
+  void create_adds_each_review_to_its_items_rating() {
+    menuItemRatingService.create(review(1, 4));
+    menuItemRatingService.create(review(1, 2));
+    menuItemRatingService.create(review(1, 5));
+    menuItemRatingService.create(review(2, 3));
+
+    assertEquals(rating(1, 3, 11, 2, 5, 0, 1, 0, 1, 1), menuItemRatingService.get(1));
+    assertEquals(rating(2, 1, 3, 3, 3, 0, 0, 1, 0, 0), menuItemRatingService.get(2));
+    assertEquals(11.0 / 3, menuItemRatingService.get(1).getAverageStars());
+    assertEquals(4, menuItemReviewRepository.count());
+    assertEquals(2, menuItemRatingRepository.count());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void two_first_reviews_of_an_item_at_once_are_both_counted() throws Exception {
+    ExecutorService reviewers = Executors.newFixedThreadPool(2);
+    try {
+      for (long itemId = 1; itemId <= 20; itemId++) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MenuItemReview>> reviews = new ArrayList<>();
+        for (int stars : new int[] { 2, 5 }) {
+          MenuItemReview review = review(itemId, stars);
+          reviews.add(reviewers.submit(() -> {
+            start.await();
+            return menuItemRatingService.create(review);
+          }));
+        }
+        start.countDown();
+        for (Future<MenuItemReview> review : reviews) {
+          review.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(rating(itemId, 2, 7, 2, 5, 0, 1, 0, 0, 1), menuItemRatingService.get(itemId));
+      }
+    } finally {
+      reviewers.shutdownNow();
+    }
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void a_first_review_that_loses_the_race_to_insert_the_rating_still_counts() {
+    menuItemRatingService.create(review(1, 4));
+    // as if it had looked before the other review's rating row was committed; then the repository's own answer
+    Answer<?> repository = mockingDetails(menuItemRatingRepository).getMockCreationSettings().getDefaultAnswer();
+    doReturn(Optional.empty()).doAnswer(repository).when(menuItemRatingRepository).findForUpdate(1L);
+    clearInvocations(menuItemRatingRepository);
+
+    menuItemRatingService.create(review(1, 2));
+
+    verify(menuItemRatingRepository, times(1)).create(1L);
+    assertEquals(rating(1, 2, 6, 2, 4, 0, 1, 0, 1, 0), menuItemRatingService.get(1));
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void the_empty_rating_of_a_rolled_back_first_review_reads_as_no_reviews() {
+    menuItemRatingRepository.create(3L);
+
+    assertEquals(rating(3, 0, 0, 0, 0, 0, 0, 0, 0, 0), menuItemRatingService.get(3));
+    assertFalse(menuItemRatingService.getAll().iterator().hasNext());
+
+    menuItemRatingService.create(review(3, 4));
+    assertEquals(List.of(rating(3, 1, 4, 4, 4, 0, 0, 0, 1, 0)), menuItemRatingService.getAll());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void instances_starting_together_rebuild_missing_ratings_once() throws Exception {
+    menuItemReviewRepository.saveAll(List.of(review(1, 4), review(1, 2), review(2, 5)));
+    ExecutorService instances = Executors.newFixedThreadPool(2);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> startups = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        startups.add(instances.submit(() -> {
+          start.await();
+          menuItemRatingService.rebuildIfMissing();
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> startup : startups) {
+        startup.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      instances.shutdownNow();
+    }
+
+    verify(menuItemRatingRepository, times(1)).saveAll(any());
+    assertEquals(List.of(rating(1, 2, 6, 2, 4, 0, 1, 0, 1, 0), rating(2, 1, 5, 5, 5, 0, 0, 0, 0, 1)),
+        menuItemRatingService.getAll());
+  }
+
+  @Test
+  void an_item_with_no_reviews_has_an_empty_rating() {
+    MenuItemRating rating = menuItemRatingService.get(7);
+
+    assertEquals(rating(7, 0, 0, 0, 0, 0, 0, 0, 0, 0), rating);
+    assertNull(rating.getAverageStars());
+  }
+
+  @Test
+  void stars_outside_one_to_five_are_rejected() {
+    MenuItemReview saved = menuItemRatingService.create(review(1, 3));
+
+    InvalidStarsException e = assertThrows(InvalidStarsException.class, () -> menuItemRatingService.create(review(1, 0)));
+    assertThrows(InvalidStarsException.class, () -> menuItemRatingService.update(saved.getId(), review(1, 6)));
+
+    assertEquals("stars must be between 1 and 5, not 0", e.getMessage());
+    assertEquals(1, menuItemRatingService.get(1).getReviewCount());
+  }
+
+  @Test
+  void update_moves_the_review_between_buckets_and_items() {
+    menuItemRatingService.create(review(1, 1));
+    MenuItemReview review = menuItemRatingService.create(review(1, 5));
+    menuItemRatingService.create(review(1, 3));
+
+    menuItemRatingService.update(review.getId(), review(1, 2));
+    assertEquals(rating(1, 3, 6, 1, 3, 1, 1, 1, 0, 0), menuItemRatingService.get(1));
+
+    menuItemRatingService.update(review.getId(), review(2, 2));
+    assertEquals(rating(1, 2, 4, 1, 3, 1, 0, 1, 0, 0), menuItemRatingService.get(1));
+    assertEquals(rating(2, 1, 2, 2, 2, 0, 1, 0, 0, 0), menuItemRatingService.get(2));
+  }
+
+  @Test
+  void delete_recomputes_min_and_max_and_drops_the_last_rating() {
+    MenuItemReview low = menuItemRatingService.create(review(1, 1));
+    MenuItemReview high = menuItemRatingService.create(review(1, 5));
+    MenuItemReview middle = menuItemRatingService.create(review(1, 3));
+
+    menuItemRatingService.delete(low.getId());
+    assertEquals(rating(1, 2, 8, 3, 5, 0, 0, 1, 0, 1), menuItemRatingService.get(1));
+
+    menuItemRatingService.delete(high.getId());
+    assertEquals(rating(1, 1, 3, 3, 3, 0, 0, 1, 0, 0), menuItemRatingService.get(1));
+
+    menuItemRatingService.delete(middle.getId());
+    assertFalse(menuItemRatingRepository.existsById(1L));
+    assertEquals(0, menuItemReviewRepository.count());
+  }
+
+  @Test
+  void deleting_a_review_without_a_rating_leaves_ratings_alone() {
+    MenuItemReview saved = menuItemReviewRepository.save(review(1, 4));
+
+    menuItemRatingService.delete(saved.getId());
+
+    assertEquals(0, menuItemRatingRepository.count());
+    assertEquals(0, menuItemReviewRepository.count());
+  }
+
+  @Test
+  void a_review_deleted_twice_is_taken_out_of_its_rating_once() {
+    menuItemRatingService.create(review(1, 2));
+    MenuItemReview saved = menuItemRatingService.create(review(1, 4));
+
+    menuItemRatingService.delete(saved.getId());
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class, () -> menuItemRatingService.delete(saved.getId()));
+    assertThrows(EntityNotFoundException.class, () -> menuItemRatingService.update(saved.getId(), review(1, 5)));
+
+    assertEquals("MenuItemReview with id %d not found".formatted(saved.getId()), e.getMessage());
+    assertEquals(rating(1, 1, 2, 2, 2, 0, 1, 0, 0, 0), menuItemRatingService.get(1));
+  }
+
+  @Test
+  void old_reviews_with_stars_outside_one_to_five_are_left_out_of_ratings() {
+    MenuItemReview legacy = menuItemReviewRepository.save(review(1, 7));
+    MenuItemReview other = menuItemReviewRepository.save(review(1, 0));
+    menuItemReviewRepository.save(review(1, 4));
+
+    menuItemRatingService.rebuild();
+    assertEquals(rating(1, 1, 4, 4, 4, 0, 0, 0, 1, 0), menuItemRatingService.get(1));
+
+    // deleting one takes nothing out; fixing one counts it from then on
+    menuItemRatingService.delete(other.getId());
+    assertEquals(rating(1, 1, 4, 4, 4, 0, 0, 0, 1, 0), menuItemRatingService.get(1));
+    menuItemRatingService.update(legacy.getId(), review(1, 5));
+    assertEquals(rating(1, 2, 9, 4, 5, 0, 0, 0, 1, 1), menuItemRatingService.get(1));
+  }
+
+  @Test
+  void rebuild_if_missing_computes_ratings_from_existing_reviews() {
+    menuItemReviewRepository.saveAll(List.of(review(1, 4), review(1, 2), review(2, 5), review(2, 5)));
+
+    menuItemRatingService.rebuildIfMissing();
+
+    assertEquals(List.of(rating(1, 2, 6, 2, 4, 0, 1, 0, 1, 0), rating(2, 2, 10, 5, 5, 0, 0, 0, 0, 2)),
+        menuItemRatingService.getAll());
+  }
+
+  @Test
+  void rebuild_if_missing_keeps_existing_ratings() {
+    menuItemRatingService.create(review(1, 4));
+    menuItemReviewRepository.save(review(2, 5));
+
+    menuItemRatingService.rebuildIfMissing();
+
+    assertEquals(List.of(rating(1, 1, 4, 4, 4, 0, 0, 0, 1, 0)), menuItemRatingService.getAll());
+  }
+
+  @Test
+  void rebuild_if_missing_does_nothing_without_reviews() {
+    menuItemRatingService.rebuildIfMissing();
+
+    assertEquals(0, menuItemRatingRepository.count());
+  }
+}
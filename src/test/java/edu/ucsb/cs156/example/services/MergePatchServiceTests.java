@@ -0,0 +1,189 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.testconfig.RecordingQueryCounter;
+
+@DataJpaTest
+@Import(MergePatchService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=edu.ucsb.cs156.example.testconfig.RecordingQueryCounter"
+})
+class MergePatchServiceTests {
+
+  private static final Set<String> PATCHABLE = Set.of("teamId", "explanation", "requestTime", "solved");
+
+  @Autowired
+  MergePatchService mergePatchService;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  HelpRequest saved;
+
+  @BeforeEach
+  void seed() {
+    saved = helpRequestRepository.save(HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu").teamId("f23-5pm-1").tableOrBreakoutRoom("table 1")
+        .requestTime(LocalDateTime.parse("2023-10-02T08:00:00")).explanation("stuck on the backend").solved(false)
+        .build());
+    entityManager.flush();
+  }
+
+  private JsonNode json(String json) throws Exception {
+    return mapper.readTree(json);
+  }
+
+  // the row as it is in the database, not as the persistence context remembers it
+  private HelpRequest reload() {
+    entityManager.clear();
+    return helpRequestRepository.findById(saved.getId()).orElseThrow();
+  }
+
+  @Test
+  void patch_is_one_update_of_just_the_named_columns() throws Throwable {
+    JsonNode patch = json("{\"version\": 0, \"solved\": true, \"requestTime\": \"2023-10-02T09:30:00\"}");
+
+    long version = RecordingQueryCounter.assertQueries(1,
+        () -> mergePatchService.apply(HelpRequest.class, saved.getId(), patch, PATCHABLE));
+
+    assertEquals(1, version);
+    String update = RecordingQueryCounter.statements().get(0);
+    assertTrue(update.startsWith("update helprequest set"), update);
+    assertTrue(update.contains("solved"), update);
+    assertTrue(update.contains("request_time"), update);
+    assertFalse(update.contains("explanation"), update);
+    assertFalse(update.contains("team_id"), update);
+
+    HelpRequest row = reload();
+    assertTrue(row.getSolved());
+    assertEquals(LocalDateTime.parse("2023-10-02T09:30:00"), row.getRequestTime());
+    assertEquals("stuck on the backend", row.getExplanation());
+    assertEquals("f23-5pm-1", row.getTeamId());
+    assertEquals(1, row.getVersion());
+  }
+
+  @Test
+  void null_clears_a_field() throws Exception {
+    mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 0, \"explanation\": null}"), PATCHABLE);
+
+    assertNull(reload().getExplanation());
+  }
+
+  @Test
+  void version_alone_only_bumps_the_version() throws Exception {
+    assertEquals(1, mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 0}"), PATCHABLE));
+
+    HelpRequest row = reload();
+    assertEquals(1, row.getVersion());
+    assertEquals("stuck on the backend", row.getExplanation());
+  }
+
+  @Test
+  void second_of_two_patches_from_the_same_version_is_refused() throws Exception {
+    mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 0, \"teamId\": \"f23-5pm-2\"}"), PATCHABLE);
+
+    VersionConflictException e = assertThrows(VersionConflictException.class,
+        () -> mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 0, \"teamId\": \"f23-5pm-3\"}"), PATCHABLE));
+
+    assertEquals("HelpRequest with id %d has changed since version 0 (it is now version 1); reload it and try again"
+        .formatted(saved.getId()), e.getMessage());
+    assertEquals("f23-5pm-2", reload().getTeamId());
+
+    // made from the version that is there now, it goes through
+    mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 1, \"teamId\": \"f23-5pm-3\"}"), PATCHABLE);
+    HelpRequest row = reload();
+    assertEquals("f23-5pm-3", row.getTeamId());
+    assertEquals(2, row.getVersion());
+  }
+
+  @Test
+  void apply_and_get_previous_returns_the_value_the_patch_replaced() throws Throwable {
+    JsonNode solve = json("{\"version\": 0, \"solved\": true}");
+
+    boolean wasSolved = RecordingQueryCounter.assertQueries(2,
+        () -> mergePatchService.applyAndGetPrevious(HelpRequest.class, saved.getId(), solve, PATCHABLE, "solved", Boolean.class));
+
+    assertFalse(wasSolved);
+    assertTrue(reload().getSolved());
+    assertTrue(mergePatchService.applyAndGetPrevious(HelpRequest.class, saved.getId(),
+        json("{\"version\": 1, \"solved\": true}"), PATCHABLE, "solved", Boolean.class));
+  }
+
+  @Test
+  void apply_and_get_previous_refuses_a_patch_from_an_old_version() throws Exception {
+    mergePatchService.apply(HelpRequest.class, saved.getId(), json("{\"version\": 0, \"solved\": true}"), PATCHABLE);
+
+    assertThrows(VersionConflictException.class, () -> mergePatchService.applyAndGetPrevious(HelpRequest.class, saved.getId(),
+        json("{\"version\": 0, \"solved\": true}"), PATCHABLE, "solved", Boolean.class));
+    assertThrows(EntityNotFoundException.class, () -> mergePatchService.applyAndGetPrevious(HelpRequest.class, saved.getId() + 1000,
+        json("{\"version\": 0, \"solved\": true}"), PATCHABLE, "solved", Boolean.class));
+    assertThrows(InvalidPatchException.class, () -> mergePatchService.applyAndGetPrevious(HelpRequest.class, saved.getId(),
+        json("{\"solved\": true}"), PATCHABLE, "solved", Boolean.class));
+  }
+
+  @Test
+  void missing_row_is_not_found() {
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class,
+        () -> mergePatchService.apply(HelpRequest.class, saved.getId() + 1000, json("{\"version\": 0}"), PATCHABLE));
+
+    assertEquals("HelpRequest with id %d not found".formatted(saved.getId() + 1000), e.getMessage());
+  }
+
+  private String invalid(JsonNode patch) {
+    return assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.apply(HelpRequest.class, saved.getId(), patch, PATCHABLE)).getMessage();
+  }
+
+  @Test
+  void invalid_patches_are_refused_and_change_nothing() throws Exception {
+    assertEquals("invalid merge patch: expected a JSON object", invalid(null));
+    assertEquals("invalid merge patch: expected a JSON object", invalid(json("[1, 2]")));
+    String noVersion = "invalid merge patch: version is required; send the version you last read";
+    assertEquals(noVersion, invalid(json("{\"solved\": true}")));
+    assertEquals(noVersion, invalid(json("{\"version\": \"0\", \"solved\": true}")));
+    assertEquals(noVersion, invalid(json("{\"version\": 123456789012345678901234567890, \"solved\": true}")));
+    assertEquals("invalid merge patch: requesterEmail cannot be patched",
+        invalid(json("{\"version\": 0, \"requesterEmail\": \"someone@ucsb.edu\"}")));
+    assertEquals("invalid merge patch: id cannot be patched", invalid(json("{\"version\": 0, \"id\": 7}")));
+    assertEquals("invalid merge patch: solved cannot be null", invalid(json("{\"version\": 0, \"solved\": null}")));
+    assertEquals("invalid merge patch: requestTime is not a valid LocalDateTime",
+        invalid(json("{\"version\": 0, \"requestTime\": \"next tuesday\"}")));
+
+    HelpRequest row = reload();
+    assertEquals(0, row.getVersion());
+    assertFalse(row.getSolved());
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.metrics.ApiMetrics;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = NdjsonExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = "app.ndjson.flushEvery=2")
+class NdjsonExportServiceTests {
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @MockBean
+  ApiMetrics apiMetrics;
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  private final AtomicInteger flushes = new AtomicInteger();
+
+  private List<UCSBDate> dates() {
+    return List.of(
+        UCSBDate.builder().id(1L).quarterYYYYQ("20221").name("firstDayOfClasses").localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build(),
+        UCSBDate.builder().id(2L).quarterYYYYQ("20222").name("lastDayOfClasses").localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build(),
+        UCSBDate.builder().id(3L).quarterYYYYQ("20223").name("finals").localDateTime(LocalDateTime.parse("2022-03-18T00:00:00")).build());
+  }
+
+  @Test
+  void test_export_writes_one_json_object_per_line() throws Exception {
+    // arrange
+    List<UCSBDate> dates = dates();
+    ByteArrayOutputStream out = new ByteArrayOutputStream() {
+      @Override
+      public void flush() {
+        flushes.incrementAndGet();
+      }
+    };
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = ndjsonExportService.export(dates::stream);
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(NdjsonExportService.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    String expected = mapper.writeValueAsString(dates.get(0)) + "\n"
+        + mapper.writeValueAsString(dates.get(1)) + "\n"
+        + mapper.writeValueAsString(dates.get(2)) + "\n";
+    assertEquals(expected, out.toString());
+
+    // each row is detached once written, and output is flushed every 2 rows and at the end
+    verify(entityManager, times(1)).detach(dates.get(0));
+    verify(entityManager, times(1)).detach(dates.get(1));
+    verify(entityManager, times(1)).detach(dates.get(2));
+    assertTrue(flushes.get() >= 2);
+  }
+
+  @Test
+  void test_export_streams_inside_a_read_only_transaction() throws Exception {
+    // act
+    ndjsonExportService.export(Stream::<UCSBDate>empty).getBody().writeTo(new ByteArrayOutputStream());
+
+    // assert
+    ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+    verify(transactionManager, times(1)).getTransaction(definition.capture());
+    assertTrue(definition.getValue().isReadOnly());
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void test_export_reports_io_errors() {
+    // arrange
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("client went away");
+      }
+    };
+    StreamingResponseBody body = ndjsonExportService.export(dates()::stream).getBody();
+
+    // act and assert
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(broken));
+    verify(apiMetrics, times(1)).startCounting();
+    verify(apiMetrics, times(1)).stopCounting(null);
+    verify(apiMetrics, times(1)).addRows(null, 2L);
+  }
+
+  @Test
+  void test_export_reports_queries_and_rows_for_the_originating_request() throws Exception {
+    // arrange
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    StreamingResponseBody body;
+    try {
+      body = ndjsonExportService.export(dates()::stream).getBody();
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+
+    // act: the body is written later, on another thread with no request bound
+    body.writeTo(new ByteArrayOutputStream());
+
+    // assert
+    verify(apiMetrics, times(1)).startCounting();
+    verify(apiMetrics, times(1)).stopCounting(request);
+    verify(apiMetrics, times(1)).addRows(request, 3L);
+  }
+}
@@ -0,0 +1,320 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.RecommendationRequestDueSoon;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = RecommendationDeadlines.class)
+class RecommendationDeadlinesTests {
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2023-10-02T12:00:00");
+
+  @MockBean
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @MockBean
+  TableVersions tableVersions;
+
+  @Autowired
+  RecommendationDeadlines recommendationDeadlines;
+
+  private final List<Object> events = new CopyOnWriteArrayList<>();
+
+  // the version of the latest write through this instance; the others write nothing unless a test says so
+  private long version;
+
+  private void put(RecommendationRequest request) {
+    recommendationDeadlines.put(request, ++version);
+  }
+
+  private void remove(long id) {
+    recommendationDeadlines.remove(id, ++version);
+  }
+
+  private static RecommendationRequest request(long id, LocalDateTime dateNeeded, boolean done) {
+    return RecommendationRequest.builder()
+        .id(id)
+        .requesterEmail("student" + id + "@ucsb.edu")
+        .professorEmail("prof@ucsb.edu")
+        .explanation("grad school " + id)
+        .dateRequested(NOW.minusDays(30))
+        .dateNeeded(dateNeeded)
+        .done(done)
+        .build();
+  }
+
+  private static RecommendationRequest edited(long id, LocalDateTime dateNeeded) {
+    RecommendationRequest request = request(id, dateNeeded, false);
+    request.setExplanation("edited");
+    return request;
+  }
+
+  private static final RecommendationRequest LAST_WEEK = request(1, NOW.minusDays(7), false);
+  private static final RecommendationRequest YESTERDAY = request(2, NOW.minusDays(1), false);
+  private static final RecommendationRequest TONIGHT = request(3, NOW.plusHours(8), false);
+  private static final RecommendationRequest NEXT_WEEK = request(4, NOW.plusDays(7), false);
+  private static final RecommendationRequest FINISHED = request(5, NOW.minusDays(2), true);
+  private static final RecommendationRequest UNDATED = request(6, null, false);
+
+  private List<Long> ids(List<RecommendationRequest> requests) {
+    return requests.stream().map(RecommendationRequest::getId).toList();
+  }
+
+  private List<Long> announced() {
+    return events.stream()
+        .map(event -> ((RecommendationRequestDueSoon) event).getRecommendationRequest().getId())
+        .toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    recommendationDeadlines.clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    recommendationDeadlines.applicationEventPublisher = events::add;
+    recommendationDeadlines.dueSoonHours = 24;
+    when(recommendationRequestRepository.findAll())
+        .thenReturn(List.of(NEXT_WEEK, TONIGHT, FINISHED, YESTERDAY, UNDATED, LAST_WEEK));
+    when(recommendationRequestRepository.claimAnnouncement(anyLong(), any())).thenReturn(1);
+    recommendationDeadlines.refresh();
+    version = 0;
+  }
+
+  @AfterEach
+  void stop() {
+    recommendationDeadlines.stopSweeping();
+  }
+
+  @Test
+  void test_queries_answer_from_memory() {
+    clearInvocations(recommendationRequestRepository);
+
+    assertEquals(List.of(LAST_WEEK, YESTERDAY), recommendationDeadlines.overdue());
+    assertEquals(List.of(TONIGHT), recommendationDeadlines.dueWithin(Duration.ofDays(1)));
+    assertEquals(List.of(3L, 4L), ids(recommendationDeadlines.dueWithin(Duration.ofDays(8))));
+    assertEquals(List.of(), recommendationDeadlines.dueWithin(Duration.ZERO));
+    verifyNoInteractions(recommendationRequestRepository);
+  }
+
+  @Test
+  void test_put_adds_moves_and_drops_requests() {
+    put(request(7, NOW.plusHours(1), false));
+    assertEquals(List.of(7L, 3L), ids(recommendationDeadlines.dueWithin(Duration.ofDays(1))));
+
+    put(request(4, NOW.minusHours(1), false));
+    assertEquals(List.of(1L, 2L, 4L), ids(recommendationDeadlines.overdue()));
+
+    put(request(2, NOW.minusDays(1), true));
+    put(request(1, null, false));
+    assertEquals(List.of(4L), ids(recommendationDeadlines.overdue()));
+
+    put(request(5, NOW.minusDays(2), false));
+    assertEquals(List.of(5L, 4L), ids(recommendationDeadlines.overdue()));
+  }
+
+  @Test
+  void test_put_keeps_a_copy() {
+    RecommendationRequest soon = request(7, NOW.plusHours(1), false);
+    put(soon);
+
+    soon.setDateNeeded(NOW.plusDays(100));
+    soon.setExplanation("changed");
+    recommendationDeadlines.dueWithin(Duration.ofDays(1)).get(0).setExplanation("changed too");
+
+    assertEquals(request(7, NOW.plusHours(1), false), recommendationDeadlines.dueWithin(Duration.ofDays(1)).get(0));
+  }
+
+  @Test
+  void test_remove_drops_requests() {
+    remove(2);
+    remove(5);
+
+    assertEquals(List.of(1L), ids(recommendationDeadlines.overdue()));
+    recommendationDeadlines.sweep();
+    assertEquals(List.of(1L, 3L), announced());
+  }
+
+  @Test
+  void test_sweep_announces_each_deadline_once() {
+    recommendationDeadlines.sweep();
+    assertEquals(List.of(1L, 2L, 3L), announced());
+    assertEquals(TONIGHT, ((RecommendationRequestDueSoon) events.get(2)).getRecommendationRequest());
+
+    recommendationDeadlines.sweep();
+    assertEquals(3, events.size());
+
+    // other changes leave an announced request alone; a new deadline announces it again
+    put(edited(3, NOW.plusHours(8)));
+    put(request(2, NOW.plusHours(2), false));
+    recommendationDeadlines.sweep();
+    assertEquals(List.of(1L, 2L, 3L, 2L), announced());
+
+    // next week's request comes due soon six days later
+    recommendationDeadlines.clock = Clock.offset(recommendationDeadlines.clock, Duration.ofDays(6).plusHours(1));
+    recommendationDeadlines.sweep();
+    assertEquals(List.of(1L, 2L, 3L, 2L, 4L), announced());
+  }
+
+  @Test
+  void test_edits_before_the_sweep_keep_a_request_pending() {
+    put(edited(4, NOW.plusDays(7)));
+    recommendationDeadlines.dueSoonHours = 24 * 8;
+
+    recommendationDeadlines.sweep();
+
+    assertEquals(List.of(1L, 2L, 3L, 4L), announced());
+  }
+
+  @Test
+  void test_sweep_claims_each_announcement_and_skips_those_another_instance_made() {
+    when(recommendationRequestRepository.claimAnnouncement(eq(2L), any())).thenReturn(0);
+
+    recommendationDeadlines.sweep();
+
+    assertEquals(List.of(1L, 3L), announced());
+    verify(recommendationRequestRepository, times(1)).claimAnnouncement(1L, LAST_WEEK.getDateNeeded());
+    verify(recommendationRequestRepository, times(1)).claimAnnouncement(2L, YESTERDAY.getDateNeeded());
+    verify(recommendationRequestRepository, times(1)).claimAnnouncement(3L, TONIGHT.getDateNeeded());
+  }
+
+  @Test
+  void test_deadlines_announced_before_a_restart_are_not_announced_again() {
+    RecommendationRequest announced = request(2, NOW.minusDays(1), false);
+    announced.setAnnouncedFor(announced.getDateNeeded());
+    RecommendationRequest moved = request(3, NOW.plusHours(8), false);
+    moved.setAnnouncedFor(NOW.plusDays(3));
+    when(recommendationRequestRepository.findAll()).thenReturn(List.of(LAST_WEEK, announced, moved));
+    recommendationDeadlines.refresh();
+
+    recommendationDeadlines.sweep();
+
+    assertEquals(List.of(1L, 3L), announced());
+    assertEquals(List.of(1L, 2L), ids(recommendationDeadlines.overdue()));
+  }
+
+  @Test
+  void test_sweeps_do_not_poll_the_tables_version() {
+    clearInvocations(tableVersions);
+
+    recommendationDeadlines.sweep();
+    recommendationDeadlines.sweep();
+
+    verifyNoInteractions(tableVersions);
+  }
+
+  @Test
+  void test_reads_catch_up_with_other_instances_by_reading_back_the_rows_they_changed() {
+    // another instance moved 2, added 7 and deleted 1
+    when(tableVersions.version(RecommendationDeadlines.TABLE)).thenReturn(3L);
+    when(tableVersions.changedKeys(RecommendationDeadlines.TABLE, 0, 3)).thenReturn(Optional.of(List.of("1", "2", "7")));
+    when(recommendationRequestRepository.findAllById(List.of(1L, 2L, 7L)))
+        .thenReturn(List.of(request(2, NOW.minusHours(2), false), request(7, NOW.minusHours(1), false)));
+
+    assertEquals(List.of(2L, 7L), ids(recommendationDeadlines.overdue()));
+    assertEquals(List.of(3L), ids(recommendationDeadlines.dueWithin(Duration.ofDays(1))));
+
+    verify(tableVersions, times(1)).changedKeys(any(), anyLong(), anyLong());
+    verify(recommendationRequestRepository, times(1)).findAll();
+    recommendationDeadlines.sweep();
+    assertEquals(List.of(2L, 7L, 3L), announced());
+  }
+
+  @Test
+  void test_writes_through_this_instance_alone_need_no_catching_up() {
+    put(request(7, NOW.minusHours(1), false));
+    remove(1);
+    when(tableVersions.version(RecommendationDeadlines.TABLE)).thenReturn(2L);
+
+    assertEquals(List.of(2L, 7L), ids(recommendationDeadlines.overdue()));
+
+    verify(tableVersions, never()).changedKeys(any(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_a_write_through_this_instance_after_another_instances_is_read_back_with_it() {
+    // version 1 was another instance's
+    version = 1;
+    put(request(7, NOW.minusHours(1), false));
+    when(tableVersions.version(RecommendationDeadlines.TABLE)).thenReturn(2L);
+    when(tableVersions.changedKeys(RecommendationDeadlines.TABLE, 0, 2)).thenReturn(Optional.of(List.of("9", "7")));
+    when(recommendationRequestRepository.findAllById(List.of(9L, 7L)))
+        .thenReturn(List.of(request(9, NOW.minusHours(3), false), request(7, NOW.minusHours(1), false)));
+
+    assertEquals(List.of(1L, 2L, 9L, 7L), ids(recommendationDeadlines.overdue()));
+
+    // reports of writes that have been read back since change nothing
+    recommendationDeadlines.put(request(9, NOW.plusDays(1), false), 1);
+    recommendationDeadlines.remove(7, 2);
+    assertEquals(List.of(1L, 2L, 9L, 7L), ids(recommendationDeadlines.overdue()));
+  }
+
+  @Test
+  void test_reads_reload_everything_once_the_changes_are_no_longer_logged() {
+    when(tableVersions.version(RecommendationDeadlines.TABLE)).thenReturn(5000L);
+    when(tableVersions.changedKeys(RecommendationDeadlines.TABLE, 0, 5000)).thenReturn(Optional.empty());
+    when(recommendationRequestRepository.findAll()).thenReturn(List.of(YESTERDAY));
+
+    assertEquals(List.of(2L), ids(recommendationDeadlines.overdue()));
+    assertEquals(List.of(2L), ids(recommendationDeadlines.overdue()));
+
+    verify(recommendationRequestRepository, times(2)).findAll();
+  }
+
+  @Test
+  void test_a_failing_listener_does_not_stop_the_sweep() {
+    recommendationDeadlines.applicationEventPublisher = event -> {
+      RecommendationRequestDueSoon dueSoon = (RecommendationRequestDueSoon) event;
+      if (dueSoon.getRecommendationRequest().getId() == 2) {
+        throw new IllegalStateException("listener failed");
+      }
+      events.add(event);
+    };
+
+    recommendationDeadlines.sweep();
+
+    assertEquals(List.of(1L, 3L), announced());
+  }
+
+  @Test
+  void test_sweeps_run_in_the_background_until_stopped() throws Exception {
+    recommendationDeadlines.startSweeping();
+    recommendationDeadlines.startSweeping();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (events.size() < 3 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of(1L, 2L, 3L), announced());
+
+    recommendationDeadlines.stopSweeping();
+    recommendationDeadlines.stopSweeping();
+  }
+}
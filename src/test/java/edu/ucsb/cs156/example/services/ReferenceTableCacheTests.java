@@ -0,0 +1,304 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReferenceTableCacheTests {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ReferenceTableCache<String, String> cache;
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Function<String, Optional<String>> loader = key -> {
+    loads.incrementAndGet();
+    return key.startsWith("missing") ? Optional.empty() : Optional.of(key.toUpperCase());
+  };
+  private final Supplier<Iterable<String>> allLoader = () -> {
+    loads.incrementAndGet();
+    return new ArrayList<>(List.of("A", "B"));
+  };
+
+  // the table's version, as the database would hold it; a plain subclass so the
+  // concurrent tests below do not pile up recorded invocations
+  private final AtomicLong version = new AtomicLong();
+  private final TableVersions tableVersions = new TableVersions() {
+    @Override
+    public long version(String table) {
+      return version.get();
+    }
+  };
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new ReferenceTableCache<>("test", tableVersions, UnaryOperator.identity(), 60, 2, meterRegistry);
+    cache.clock = Clock.fixed(Instant.parse("2023-10-01T00:00:00Z"), ZoneOffset.UTC);
+  }
+
+  private <V> ReferenceTableCache<String, V> cache(UnaryOperator<V> copy) {
+    return new ReferenceTableCache<>("numbers", tableVersions, copy, 60, 10, meterRegistry);
+  }
+
+  private double gets(String result) {
+    return meterRegistry.counter("cache.gets", "cache", "test", "result", result).count();
+  }
+
+  @Test
+  void test_second_get_is_a_hit_including_missing_rows() {
+    assertEquals(Optional.of("A"), cache.get("a", loader));
+    assertEquals(Optional.of("A"), cache.get("a", loader));
+    assertEquals(Optional.empty(), cache.get("missing", loader));
+    assertEquals(Optional.empty(), cache.get("missing", loader));
+
+    assertEquals(2, loads.get());
+    assertEquals(2, gets("hit"));
+    assertEquals(2, gets("miss"));
+    assertEquals(2, meterRegistry.get("cache.size").tag("cache", "test").gauge().value());
+  }
+
+  @Test
+  void test_getAll_is_cached_and_unmodifiable() {
+    List<String> first = cache.getAll(allLoader);
+    List<String> second = cache.getAll(allLoader);
+
+    assertNotSame(first, second);
+    assertEquals(first, second);
+    assertEquals(List.of("A", "B"), first);
+    assertEquals(1, loads.get());
+    assertEquals(1, gets("hit"));
+    assertThrows(UnsupportedOperationException.class, () -> first.add("C"));
+  }
+
+  @Test
+  void test_entries_expire_after_ttl() {
+    cache.get("a", loader);
+    cache.getAll(allLoader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(60));
+    cache.get("a", loader);
+    cache.getAll(allLoader);
+
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  void test_a_new_version_of_the_table_drops_what_was_loaded_before_it() {
+    cache.get("a", loader);
+    cache.get("b", loader);
+    cache.getAll(allLoader);
+
+    version.incrementAndGet();
+    cache.get("a", loader);
+    cache.getAll(allLoader);
+    cache.get("a", loader);
+    cache.getAll(allLoader);
+
+    assertEquals(5, loads.get());
+    // b was dropped to make room, being of the older version
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void test_rows_are_copied_in_and_out() {
+    ReferenceTableCache<String, StringBuilder> builders = cache(StringBuilder::new);
+    StringBuilder loaded = new StringBuilder("a");
+    StringBuilder listed = new StringBuilder("b");
+
+    builders.get("a", k -> Optional.of(loaded)).get().append("!");
+    builders.getAll(() -> List.of(listed)).get(0).append("!");
+    loaded.append("?");
+    listed.append("?");
+    StringBuilder hit = builders.get("a", k -> Optional.empty()).get();
+    hit.append("!");
+
+    assertEquals("a", builders.get("a", k -> Optional.empty()).get().toString());
+    assertEquals("b", builders.getAll(List::of).get(0).toString());
+  }
+
+  @Test
+  void test_invalidateAll_drops_everything() {
+    cache.get("a", loader);
+    cache.getAll(allLoader);
+
+    cache.invalidateAll();
+
+    assertEquals(0, cache.size());
+    cache.getAll(allLoader);
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void test_full_cache_drops_expired_entries_first() {
+    cache.get("a", loader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(30));
+    cache.get("b", loader);
+    cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(30));
+
+    cache.get("c", loader);
+
+    assertEquals(2, cache.size());
+    cache.get("b", loader);
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void test_full_cache_is_cleared_when_nothing_has_expired() {
+    cache.get("a", loader);
+    cache.get("b", loader);
+
+    cache.get("c", loader);
+
+    assertEquals(1, cache.size());
+  }
+
+  // A reader loads the old row, the update commits and bumps the version, and
+  // only then does the reader store what it loaded. That row must not be served.
+  @Test
+  void test_row_loaded_before_a_bump_is_not_served_after_it() throws Exception {
+    AtomicInteger database = new AtomicInteger(1);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch committed = new CountDownLatch(1);
+    ReferenceTableCache<String, Integer> numbers = cache(UnaryOperator.identity());
+
+    CompletableFuture<Optional<Integer>> slowReader = CompletableFuture.supplyAsync(() -> numbers.get("k", k -> {
+      int old = database.get();
+      loading.countDown();
+      await(committed);
+      return Optional.of(old);
+    }));
+    loading.await();
+    database.set(2);
+    version.incrementAndGet();
+    committed.countDown();
+
+    assertEquals(Optional.of(1), slowReader.get(5, TimeUnit.SECONDS));
+    assertEquals(Optional.of(2), numbers.get("k", k -> Optional.of(database.get())));
+  }
+
+  @Test
+  void test_table_loaded_before_a_bump_is_not_served_after_it() throws Exception {
+    AtomicInteger database = new AtomicInteger(1);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch committed = new CountDownLatch(1);
+    ReferenceTableCache<String, Integer> numbers = cache(UnaryOperator.identity());
+
+    CompletableFuture<List<Integer>> slowReader = CompletableFuture.supplyAsync(() -> numbers.getAll(() -> {
+      int old = database.get();
+      loading.countDown();
+      await(committed);
+      return List.of(old);
+    }));
+    loading.await();
+    database.set(2);
+    version.incrementAndGet();
+    committed.countDown();
+
+    assertEquals(List.of(1), slowReader.get(5, TimeUnit.SECONDS));
+    assertEquals(List.of(2), numbers.getAll(() -> List.of(database.get())));
+  }
+
+  // The slow reader finishes after a reader that saw the next version has
+  // stored its load; the older load must not replace the newer one.
+  @Test
+  void test_a_load_from_an_older_version_does_not_replace_a_newer_one() throws Exception {
+    CountDownLatch loading = new CountDownLatch(2);
+    CountDownLatch newerStored = new CountDownLatch(1);
+    ReferenceTableCache<String, Integer> numbers = cache(UnaryOperator.identity());
+
+    CompletableFuture<Optional<Integer>> slowRow = CompletableFuture.supplyAsync(() -> numbers.get("k", k -> {
+      loading.countDown();
+      await(newerStored);
+      return Optional.of(1);
+    }));
+    CompletableFuture<List<Integer>> slowTable = CompletableFuture.supplyAsync(() -> numbers.getAll(() -> {
+      loading.countDown();
+      await(newerStored);
+      return List.of(1);
+    }));
+    loading.await();
+    version.incrementAndGet();
+    numbers.get("k", k -> Optional.of(2));
+    numbers.getAll(() -> List.of(2));
+    newerStored.countDown();
+    slowRow.get(5, TimeUnit.SECONDS);
+    slowTable.get(5, TimeUnit.SECONDS);
+
+    assertEquals(Optional.of(2), numbers.get("k", k -> Optional.of(3)));
+    assertEquals(List.of(2), numbers.getAll(() -> List.of(3)));
+  }
+
+  // One writer keeps committing new versions and bumping; readers check that
+  // every read returns at least the version that had committed when the read began.
+  @Test
+  void test_readers_never_see_a_version_older_than_the_last_completed_update() throws Exception {
+    AtomicInteger database = new AtomicInteger(0);
+    AtomicInteger completed = new AtomicInteger(0);
+    AtomicInteger staleReads = new AtomicInteger(0);
+    AtomicBoolean done = new AtomicBoolean(false);
+    ReferenceTableCache<String, Integer> numbers = cache(UnaryOperator.identity());
+
+    ExecutorService pool = Executors.newFixedThreadPool(5);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int r = 0; r < 4; r++) {
+      readers.add(pool.submit(() -> {
+        while (!done.get()) {
+          int mustSee = completed.get();
+          int row = numbers.get("k", k -> Optional.of(database.get())).get();
+          int table = numbers.getAll(() -> List.of(database.get())).get(0);
+          if (row < mustSee || table < mustSee) {
+            staleReads.incrementAndGet();
+          }
+        }
+      }));
+    }
+    Future<?> writer = pool.submit(() -> {
+      for (int value = 1; value <= 20_000; value++) {
+        database.set(value);
+        version.incrementAndGet();
+        completed.set(value);
+      }
+      done.set(true);
+    });
+
+    writer.get(60, TimeUnit.SECONDS);
+    for (Future<?> reader : readers) {
+      reader.get(60, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
+
+    assertEquals(0, staleReads.get());
+    assertEquals(Optional.of(20_000), numbers.get("k", k -> Optional.of(database.get())));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
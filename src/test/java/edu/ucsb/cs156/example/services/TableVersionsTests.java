@@ -0,0 +1,220 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import edu.ucsb.cs156.example.entities.TableChange;
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableChangeRepository;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = TableVersions.class)
+class TableVersionsTests {
+
+  @MockBean
+  TableVersionRepository tableVersionRepository;
+
+  @MockBean
+  TableChangeRepository tableChangeRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  private final AtomicInteger queries = new AtomicInteger();
+  private final Supplier<List<String>> rows = () -> {
+    queries.incrementAndGet();
+    return List.of("a", "b");
+  };
+
+  private ServletWebRequest get(String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/things/all");
+    if (ifNoneMatch != null) {
+      request.addHeader("If-None-Match", ifNoneMatch);
+    }
+    return new ServletWebRequest(request, new MockHttpServletResponse());
+  }
+
+  private void stored(long version) {
+    when(tableVersionRepository.findById("things"))
+        .thenReturn(Optional.of(TableVersion.builder().tableName("things").epoch(36 * 36).version(version).build()));
+  }
+
+  @Test
+  void test_version_and_etag_come_from_the_stored_row() {
+    stored(42);
+
+    assertEquals(42, tableVersions.version("things"));
+    assertEquals("W/\"things-100-42\"", tableVersions.etag("things"));
+  }
+
+  @Test
+  void test_a_table_that_was_never_written_is_version_0() {
+    assertEquals(0, tableVersions.version("things"));
+    assertEquals("W/\"things-0-0\"", tableVersions.etag("things"));
+  }
+
+  @Test
+  void test_bump_increments_the_stored_row() {
+    when(tableVersionRepository.increment("things")).thenReturn(1);
+    when(tableVersionRepository.findVersion("things")).thenReturn(Optional.of(43L));
+
+    assertEquals(43, tableVersions.bump("things"));
+
+    verify(tableVersionRepository, times(1)).increment("things");
+    verify(tableVersionRepository, never()).create(eq("things"), anyLong());
+    verifyNoInteractions(tableChangeRepository);
+  }
+
+  @Test
+  void test_bump_records_the_keys_it_is_given_against_the_new_version() {
+    when(tableVersionRepository.increment("things")).thenReturn(1);
+    when(tableVersionRepository.findVersion("things")).thenReturn(Optional.of(43L));
+
+    assertEquals(43, tableVersions.bump("things", List.of(7L, 9L)));
+
+    verify(tableChangeRepository, times(1)).save(TableChange.builder().tableName("things").version(43).rowKey("7").build());
+    verify(tableChangeRepository, times(1)).save(TableChange.builder().tableName("things").version(43).rowKey("9").build());
+    verify(tableChangeRepository, never()).deleteUpTo(any(), anyLong());
+  }
+
+  @Test
+  void test_every_thousandth_bump_prunes_the_changes_more_than_a_thousand_versions_old() {
+    when(tableVersionRepository.increment("things")).thenReturn(1);
+    when(tableVersionRepository.findVersion("things")).thenReturn(Optional.of(3000L));
+
+    tableVersions.bump("things", List.of(7L));
+
+    verify(tableChangeRepository, times(1)).deleteUpTo("things", 2000);
+  }
+
+  @Test
+  void test_changed_keys_come_from_the_log_while_it_covers_the_range() {
+    stored(2999);
+    when(tableChangeRepository.findRowKeys("things", 1000, 2999)).thenReturn(List.of("7", "9"));
+
+    assertEquals(Optional.of(List.of("7", "9")), tableVersions.changedKeys("things", 1000, 2999));
+  }
+
+  @Test
+  void test_changed_keys_are_empty_once_part_of_the_range_has_been_pruned() {
+    stored(3000);
+    when(tableChangeRepository.findRowKeys("things", 1999, 3000)).thenReturn(List.of("9"));
+
+    assertEquals(Optional.empty(), tableVersions.changedKeys("things", 1999, 3000));
+    assertEquals(Optional.of(List.of()), tableVersions.changedKeys("things", 2000, 3000));
+  }
+
+  @Test
+  void test_first_bump_creates_the_row_then_increments_it() {
+    long before = System.currentTimeMillis();
+    when(tableVersionRepository.findVersion("things")).thenReturn(Optional.of(1L));
+
+    assertEquals(1, tableVersions.bump("things"));
+
+    verify(tableVersionRepository, times(1)).create(eq("things"), longThat(epoch -> epoch >= before));
+    verify(tableVersionRepository, times(2)).increment("things");
+  }
+
+  @Test
+  void test_first_bump_increments_if_another_instance_created_the_row_first() {
+    when(tableVersionRepository.create(eq("things"), anyLong())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+    when(tableVersionRepository.findVersion("things")).thenReturn(Optional.of(2L));
+
+    tableVersions.bump("things");
+
+    verify(tableVersionRepository, times(2)).increment("things");
+  }
+
+  @Test
+  void test_lock_locks_the_stored_row() {
+    when(tableVersionRepository.findForUpdate("things"))
+        .thenReturn(Optional.of(TableVersion.builder().tableName("things").build()));
+
+    tableVersions.lock("things");
+
+    verify(tableVersionRepository, times(1)).findForUpdate("things");
+    verify(tableVersionRepository, never()).create(eq("things"), anyLong());
+  }
+
+  @Test
+  void test_lock_creates_the_row_first_if_need_be() {
+    tableVersions.lock("things");
+
+    verify(tableVersionRepository, times(1)).create(eq("things"), anyLong());
+    verify(tableVersionRepository, times(2)).findForUpdate("things");
+  }
+
+  @Test
+  void test_first_request_gets_body_etag_and_revalidate() {
+    stored(1);
+
+    ResponseEntity<List<String>> response = tableVersions.conditionalGet(get(null), "things", rows);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of("a", "b"), response.getBody());
+    assertEquals("W/\"things-100-1\"", response.getHeaders().getETag());
+    assertEquals("no-cache, private", response.getHeaders().getCacheControl());
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void test_matching_if_none_match_gets_304_without_reading_the_rows() {
+    stored(1);
+
+    ResponseEntity<List<String>> response = tableVersions.conditionalGet(get("W/\"things-100-1\""), "things", rows);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertNull(response.getBody());
+    assertEquals("W/\"things-100-1\"", response.getHeaders().getETag());
+    assertEquals("no-cache, private", response.getHeaders().getCacheControl());
+    assertEquals(0, queries.get());
+  }
+
+  @Test
+  void test_stale_if_none_match_gets_the_new_body() {
+    stored(2);
+
+    ResponseEntity<List<String>> response = tableVersions.conditionalGet(get("W/\"things-100-1\""), "things", rows);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("W/\"things-100-2\"", response.getHeaders().getETag());
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void test_etag_from_a_recreated_database_never_matches() {
+    stored(1);
+
+    ResponseEntity<List<String>> response = tableVersions.conditionalGet(get("W/\"things-0-1\""), "things", rows);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+  }
+}
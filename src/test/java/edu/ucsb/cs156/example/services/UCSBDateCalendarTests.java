@@ -0,0 +1,257 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.InvalidQuarterException;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = UCSBDateCalendar.class)
+class UCSBDateCalendarTests {
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  @MockBean
+  TableVersions tableVersions;
+
+  @Autowired
+  UCSBDateCalendar ucsbDateCalendar;
+
+  // the version of the latest write through this instance; the others write nothing unless a test says so
+  private long version;
+
+  private void put(UCSBDate date) {
+    ucsbDateCalendar.put(date, ++version);
+  }
+
+  private void remove(Long... ids) {
+    ucsbDateCalendar.remove(List.of(ids), ++version);
+  }
+
+  private static UCSBDate date(long id, String quarterYYYYQ, String localDateTime) {
+    return UCSBDate.builder()
+        .id(id)
+        .quarterYYYYQ(quarterYYYYQ)
+        .name("date " + id)
+        .localDateTime(localDateTime == null ? null : LocalDateTime.parse(localDateTime))
+        .build();
+  }
+
+  private static final UCSBDate LAST_SPRING = date(1, "20232", "2023-04-03T08:00:00");
+  private static final UCSBDate FINALS = date(2, "20234", "2023-12-09T08:00:00");
+  private static final UCSBDate FIRST_DAY = date(3, "20234", "2023-09-28T08:00:00");
+  private static final UCSBDate UNSCHEDULED = date(4, "20234", null);
+  private static final UCSBDate NEXT_WINTER = date(5, "20241", "2024-01-08T08:00:00");
+
+  private List<Long> ids(List<UCSBDate> dates) {
+    return dates.stream().map(UCSBDate::getId).toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    // the middle of Fall 2023
+    ucsbDateCalendar.clock = Clock.fixed(LocalDate.parse("2023-11-01").atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    when(ucsbDateRepository.findQuarters("20234", "99994")).thenReturn(List.of(FINALS, UNSCHEDULED, NEXT_WINTER, FIRST_DAY));
+    ucsbDateCalendar.refresh();
+    version = 0;
+  }
+
+  @Test
+  void test_current_and_upcoming_quarters_answer_from_memory() {
+    clearInvocations(ucsbDateRepository);
+
+    assertEquals(List.of(FIRST_DAY, FINALS, UNSCHEDULED), ucsbDateCalendar.quarter("20234"));
+    assertEquals(List.of(3L, 2L, 4L, 5L), ids(ucsbDateCalendar.quarters("20234", "20251")));
+    assertEquals(List.of(5L), ids(ucsbDateCalendar.quarters("20241", "20244")));
+    assertEquals(List.of(), ucsbDateCalendar.quarter("20253"));
+    verifyNoInteractions(ucsbDateRepository);
+  }
+
+  @Test
+  void test_earlier_quarters_come_from_the_database() {
+    when(ucsbDateRepository.findQuarters("20231", "20233")).thenReturn(List.of(LAST_SPRING));
+    when(ucsbDateRepository.findQuarters("20232", "20232")).thenReturn(List.of(LAST_SPRING));
+
+    assertEquals(List.of(1L, 3L, 2L, 4L), ids(ucsbDateCalendar.quarters("20231", "20234")));
+    assertEquals(List.of(LAST_SPRING), ucsbDateCalendar.quarter("20232"));
+    verify(ucsbDateRepository, never()).findQuarters("20234", "20234");
+  }
+
+  @Test
+  void test_an_empty_range_runs_no_queries() {
+    clearInvocations(ucsbDateRepository);
+
+    assertEquals(List.of(), ucsbDateCalendar.quarters("20241", "20234"));
+    verifyNoInteractions(ucsbDateRepository);
+  }
+
+  @Test
+  void test_quarters_must_be_YYYYQ() {
+    clearInvocations(ucsbDateRepository);
+
+    for (String quarter : new String[] { "2023", "20235", "2023F", "F23", "202341", null }) {
+      assertThrows(InvalidQuarterException.class, () -> ucsbDateCalendar.quarter(quarter));
+    }
+    InvalidQuarterException e = assertThrows(InvalidQuarterException.class, () -> ucsbDateCalendar.quarters("20231", "F23"));
+    assertEquals("quarter F23 is not valid; expected YYYYQ, e.g. 20234 for Fall 2023", e.getMessage());
+    verifyNoInteractions(ucsbDateRepository);
+  }
+
+  @Test
+  void test_put_adds_moves_and_drops_dates() {
+    put(date(6, "20234", "2023-11-10T08:00:00"));
+    assertEquals(List.of(3L, 6L, 2L, 4L), ids(ucsbDateCalendar.quarter("20234")));
+
+    put(date(6, "20241", "2024-03-01T08:00:00"));
+    put(date(2, "20234", "2023-09-01T08:00:00"));
+    assertEquals(List.of(2L, 3L, 4L, 5L, 6L), ids(ucsbDateCalendar.quarters("20234", "20241")));
+
+    // a date moved into an earlier quarter is the database's to answer
+    put(date(5, "20233", "2023-07-01T08:00:00"));
+    put(date(7, null, "2023-07-01T08:00:00"));
+    assertEquals(List.of(6L), ids(ucsbDateCalendar.quarter("20241")));
+  }
+
+  @Test
+  void test_put_keeps_a_copy() {
+    UCSBDate holiday = date(6, "20234", "2023-11-10T08:00:00");
+    put(holiday);
+
+    holiday.setName("renamed");
+    ucsbDateCalendar.quarter("20234").get(1).setName("changed");
+
+    assertEquals(date(6, "20234", "2023-11-10T08:00:00"), ucsbDateCalendar.quarter("20234").get(1));
+  }
+
+  @Test
+  void test_put_ignores_a_date_older_than_the_one_held() {
+    UCSBDate renamed = date(6, "20234", "2023-11-10T08:00:00");
+    renamed.setVersion(2);
+    put(renamed);
+
+    // the save of the version before, from a slower request, reported last
+    UCSBDate overtaken = date(6, "20241", "2024-03-01T08:00:00");
+    overtaken.setVersion(1);
+    put(overtaken);
+
+    assertEquals(List.of(3L, 6L, 2L, 4L), ids(ucsbDateCalendar.quarter("20234")));
+    assertEquals(List.of(5L), ids(ucsbDateCalendar.quarter("20241")));
+
+    UCSBDate moved = date(6, "20241", "2024-03-01T08:00:00");
+    moved.setVersion(2);
+    put(moved);
+    assertEquals(List.of(5L, 6L), ids(ucsbDateCalendar.quarter("20241")));
+  }
+
+  @Test
+  void test_a_lookup_for_a_newer_version_reads_back_the_dates_changed_first() {
+    clearInvocations(ucsbDateRepository);
+    assertEquals(List.of(3L, 2L, 4L), ids(ucsbDateCalendar.quarter("20234", 0)));
+    verifyNoInteractions(ucsbDateRepository);
+
+    // another instance moved 2, added 6 and deleted 4
+    when(tableVersions.changedKeys(UCSBDateCalendar.TABLE, 0, 1)).thenReturn(Optional.of(List.of("2", "4", "6")));
+    when(ucsbDateRepository.findAllById(List.of(2L, 4L, 6L)))
+        .thenReturn(List.of(date(2, "20241", "2024-03-01T08:00:00"), date(6, "20234", "2023-11-10T08:00:00")));
+    assertEquals(List.of(3L, 6L, 5L, 2L), ids(ucsbDateCalendar.quarters("20234", "20241", 1)));
+    assertEquals(List.of(3L, 6L), ids(ucsbDateCalendar.quarter("20234", 1)));
+    // an older ETag read while it was catching up doesn't catch up again
+    assertEquals(List.of(3L, 6L), ids(ucsbDateCalendar.quarter("20234", 0)));
+    verify(tableVersions, times(1)).changedKeys(any(), anyLong(), anyLong());
+    verify(ucsbDateRepository, never()).findQuarters("20234", "99994");
+  }
+
+  @Test
+  void test_a_lookup_reloads_once_the_changes_are_no_longer_logged() {
+    when(tableVersions.changedKeys(UCSBDateCalendar.TABLE, 0, 5000)).thenReturn(Optional.empty());
+    when(ucsbDateRepository.findQuarters("20234", "99994")).thenReturn(List.of(FIRST_DAY, NEXT_WINTER));
+
+    assertEquals(List.of(3L, 5L), ids(ucsbDateCalendar.quarters("20234", "20241", 5000)));
+    assertEquals(List.of(FIRST_DAY), ucsbDateCalendar.quarter("20234", 5000));
+
+    verify(ucsbDateRepository, times(2)).findQuarters("20234", "99994");
+  }
+
+  @Test
+  void test_writes_through_this_instance_alone_need_no_catching_up() {
+    put(date(6, "20234", "2023-11-10T08:00:00"));
+    remove(5L);
+    clearInvocations(ucsbDateRepository);
+
+    assertEquals(List.of(3L, 6L, 2L, 4L), ids(ucsbDateCalendar.quarters("20234", "20241", 2)));
+
+    verify(tableVersions, never()).changedKeys(any(), anyLong(), anyLong());
+    verifyNoInteractions(ucsbDateRepository);
+  }
+
+  @Test
+  void test_a_write_through_this_instance_after_another_instances_is_read_back_with_it() {
+    // version 1 was another instance's
+    version = 1;
+    put(date(6, "20234", "2023-11-10T08:00:00"));
+    when(tableVersions.changedKeys(UCSBDateCalendar.TABLE, 0, 2)).thenReturn(Optional.of(List.of("9", "6")));
+    when(ucsbDateRepository.findAllById(List.of(9L, 6L)))
+        .thenReturn(List.of(date(9, "20234", "2023-10-01T08:00:00"), date(6, "20234", "2023-11-10T08:00:00")));
+
+    assertEquals(List.of(3L, 9L, 6L, 2L, 4L), ids(ucsbDateCalendar.quarter("20234", 2)));
+
+    // reports of writes that have been read back since change nothing
+    ucsbDateCalendar.put(date(9, "20241", "2024-03-01T08:00:00"), 1);
+    ucsbDateCalendar.remove(List.of(6L), 2);
+    assertEquals(List.of(3L, 9L, 6L, 2L, 4L), ids(ucsbDateCalendar.quarter("20234", 2)));
+  }
+
+  @Test
+  void test_refresh_starts_from_the_current_version() {
+    when(tableVersions.version(UCSBDateCalendar.TABLE)).thenReturn(7L);
+    ucsbDateCalendar.refresh();
+    clearInvocations(ucsbDateRepository);
+
+    ucsbDateCalendar.quarter("20234", 7);
+
+    verifyNoInteractions(ucsbDateRepository);
+  }
+
+  @Test
+  void test_remove_drops_dates_and_empty_quarters() {
+    remove(5L);
+    remove(2L, 99L);
+
+    assertEquals(List.of(3L, 4L), ids(ucsbDateCalendar.quarters("20234", "20244")));
+  }
+
+  @Test
+  void test_quarter_arithmetic() {
+    assertEquals("20231", UCSBDateCalendar.quarterOf(LocalDate.parse("2023-03-31")));
+    assertEquals("20232", UCSBDateCalendar.quarterOf(LocalDate.parse("2023-04-01")));
+    assertEquals("20234", UCSBDateCalendar.quarterOf(LocalDate.parse("2023-12-31")));
+    assertEquals("20233", UCSBDateCalendar.previousQuarter("20234"));
+    assertEquals("20224", UCSBDateCalendar.previousQuarter("20231"));
+  }
+}
@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.InvalidUploadException;
+import edu.ucsb.cs156.example.models.BulkImportResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+@DataJpaTest
+@Import(UCSBDiningCommonsMenuItemImportService.class)
+@TestPropertySource(properties = {
+    "app.bulkImport.batchSize=50",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=edu.ucsb.cs156.example.services.UCSBDiningCommonsMenuItemImportServiceTests$InsertCounter"
+})
+class UCSBDiningCommonsMenuItemImportServiceTests {
+
+  /** Counts the insert statements Hibernate prepares; a JDBC batch is prepared once. */
+  public static class InsertCounter implements StatementInspector {
+    static final AtomicInteger inserts = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+      if (sql.startsWith("insert")) {
+        inserts.incrementAndGet();
+      }
+      return sql;
+    }
+  }
+
+  @Autowired
+  UCSBDiningCommonsMenuItemImportService importService;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository repository;
+
+  @BeforeEach
+  void setup() {
+    InsertCounter.inserts.set(0);
+  }
+
+  private static UCSBDiningCommonsMenuItem item(String diningCommonsCode, String name, String station) {
+    return UCSBDiningCommonsMenuItem.builder().diningCommonsCode(diningCommonsCode).name(name).station(station).build();
+  }
+
+  @Test
+  void test_importItems_saves_valid_rows_and_rejects_the_rest() {
+    UCSBDiningCommonsMenuItem withId = item("ortega", "Tofu", "Entrees");
+    withId.setId(12345L);
+    List<UCSBDiningCommonsMenuItem> items = Arrays.asList(
+        item("ortega", "Pizza", "Entrees"),
+        item("ortega", " ", null),
+        null,
+        withId);
+
+    BulkImportResult result = importService.importItems(items);
+
+    assertEquals(2, result.getCreated());
+    assertEquals(2, result.getRejected());
+    List<BulkRowResult> rows = result.getRows();
+    assertEquals(List.of(1, 2, 3, 4), rows.stream().map(BulkRowResult::getRow).toList());
+    assertEquals(List.of("created", "rejected", "rejected", "created"),
+        rows.stream().map(BulkRowResult::getStatus).toList());
+    assertEquals("missing name, station", rows.get(1).getMessage());
+    assertEquals("row is empty", rows.get(2).getMessage());
+
+    // ids in the request are ignored; every created row gets a new one
+    UCSBDiningCommonsMenuItem saved = repository.findById(rows.get(3).getId()).get();
+    assertEquals("Tofu", saved.getName());
+    assertEquals(2, repository.count());
+  }
+
+  @Test
+  void test_importItems_rejects_rows_missing_a_dining_commons_code() {
+    BulkImportResult result = importService.importItems(List.of(item("", "Pizza", "Entrees")));
+
+    assertEquals(0, result.getCreated());
+    assertEquals("missing diningCommonsCode", result.getRows().get(0).getMessage());
+  }
+
+  @Test
+  void test_importItems_inserts_in_jdbc_batches() {
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>();
+    IntStream.range(0, 120).forEach(i -> items.add(item("carrillo", "Item " + i, "Grill")));
+
+    BulkImportResult result = importService.importItems(items);
+
+    assertEquals(120, result.getCreated());
+    assertEquals(120, repository.count());
+    // 120 rows in batches of 50: three batched inserts instead of 120 single ones
+    assertEquals(3, InsertCounter.inserts.get());
+  }
+
+  @Test
+  void test_importCsv_maps_columns_by_header_name() {
+    String csv = """
+        station,name,diningCommonsCode,calories
+        Entrees,"Mac, cheese",ortega,600
+        Grill,Burger
+        """;
+
+    BulkImportResult result = importService.importCsv(csv);
+
+    assertEquals(1, result.getCreated());
+    assertEquals(1, result.getRejected());
+    UCSBDiningCommonsMenuItem saved = repository.findById(result.getRows().get(0).getId()).get();
+    assertEquals("ortega", saved.getDiningCommonsCode());
+    assertEquals("Mac, cheese", saved.getName());
+    assertEquals("Entrees", saved.getStation());
+    assertEquals("missing diningCommonsCode", result.getRows().get(1).getMessage());
+  }
+
+  @Test
+  void test_importCsv_requires_a_header_with_every_column() {
+    InvalidUploadException missing = assertThrows(InvalidUploadException.class,
+        () -> importService.importCsv("diningCommonsCode,name\nortega,Pizza\n"));
+    assertEquals("upload is not valid: CSV header is missing column station", missing.getMessage());
+
+    InvalidUploadException empty = assertThrows(InvalidUploadException.class, () -> importService.importCsv(""));
+    assertEquals("upload is not valid: CSV has no header line", empty.getMessage());
+  }
+}
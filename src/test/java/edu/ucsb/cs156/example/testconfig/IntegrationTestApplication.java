@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.testconfig;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+/**
+ * The whole application, for tests that boot all of it, minus the test
+ * configuration that shares its packages on the test classpath (a plain
+ * @SpringBootTest would pick up MockCurrentUserServiceImpl and friends).
+ * Entities and repositories are found from the application's package, not
+ * this one.
+ */
+@Configuration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = ExampleApplication.class)
+@ComponentScan(basePackageClasses = ExampleApplication.class, excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = {
+    "edu\\.ucsb\\.cs156\\.example\\.ExampleApplication",
+    "edu\\.ucsb\\.cs156\\.example\\.testconfig\\..*",
+    ".*Tests(\\$.*)?" }))
+public class IntegrationTestApplication {
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.testconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import edu.ucsb.cs156.example.metrics.QueryCounter;
+
+/**
+ * A QueryCounter that also remembers the text of every statement, from any
+ * thread, so a test can assert how many statements some work ran and show
+ * them when the count is wrong.
+ *
+ * QueryCountTestCase installs it in place of the application's
+ * QueryCounter; a @DataJpaTest can install it with
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector.
+ */
+public class RecordingQueryCounter extends QueryCounter {
+
+  private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+  @Override
+  public String inspect(String sql) {
+    statements.add(sql);
+    return super.inspect(sql);
+  }
+
+  public static void clear() {
+    statements.clear();
+  }
+
+  public static List<String> statements() {
+    return List.copyOf(statements);
+  }
+
+  /** Runs work and fails unless it ran exactly expected statements. */
+  public static <T> T assertQueries(int expected, ThrowingSupplier<T> work) throws Throwable {
+    clear();
+    T result = work.get();
+    List<String> ran = statements();
+    assertEquals(expected, ran.size(), () -> "statements run:\n  " + String.join("\n  ", ran));
+    return result;
+  }
+}
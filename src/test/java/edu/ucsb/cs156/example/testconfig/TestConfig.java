@@ -3,7 +3,14 @@ package edu.ucsb.cs156.example.testconfig;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
+
+import edu.ucsb.cs156.example.metrics.ApiMetrics;
+import edu.ucsb.cs156.example.metrics.QueryCounter;
+import edu.ucsb.cs156.example.services.AdminEmailIndex;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 
@@ -20,4 +27,29 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public CurrentUserCache currentUserCache() {
+        return new CurrentUserCache();
+    }
+
+    @Bean
+    public AdminEmailIndex adminEmailIndex() {
+        return new AdminEmailIndex();
+    }
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    public QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    @Bean
+    public ApiMetrics apiMetrics() {
+        return new ApiMetrics();
+    }
+
 }